@@ -0,0 +1,42 @@
+package com.doctorbooking.backend.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm số request đi qua từng nhánh của JwtAuthenticationFilter
+ */
+@Component
+public class AuthFilterMetrics {
+
+    public enum Branch {
+        PREFLIGHT,
+        PUBLIC_ROUTE,
+        NO_TOKEN,
+        STATELESS_AUTHENTICATED,
+        DATABASE_AUTHENTICATED,
+        REJECTED,
+        ERROR
+    }
+
+    private final Map<Branch, LongAdder> counters = new LinkedHashMap<>();
+
+    public AuthFilterMetrics() {
+        for (Branch branch : Branch.values()) {
+            counters.put(branch, new LongAdder());
+        }
+    }
+
+    public void record(Branch branch) {
+        counters.get(branch).increment();
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        counters.forEach((branch, counter) -> result.put(branch.name(), counter.sum()));
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package com.doctorbooking.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace quá trình xác thực JWT theo mẫu (sampling), mặc định TẮT.
+ * Quyết định sample được đưa ra một lần ở đầu request; các request không được sample
+ * không tốn chi phí format/ghi log nào. Bật bằng app.security.auth-trace.enabled=true.
+ */
+@Component
+public class AuthTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthTracer.class);
+
+    @Value("${app.security.auth-trace.enabled:false}")
+    private boolean enabled;
+
+    // Tỉ lệ request được trace (0.0 - 1.0)
+    @Value("${app.security.auth-trace.sample-rate:0.01}")
+    private double sampleRate;
+
+    /**
+     * Quyết định request hiện tại có được trace hay không
+     */
+    public boolean begin() {
+        return enabled
+                && logger.isDebugEnabled()
+                && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Caller nên kiểm tra cờ sampled trước khi gọi để tránh cấp phát mảng varargs
+     */
+    public void trace(String format, Object... args) {
+        logger.debug(format, args);
+    }
+}
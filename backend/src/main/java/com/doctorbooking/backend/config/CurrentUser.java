@@ -0,0 +1,73 @@
+package com.doctorbooking.backend.config;
+
+import com.doctorbooking.backend.model.User;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Thông tin user đang đăng nhập đã được resolve sẵn (userId, role, patientId/doctorId).
+ * Controller nhận trực tiếp qua tham số method thay vì tự query lại User/Patient/Doctor.
+ *
+ * Nếu resolve lỗi, lỗi được giữ lại và ném ra khi controller đọc userId / patientId / doctorId,
+ * tức là bên trong try/catch của controller: response vẫn là 400/404 riêng của từng endpoint
+ * như khi controller còn tự tra user.
+ */
+@Getter
+public class CurrentUser {
+
+    private final Long userId;
+    private final String username;
+    private final User.Role role;
+    private final Long patientId;
+    private final Long doctorId;
+    @Getter(AccessLevel.NONE)
+    private final RuntimeException failure;
+
+    public CurrentUser(Long userId, String username, User.Role role, Long patientId, Long doctorId) {
+        this(userId, username, role, patientId, doctorId, null);
+    }
+
+    private CurrentUser(Long userId, String username, User.Role role, Long patientId, Long doctorId,
+                        RuntimeException failure) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.failure = failure;
+    }
+
+    /**
+     * User không resolve được: mọi lần đọc id sẽ ném lại failure
+     */
+    public static CurrentUser unresolved(RuntimeException failure) {
+        return new CurrentUser(null, null, null, null, null, failure);
+    }
+
+    public Long getUserId() {
+        checkResolved();
+        return userId;
+    }
+
+    public Long requirePatientId() {
+        checkResolved();
+        if (patientId == null) {
+            throw new RuntimeException("Patient not found with user id: " + userId);
+        }
+        return patientId;
+    }
+
+    public Long requireDoctorId() {
+        checkResolved();
+        if (doctorId == null) {
+            throw new RuntimeException("Doctor not found with user id: " + userId);
+        }
+        return doctorId;
+    }
+
+    private void checkResolved() {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.doctorbooking.backend.config;
+
+import com.doctorbooking.backend.service.CurrentUserService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Inject {@link CurrentUser} vào tham số controller.
+ * Kết quả được giữ trong request attribute nên mỗi request chỉ resolve một lần.
+ * Lỗi resolve không được ném ra từ đây mà giữ trong CurrentUser (xem {@link CurrentUser#unresolved}).
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String CURRENT_USER_ATTRIBUTE = CurrentUser.class.getName();
+
+    private final CurrentUserService currentUserService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return CurrentUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(@NonNull MethodParameter parameter,
+                                  ModelAndViewContainer mavContainer,
+                                  @NonNull NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        if (request != null && request.getAttribute(CURRENT_USER_ATTRIBUTE) instanceof CurrentUser cached) {
+            return cached;
+        }
+
+        CurrentUser currentUser;
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !authentication.isAuthenticated()) {
+                throw new RuntimeException("User not authenticated");
+            }
+            Claims claims = request != null
+                    ? (Claims) request.getAttribute(JwtAuthenticationFilter.CLAIMS_ATTRIBUTE)
+                    : null;
+            currentUser = currentUserService.resolve(authentication, claims);
+        } catch (RuntimeException e) {
+            // Không ném ở đây (trước try/catch của controller): để controller nhận lỗi khi đọc id
+            currentUser = CurrentUser.unresolved(e);
+        }
+        if (request != null) {
+            request.setAttribute(CURRENT_USER_ATTRIBUTE, currentUser);
+        }
+        return currentUser;
+    }
+}
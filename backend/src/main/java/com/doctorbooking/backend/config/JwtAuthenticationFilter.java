@@ -1,17 +1,23 @@
 package com.doctorbooking.backend.config;
 
+import com.doctorbooking.backend.service.TokenVersionRegistry;
 import com.doctorbooking.backend.service.UserService;
 import com.doctorbooking.backend.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -20,14 +26,25 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    // Claims đã verify của request hiện tại, dùng lại khi resolve CurrentUser
+    public static final String CLAIMS_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".CLAIMS";
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final AuthTracer authTracer;
+    private final AuthFilterMetrics metrics;
+
+    // true: dựng Authentication từ claims đã ký (userId, role, tokenVersion), bỏ qua lookup database
+    @Value("${app.security.jwt.stateless:false}")
+    private boolean statelessAuth;
 
     @Override
     protected void doFilterInternal(
@@ -37,6 +54,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         // Skip JWT filter for OPTIONS requests (preflight)
         if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            metrics.record(AuthFilterMetrics.Branch.PREFLIGHT);
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Route permit-all (public, auth, VNPAY callback): không cần parse/lookup JWT
+        if (PublicRoutes.isJwtSkipped(request)) {
+            metrics.record(AuthFilterMetrics.Branch.PUBLIC_ROUTE);
             filterChain.doFilter(request, response);
             return;
         }
@@ -46,60 +71,117 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            metrics.record(AuthFilterMetrics.Branch.NO_TOKEN);
             filterChain.doFilter(request, response);
             return;
         }
 
+        // Chỉ ghi log chi tiết cho request được sample (mặc định tắt)
+        final boolean traced = authTracer.begin();
+
         jwt = authHeader.substring(7);
         try {
-            username = jwtUtil.extractUsername(jwt);
-            logger.info("JWT Filter - Extracted username from token: {}", username);
-            logger.info("JWT Filter - Request URI: {}", request.getRequestURI());
+            // Parse + verify token đúng một lần, dùng lại claims cho subject/expiry/role
+            Claims claims = jwtUtil.parseClaims(jwt);
+            username = claims.getSubject();
+            if (traced) {
+                authTracer.trace("JWT Filter - username: {}, URI: {}", username, request.getRequestURI());
+            }
             
             // Clear existing authentication to ensure stateless behavior
             // This allows multiple users/roles to login simultaneously
             SecurityContextHolder.clearContext();
             
-            if (username != null) {
+            if (username != null && statelessAuth && canAuthenticateFromClaims(claims)) {
+                // Stateless mode: role/userId lấy trực tiếp từ claims đã ký, không query database
+                Long userId = jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_USER_ID);
+                long tokenVersion = jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_TOKEN_VERSION);
+                if (tokenVersionRegistry.isCurrent(userId, tokenVersion)) {
+                    List<GrantedAuthority> authorities = List.of(
+                            new SimpleGrantedAuthority("ROLE_" + claims.get(JwtUtil.CLAIM_ROLE, String.class)));
+                    UserDetails principal = org.springframework.security.core.userdetails.User
+                            .withUsername(username)
+                            .password("")
+                            .authorities(authorities)
+                            .build();
+                    setAuthentication(request, principal, authorities, claims);
+                    metrics.record(AuthFilterMetrics.Branch.STATELESS_AUTHENTICATED);
+                    if (traced) {
+                        authTracer.trace("JWT Filter - {} authenticated from claims with {}", username, authorities);
+                    }
+                } else {
+                    if (traced) {
+                        authTracer.trace("JWT Filter - token revoked (version changed) for user: {}", username);
+                    }
+                    metrics.record(AuthFilterMetrics.Branch.REJECTED);
+                    SecurityContextHolder.clearContext();
+                }
+            } else if (username != null) {
                 UserDetails userDetails = userService.loadUserByUsername(username);
-                logger.info("JWT Filter - Loaded userDetails for username: {}", username);
                 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (userDetails.isEnabled() && jwtUtil.validateToken(claims, userDetails)) {
                     // Use authorities from UserDetails (already contains ROLE_ prefix)
                     // This ensures role is always loaded from database, not from token
                     Collection<? extends GrantedAuthority> authorities = userDetails.getAuthorities();
-                    
-                    // Log authorities at INFO level for troubleshooting
-                    String authoritiesStr = authorities.stream()
-                            .map(GrantedAuthority::getAuthority)
-                            .reduce((a, b) -> a + ", " + b)
-                            .orElse("none");
-                    logger.info("JWT Filter - User: {} authenticated with authorities: {}", username, authoritiesStr);
-                    
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            authorities
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    logger.info("JWT Filter - Authentication token set in SecurityContext");
+                    setAuthentication(request, userDetails, authorities, claims);
+                    metrics.record(AuthFilterMetrics.Branch.DATABASE_AUTHENTICATED);
+                    if (traced) {
+                        authTracer.trace("JWT Filter - {} authenticated with {}", username, authorities);
+                    }
                 } else {
-                    logger.warn("JWT Filter - Token validation failed for user: {}", username);
+                    if (traced) {
+                        authTracer.trace("JWT Filter - token validation failed for user: {}", username);
+                    }
+                    metrics.record(AuthFilterMetrics.Branch.REJECTED);
                     // Clear context if token is invalid
                     SecurityContextHolder.clearContext();
                 }
             } else {
-                logger.warn("JWT Filter - Username is null");
+                metrics.record(AuthFilterMetrics.Branch.REJECTED);
                 SecurityContextHolder.clearContext();
             }
+        } catch (JwtException | UsernameNotFoundException e) {
+            // Token hết hạn / sai chữ ký / user không tồn tại: chuyện bình thường, không log stack trace
+            if (traced) {
+                authTracer.trace("JWT Filter - rejected token: {}", e.getMessage());
+            }
+            metrics.record(AuthFilterMetrics.Branch.REJECTED);
+            SecurityContextHolder.clearContext();
         } catch (Exception e) {
-            // Token invalid, clear context and continue without authentication
+            // Lỗi không mong đợi (ví dụ database), clear context and continue without authentication
             logger.error("JWT Filter - Authentication error: {}", e.getMessage(), e);
+            metrics.record(AuthFilterMetrics.Branch.ERROR);
             SecurityContextHolder.clearContext();
         }
         
         filterChain.doFilter(request, response);
     }
+
+    private void setAuthentication(HttpServletRequest request,
+                                   UserDetails principal,
+                                   Collection<? extends GrantedAuthority> authorities,
+                                   Claims claims) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                authorities
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+    }
+
+    /**
+     * Token chỉ được xác thực stateless khi có đủ claims và được cấp trong epoch hiện tại
+     * (token cũ từ trước khi restart, hoặc refresh token, sẽ đi qua đường database)
+     */
+    private boolean canAuthenticateFromClaims(Claims claims) {
+        Long epoch = jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_TOKEN_EPOCH);
+        return epoch != null
+                && tokenVersionRegistry.isKnownEpoch(epoch)
+                && jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_USER_ID) != null
+                && jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_TOKEN_VERSION) != null
+                && claims.get(JwtUtil.CLAIM_ROLE, String.class) != null;
+    }
 }
 
@@ -0,0 +1,53 @@
+package com.doctorbooking.backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Danh sách route permit-all dùng chung cho SecurityConfig và JwtAuthenticationFilter.
+ * Các pattern được compile một lần; filter bỏ qua toàn bộ xử lý JWT cho các route này.
+ */
+public final class PublicRoutes {
+
+    /**
+     * Route không cần xác thực và không đọc SecurityContext -> filter không cần parse JWT
+     */
+    public static final String[] JWT_SKIP_PATHS = {
+            "/api/public/**",
+            "/api/auth/**",
+            // VNPAY callback endpoints
+            "/api/patient/payments/vnpay/callback",
+            "/api/patient/payments/vnpay/wallet-callback",
+            "/api/patient/payments/vnpay/appointment-callback"
+    };
+
+    /**
+     * Route debug: permit-all nhưng vẫn chạy JWT filter để hiển thị thông tin xác thực
+     */
+    public static final String[] DEBUG_PATHS = {
+            "/api/test/**"
+    };
+
+    private static final List<PathPattern> JWT_SKIP_PATTERNS = Arrays.stream(JWT_SKIP_PATHS)
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+
+    private PublicRoutes() {
+    }
+
+    public static boolean isJwtSkipped(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        PathContainer container = PathContainer.parsePath(path);
+        for (PathPattern pattern : JWT_SKIP_PATTERNS) {
+            if (pattern.matches(container)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -62,17 +62,13 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // Cấu hình quy tắc cho các request HTTP
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/public/**").permitAll()
+                        // Public, authentication và VNPAY callback endpoints - không cần authentication
+                        // (dùng chung danh sách với JwtAuthenticationFilter, filter bỏ qua JWT cho các route này)
+                        .requestMatchers(PublicRoutes.JWT_SKIP_PATHS).permitAll()
                         // Cho phép OPTIONS requests (preflight) cho tất cả endpoints
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-                        // Cho phép các endpoint authentication không cần xác thực
-                        .requestMatchers("/api/auth/**").permitAll()
-                        // VNPAY callback endpoints - không cần authentication
-                        .requestMatchers("/api/patient/payments/vnpay/callback").permitAll()
-                        .requestMatchers("/api/patient/payments/vnpay/wallet-callback").permitAll()
-                        .requestMatchers("/api/patient/payments/vnpay/appointment-callback").permitAll()
                         // Test endpoints để debug (không cần auth)
-                        .requestMatchers("/api/test/**").permitAll()
+                        .requestMatchers(PublicRoutes.DEBUG_PATHS).permitAll()
                         // Admin endpoints chỉ dành cho ADMIN
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         // Doctor endpoints chỉ dành cho DOCTOR
@@ -0,0 +1,66 @@
+package com.doctorbooking.backend.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Chuyển dữ liệu cũ sang cơ chế giữ chỗ bằng bảng slot_claims:
+ * - Bỏ unique key cũ (doctor_id, appointment_date, appointment_time) trên appointments
+ *   (ddl-auto=update không tự xóa constraint)
+ * - Tạo slot_claims cho các lịch hẹn PENDING/CONFIRMED chưa có chỗ giữ
+ * Chạy lại nhiều lần vẫn an toàn.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SlotClaimInitializer implements CommandLineRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        dropLegacyUniqueKey();
+        backfillClaims();
+    }
+
+    private void dropLegacyUniqueKey() {
+        try {
+            List<String> indexNames = jdbcTemplate.queryForList(
+                    "SELECT INDEX_NAME FROM information_schema.STATISTICS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'appointments' " +
+                    "AND NON_UNIQUE = 0 AND INDEX_NAME <> 'PRIMARY' " +
+                    "GROUP BY INDEX_NAME " +
+                    "HAVING GROUP_CONCAT(COLUMN_NAME ORDER BY SEQ_IN_INDEX) = 'doctor_id,appointment_date,appointment_time'",
+                    String.class);
+            for (String indexName : indexNames) {
+                jdbcTemplate.execute("ALTER TABLE appointments DROP INDEX `" + indexName.replace("`", "") + "`");
+                log.info("Dropped legacy unique key {} on appointments", indexName);
+            }
+        } catch (Exception e) {
+            log.warn("Could not drop legacy unique key on appointments: {}", e.getMessage());
+        }
+    }
+
+    private void backfillClaims() {
+        try {
+            int inserted = jdbcTemplate.update(
+                    "INSERT INTO slot_claims (doctor_id, slot_date, slot_time, appointment_id, created_at) " +
+                    "SELECT a.doctor_id, a.appointment_date, a.appointment_time, a.id, CURRENT_TIMESTAMP " +
+                    "FROM appointments a " +
+                    "WHERE a.status IN ('PENDING', 'CONFIRMED') " +
+                    "AND NOT EXISTS (SELECT 1 FROM slot_claims c WHERE c.appointment_id = a.id) " +
+                    // Lịch cũ trùng slot: giữ chỗ cho lịch đầu tiên, bỏ qua các lịch sau (chỉ bỏ qua lỗi trùng key)
+                    "ON DUPLICATE KEY UPDATE appointment_id = appointment_id");
+            if (inserted > 0) {
+                log.info("Backfilled {} slot claims for active appointments", inserted);
+            }
+        } catch (Exception e) {
+            log.warn("Could not backfill slot claims: {}", e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,21 @@
 package com.doctorbooking.backend.controller;
 
 import com.doctorbooking.backend.dto.request.DoctorRequest;
+import com.doctorbooking.backend.dto.request.DoctorScheduleRequest;
 import com.doctorbooking.backend.dto.response.*;
 import com.doctorbooking.backend.service.AdminService;
+import com.doctorbooking.backend.util.NdjsonResponses;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import java.util.HashMap;
 import java.util.Map;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -35,6 +39,29 @@ public class AdminController {
         return ResponseEntity.ok(adminService.getAllDoctors());
     }
 
+    /**
+     * Danh sách bác sĩ theo trang (keyset theo id), trang sau lấy bằng cursor = nextCursor
+     */
+    @GetMapping("/doctors/page")
+    public ResponseEntity<CursorPage<DoctorResponse>> getDoctorPage(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(adminService.getDoctorPage(search, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Xuất toàn bộ bác sĩ dạng NDJSON (application/x-ndjson), stream từ database
+     */
+    @GetMapping(value = "/doctors/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDoctors() {
+        return NdjsonResponses.attachment("doctors", adminService::exportDoctors);
+    }
+
     @GetMapping("/doctors/{id}")
     public ResponseEntity<DoctorResponse> getDoctorById(@PathVariable Long id) {
         try {
@@ -85,6 +112,30 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/doctors/{id}/schedule")
+    public ResponseEntity<DoctorScheduleResponse> getDoctorSchedule(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(adminService.getDoctorSchedule(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping("/doctors/{id}/schedule")
+    public ResponseEntity<?> updateDoctorSchedule(
+            @PathVariable Long id,
+            @Valid @RequestBody DoctorScheduleRequest request) {
+        try {
+            return ResponseEntity.ok(adminService.updateDoctorSchedule(id, request));
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("status", HttpStatus.BAD_REQUEST.value());
+            errorResponse.put("timestamp", java.time.LocalDateTime.now());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+
     // ========== Patient Management ==========
 
     @GetMapping("/patients")
@@ -94,6 +145,26 @@ public class AdminController {
         return ResponseEntity.ok(patients);
     }
 
+    /**
+     * Danh sách bệnh nhân theo trang (keyset theo id), trang sau lấy bằng cursor = nextCursor
+     */
+    @GetMapping("/patients/page")
+    public ResponseEntity<CursorPage<PatientResponse>> getPatientPage(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(adminService.getPatientPage(search, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/patients/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportPatients() {
+        return NdjsonResponses.attachment("patients", adminService::exportPatients);
+    }
+
     @GetMapping("/patients/{id}")
     public ResponseEntity<PatientResponse> getPatientById(@PathVariable Long id) {
         try {
@@ -145,6 +216,27 @@ public class AdminController {
         return ResponseEntity.ok(appointments);
     }
 
+    /**
+     * Danh sách lịch hẹn theo trang (mới nhất trước, keyset theo ngày + id), lọc theo ngày tùy chọn
+     */
+    @GetMapping("/appointments/page")
+    public ResponseEntity<CursorPage<AppointmentResponse>> getAppointmentPage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(adminService.getAppointmentPage(date, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/appointments/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAppointments(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return NdjsonResponses.attachment("appointments", out -> adminService.exportAppointments(date, out));
+    }
+
     @GetMapping("/appointments/{id}")
     public ResponseEntity<AppointmentResponse> getAppointmentById(@PathVariable Long id) {
         try {
@@ -228,4 +320,3 @@ public class AdminController {
         }
     }
 }
-
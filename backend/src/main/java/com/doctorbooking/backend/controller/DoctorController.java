@@ -2,10 +2,11 @@ package com.doctorbooking.backend.controller;
 
 import com.doctorbooking.backend.dto.request.ChangePasswordRequest;
 import com.doctorbooking.backend.dto.request.CreateTreatmentRequest;
+import com.doctorbooking.backend.dto.request.DoctorScheduleRequest;
 import com.doctorbooking.backend.dto.request.UpdateProfileRequest;
 import com.doctorbooking.backend.dto.request.UpdateTreatmentRequest;
 import com.doctorbooking.backend.dto.response.*;
-import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.config.CurrentUser;
 import com.doctorbooking.backend.service.*;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,8 +14,6 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -29,15 +28,16 @@ public class DoctorController {
     private final DoctorService doctorService;
     private final PatientService patientService;
     private final AppointmentService appointmentService;
+    private final AppointmentQueryService appointmentQueryService;
     private final TreatmentService treatmentService;
-    private final UserService userService;
+    private final ScheduleTemplateService scheduleTemplateService;
 
     // ========== Profile Management ==========
 
     @GetMapping("/profile")
-    public ResponseEntity<DoctorResponse> getProfile() {
+    public ResponseEntity<DoctorResponse> getProfile(CurrentUser currentUser) {
         try {
-            Long userId = getCurrentUserId();
+            Long userId = currentUser.getUserId();
             DoctorResponse profile = doctorService.getDoctorByUserId(userId);
             return ResponseEntity.ok(profile);
         } catch (RuntimeException e) {
@@ -46,9 +46,9 @@ public class DoctorController {
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<DoctorResponse> updateProfile(@Valid @RequestBody UpdateProfileRequest request) {
+    public ResponseEntity<DoctorResponse> updateProfile(CurrentUser currentUser, @Valid @RequestBody UpdateProfileRequest request) {
         try {
-            Long userId = getCurrentUserId();
+            Long userId = currentUser.getUserId();
             DoctorResponse profile = doctorService.updateDoctorProfile(userId, request);
             return ResponseEntity.ok(profile);
         } catch (RuntimeException e) {
@@ -57,9 +57,9 @@ public class DoctorController {
     }
 
     @PostMapping("/change-password")
-    public ResponseEntity<Void> changePassword(@Valid @RequestBody ChangePasswordRequest request) {
+    public ResponseEntity<Void> changePassword(CurrentUser currentUser, @Valid @RequestBody ChangePasswordRequest request) {
         try {
-            Long userId = getCurrentUserId();
+            Long userId = currentUser.getUserId();
             doctorService.changePassword(userId, request);
             return ResponseEntity.ok().build();
         } catch (RuntimeException e) {
@@ -67,38 +67,67 @@ public class DoctorController {
         }
     }
 
+    // ========== Schedule Management ==========
+
+    @GetMapping("/schedule")
+    public ResponseEntity<DoctorScheduleResponse> getSchedule(CurrentUser currentUser) {
+        try {
+            Long doctorId = currentUser.requireDoctorId();
+            return ResponseEntity.ok(scheduleTemplateService.getSchedule(doctorId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping("/schedule")
+    public ResponseEntity<DoctorScheduleResponse> updateSchedule(CurrentUser currentUser, @Valid @RequestBody DoctorScheduleRequest request) {
+        try {
+            Long doctorId = currentUser.requireDoctorId();
+            return ResponseEntity.ok(scheduleTemplateService.updateSchedule(doctorId, request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // ========== Appointment Management ==========
 
     @GetMapping("/appointments")
     public ResponseEntity<List<AppointmentResponse>> getAppointments(
+            CurrentUser currentUser,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         try {
-            Long doctorId = getCurrentDoctorId();
-            
-            if (date != null) {
-                List<AppointmentResponse> appointments = appointmentService.getAppointmentsByDate(date)
-                        .stream()
-                        .filter(a -> a.getDoctorId().equals(doctorId))
-                        .toList();
-                return ResponseEntity.ok(appointments);
-            }
-            
-            // Get all appointments for this doctor
-            List<AppointmentResponse> allAppointments = appointmentService.getAllAppointments()
-                    .stream()
-                    .filter(a -> a.getDoctorId().equals(doctorId))
-                    .toList();
-            return ResponseEntity.ok(allAppointments);
+            Long doctorId = currentUser.requireDoctorId();
+            return ResponseEntity.ok(appointmentQueryService.getDoctorAppointments(doctorId, date));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Lịch hẹn của bác sĩ theo trang (keyset): lọc khoảng ngày / trạng thái trong database,
+     * trang sau lấy bằng cursor = nextCursor của trang trước
+     */
+    @GetMapping("/appointments/page")
+    public ResponseEntity<CursorPage<DoctorAppointmentItem>> getAppointmentPage(
+            CurrentUser currentUser,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            Long doctorId = currentUser.requireDoctorId();
+            return ResponseEntity.ok(appointmentQueryService.getDoctorAppointmentPage(doctorId, from, to, status, cursor, limit));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/appointments/{id}")
-    public ResponseEntity<AppointmentResponse> getAppointmentById(@PathVariable Long id) {
+    public ResponseEntity<AppointmentResponse> getAppointmentById(CurrentUser currentUser, @PathVariable Long id) {
         try {
             AppointmentResponse appointment = appointmentService.getAppointmentById(id);
-            Long doctorId = getCurrentDoctorId();
+            Long doctorId = currentUser.requireDoctorId();
             
             // Verify the appointment belongs to this doctor
             if (!appointment.getDoctorId().equals(doctorId)) {
@@ -112,9 +141,9 @@ public class DoctorController {
     }
 
     @PutMapping("/appointments/{id}/confirm")
-    public ResponseEntity<AppointmentResponse> confirmAppointment(@PathVariable Long id) {
+    public ResponseEntity<AppointmentResponse> confirmAppointment(CurrentUser currentUser, @PathVariable Long id) {
         try {
-            Long doctorId = getCurrentDoctorId();
+            Long doctorId = currentUser.requireDoctorId();
             AppointmentResponse appointment = appointmentService.confirmAppointment(id, doctorId);
             return ResponseEntity.ok(appointment);
         } catch (RuntimeException e) {
@@ -125,9 +154,9 @@ public class DoctorController {
     // ========== Treatment Management ==========
 
     @GetMapping("/treatments")
-    public ResponseEntity<List<TreatmentResponse>> getTreatments() {
+    public ResponseEntity<List<TreatmentResponse>> getTreatments(CurrentUser currentUser) {
         try {
-            Long doctorId = getCurrentDoctorId();
+            Long doctorId = currentUser.requireDoctorId();
             List<TreatmentResponse> treatments = treatmentService.getTreatmentsByDoctorId(doctorId);
             return ResponseEntity.ok(treatments);
         } catch (RuntimeException e) {
@@ -136,10 +165,10 @@ public class DoctorController {
     }
 
     @GetMapping("/treatments/{id}")
-    public ResponseEntity<TreatmentResponse> getTreatmentById(@PathVariable Long id) {
+    public ResponseEntity<TreatmentResponse> getTreatmentById(CurrentUser currentUser, @PathVariable Long id) {
         try {
             TreatmentResponse treatment = treatmentService.getTreatmentById(id);
-            Long doctorId = getCurrentDoctorId();
+            Long doctorId = currentUser.requireDoctorId();
             
             // Verify the treatment belongs to this doctor
             if (!treatment.getDoctorId().equals(doctorId)) {
@@ -153,9 +182,9 @@ public class DoctorController {
     }
 
     @PostMapping("/treatments")
-    public ResponseEntity<TreatmentResponse> createTreatment(@Valid @RequestBody CreateTreatmentRequest request) {
+    public ResponseEntity<TreatmentResponse> createTreatment(CurrentUser currentUser, @Valid @RequestBody CreateTreatmentRequest request) {
         try {
-            Long doctorId = getCurrentDoctorId();
+            Long doctorId = currentUser.requireDoctorId();
             TreatmentResponse treatment = treatmentService.createTreatment(doctorId, request);
             return ResponseEntity.status(HttpStatus.CREATED).body(treatment);
         } catch (RuntimeException e) {
@@ -165,11 +194,12 @@ public class DoctorController {
 
     @PutMapping("/treatments/{id}")
     public ResponseEntity<TreatmentResponse> updateTreatment(
+            CurrentUser currentUser,
             @PathVariable Long id,
             @Valid @RequestBody UpdateTreatmentRequest request) {
         try {
             TreatmentResponse treatment = treatmentService.getTreatmentById(id);
-            Long doctorId = getCurrentDoctorId();
+            Long doctorId = currentUser.requireDoctorId();
             
             // Verify the treatment belongs to this doctor
             if (!treatment.getDoctorId().equals(doctorId)) {
@@ -184,10 +214,10 @@ public class DoctorController {
     }
 
     @DeleteMapping("/treatments/{id}")
-    public ResponseEntity<Void> deleteTreatment(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteTreatment(CurrentUser currentUser, @PathVariable Long id) {
         try {
             TreatmentResponse treatment = treatmentService.getTreatmentById(id);
-            Long doctorId = getCurrentDoctorId();
+            Long doctorId = currentUser.requireDoctorId();
             
             // Verify the treatment belongs to this doctor
             if (!treatment.getDoctorId().equals(doctorId)) {
@@ -210,6 +240,21 @@ public class DoctorController {
         return ResponseEntity.ok(patients);
     }
 
+    /**
+     * Tìm bệnh nhân theo trang: số = id / số điện thoại, chữ = tiền tố các từ trong họ tên (không cần dấu)
+     */
+    @GetMapping("/patients/page")
+    public ResponseEntity<CursorPage<PatientResponse>> getPatientPage(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(patientService.getPatientPage(search, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/patients/{id}")
     public ResponseEntity<PatientResponse> getPatientById(@PathVariable Long id) {
         try {
@@ -221,34 +266,18 @@ public class DoctorController {
     }
 
     @GetMapping("/patients/{id}/treatments")
-    public ResponseEntity<List<TreatmentResponse>> getPatientTreatments(@PathVariable Long id) {
+    public ResponseEntity<List<TreatmentResponse>> getPatientTreatments(CurrentUser currentUser, @PathVariable Long id) {
         try {
             // Verify patient exists
             patientService.getPatientById(id);
             
             List<TreatmentResponse> treatments = treatmentService.getTreatmentsByPatientId(id)
                     .stream()
-                    .filter(t -> t.getDoctorId().equals(getCurrentDoctorId()))
+                    .filter(t -> t.getDoctorId().equals(currentUser.requireDoctorId()))
                     .toList();
             return ResponseEntity.ok(treatments);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
-
-    // ========== Helper Methods ==========
-
-    private Long getCurrentUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        User user = userService.findByUsername(username);
-        return user.getId();
-    }
-
-    private Long getCurrentDoctorId() {
-        Long userId = getCurrentUserId();
-        DoctorResponse doctor = doctorService.getDoctorByUserId(userId);
-        return doctor.getId();
-    }
 }
-
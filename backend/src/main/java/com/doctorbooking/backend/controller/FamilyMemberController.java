@@ -1,10 +1,9 @@
 package com.doctorbooking.backend.controller;
 
+import com.doctorbooking.backend.config.CurrentUser;
 import com.doctorbooking.backend.dto.request.CreateFamilyMemberRequest;
 import com.doctorbooking.backend.dto.request.UpdateFamilyMemberRequest;
 import com.doctorbooking.backend.dto.response.FamilyMemberResponse;
-import com.doctorbooking.backend.model.Patient;
-import com.doctorbooking.backend.repository.PatientRepository;
 import com.doctorbooking.backend.service.FamilyMemberService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,8 +12,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -28,19 +25,17 @@ public class FamilyMemberController {
     private static final Logger logger = LoggerFactory.getLogger(FamilyMemberController.class);
 
     private final FamilyMemberService familyMemberService;
-    private final PatientRepository patientRepository;
 
     /**
      * Lấy danh sách thành viên gia đình
      */
     @GetMapping("/family-members")
     public ResponseEntity<List<FamilyMemberResponse>> getFamilyMembers(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            CurrentUser currentUser) {
         try {
-            Patient patient = patientRepository.findByUser_Username(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+            Long patientId = currentUser.requirePatientId();
 
-            List<FamilyMemberResponse> members = familyMemberService.getFamilyMembers(patient.getId());
+            List<FamilyMemberResponse> members = familyMemberService.getFamilyMembers(patientId);
             return ResponseEntity.ok(members);
         } catch (Exception e) {
             logger.error("Error getting family members", e);
@@ -53,12 +48,11 @@ public class FamilyMemberController {
      */
     @GetMapping("/family-members/stats")
     public ResponseEntity<FamilyMemberService.FamilyStatsResponse> getFamilyStats(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            CurrentUser currentUser) {
         try {
-            Patient patient = patientRepository.findByUser_Username(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+            Long patientId = currentUser.requirePatientId();
 
-            FamilyMemberService.FamilyStatsResponse stats = familyMemberService.getFamilyStats(patient.getId());
+            FamilyMemberService.FamilyStatsResponse stats = familyMemberService.getFamilyStats(patientId);
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
             logger.error("Error getting family stats", e);
@@ -71,13 +65,12 @@ public class FamilyMemberController {
      */
     @PostMapping("/family-members")
     public ResponseEntity<?> createFamilyMember(
-            @AuthenticationPrincipal UserDetails userDetails,
+            CurrentUser currentUser,
             @Valid @RequestBody CreateFamilyMemberRequest request) {
         try {
-            Patient patient = patientRepository.findByUser_Username(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+            Long patientId = currentUser.requirePatientId();
 
-            FamilyMemberResponse response = familyMemberService.createFamilyMember(patient.getId(), request);
+            FamilyMemberResponse response = familyMemberService.createFamilyMember(patientId, request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (RuntimeException e) {
             logger.error("Error creating family member", e);
@@ -93,14 +86,13 @@ public class FamilyMemberController {
      */
     @PutMapping("/family-members/{id}")
     public ResponseEntity<?> updateFamilyMember(
-            @AuthenticationPrincipal UserDetails userDetails,
+            CurrentUser currentUser,
             @PathVariable Long id,
             @Valid @RequestBody UpdateFamilyMemberRequest request) {
         try {
-            Patient patient = patientRepository.findByUser_Username(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+            Long patientId = currentUser.requirePatientId();
 
-            FamilyMemberResponse response = familyMemberService.updateFamilyMember(patient.getId(), id, request);
+            FamilyMemberResponse response = familyMemberService.updateFamilyMember(patientId, id, request);
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             logger.error("Error updating family member", e);
@@ -116,13 +108,12 @@ public class FamilyMemberController {
      */
     @DeleteMapping("/family-members/{id}")
     public ResponseEntity<?> deleteFamilyMember(
-            @AuthenticationPrincipal UserDetails userDetails,
+            CurrentUser currentUser,
             @PathVariable Long id) {
         try {
-            Patient patient = patientRepository.findByUser_Username(userDetails.getUsername())
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+            Long patientId = currentUser.requirePatientId();
 
-            familyMemberService.deleteFamilyMember(patient.getId(), id);
+            familyMemberService.deleteFamilyMember(patientId, id);
             return ResponseEntity.ok().body("Family member deleted successfully");
         } catch (RuntimeException e) {
             logger.error("Error deleting family member", e);
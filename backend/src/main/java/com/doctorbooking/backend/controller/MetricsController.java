@@ -0,0 +1,70 @@
+package com.doctorbooking.backend.controller;
+
+import com.doctorbooking.backend.config.AuthFilterMetrics;
+import com.doctorbooking.backend.service.AppointmentReminderService;
+import com.doctorbooking.backend.service.DoctorDirectory;
+import com.doctorbooking.backend.service.DoctorSearchIndex;
+import com.doctorbooking.backend.service.OutboxDispatcher;
+import com.doctorbooking.backend.service.PatientSearchService;
+import com.doctorbooking.backend.service.PrincipalCache;
+import com.doctorbooking.backend.service.ReminderScheduler;
+import com.doctorbooking.backend.service.ResourceVersions;
+import com.doctorbooking.backend.service.SlotAvailabilityIndex;
+import com.doctorbooking.backend.service.SmtpTransportPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/metrics")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class MetricsController {
+
+    private final PrincipalCache principalCache;
+    private final AuthFilterMetrics authFilterMetrics;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final OutboxDispatcher outboxDispatcher;
+    private final SmtpTransportPool smtpTransportPool;
+    private final AppointmentReminderService appointmentReminderService;
+    private final ReminderScheduler reminderScheduler;
+    private final DoctorSearchIndex doctorSearchIndex;
+    private final DoctorDirectory doctorDirectory;
+    private final PatientSearchService patientSearchService;
+    private final ResourceVersions resourceVersions;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+
+        Map<String, Object> principal = new HashMap<>();
+        principal.put("hits", principalCache.getHitCount());
+        principal.put("misses", principalCache.getMissCount());
+        principal.put("evictions", principalCache.getEvictionCount());
+        principal.put("size", principalCache.size());
+        metrics.put("principalCache", principal);
+        metrics.put("authFilter", authFilterMetrics.snapshot());
+
+        Map<String, Object> slots = new HashMap<>();
+        slots.put("hits", slotAvailabilityIndex.getHitCount());
+        slots.put("misses", slotAvailabilityIndex.getMissCount());
+        slots.put("size", slotAvailabilityIndex.size());
+        metrics.put("slotIndex", slots);
+        metrics.put("outbox", outboxDispatcher.snapshot());
+        metrics.put("smtpPool", smtpTransportPool.snapshot());
+        metrics.put("reminders", appointmentReminderService.snapshot());
+        metrics.put("reminderWheel", reminderScheduler.snapshot());
+        metrics.put("doctorSearch", doctorSearchIndex.snapshot());
+        metrics.put("doctorDirectory", doctorDirectory.snapshot());
+        metrics.put("patientSearch", patientSearchService.snapshot());
+        metrics.put("etags", resourceVersions.snapshot());
+
+        return ResponseEntity.ok(metrics);
+    }
+}
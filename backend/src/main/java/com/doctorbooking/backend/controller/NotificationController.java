@@ -1,18 +1,19 @@
 package com.doctorbooking.backend.controller;
 
+import com.doctorbooking.backend.config.CurrentUser;
 import com.doctorbooking.backend.dto.response.NotificationResponse;
 import com.doctorbooking.backend.service.NotificationService;
+import com.doctorbooking.backend.service.ResourceVersions;
+import com.doctorbooking.backend.util.ETags;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -24,40 +25,23 @@ public class NotificationController {
     private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
 
     private final NotificationService notificationService;
-    private final com.doctorbooking.backend.repository.PatientRepository patientRepository;
-
-    /**
-     * Lấy ID của patient hiện tại từ JWT token
-     */
-    private Long getCurrentPatientId() {
-        Authentication authentication = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails)) {
-            throw new RuntimeException("User not authenticated");
-        }
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String username = userDetails.getUsername();
-        
-        return patientRepository.findByUser_Username(username)
-                .orElseThrow(() -> new RuntimeException("Patient not found"))
-                .getId();
-    }
+    private final ResourceVersions resourceVersions;
 
     /**
      * Lấy tất cả thông báo của patient
      */
     @GetMapping
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<?> getNotifications() {
+    public ResponseEntity<?> getNotifications(
+            CurrentUser currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            Long patientId = getCurrentPatientId();
-            List<com.doctorbooking.backend.model.Notification> notifications = 
-                notificationService.getNotificationsByPatientId(patientId);
-            
-            List<NotificationResponse> response = notifications.stream()
+            Long patientId = currentUser.requirePatientId();
+            String etag = resourceVersions.etag(ResourceVersions.Resource.NOTIFICATIONS, patientId);
+            return ETags.conditional(ifNoneMatch, etag, () -> notificationService.getNotificationsByPatientId(patientId)
+                    .stream()
                     .map(NotificationResponse::fromEntity)
-                    .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(response);
+                    .collect(Collectors.toList()));
         } catch (Exception e) {
             logger.error("Error getting notifications", e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -69,15 +53,18 @@ public class NotificationController {
      */
     @GetMapping("/unread-count")
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<?> getUnreadCount() {
+    public ResponseEntity<?> getUnreadCount(
+            CurrentUser currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            Long patientId = getCurrentPatientId();
-            long count = notificationService.getUnreadCount(patientId);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("unreadCount", count);
-            
-            return ResponseEntity.ok(response);
+            Long patientId = currentUser.requirePatientId();
+            // Trình duyệt poll liên tục: ETag còn khớp thì trả 304, không đếm lại trong database
+            String etag = resourceVersions.etag(ResourceVersions.Resource.NOTIFICATIONS, patientId);
+            return ETags.conditional(ifNoneMatch, etag, () -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("unreadCount", notificationService.getUnreadCount(patientId));
+                return response;
+            });
         } catch (Exception e) {
             logger.error("Error getting unread count", e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -89,9 +76,9 @@ public class NotificationController {
      */
     @PutMapping("/{notificationId}/read")
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<?> markAsRead(@PathVariable Long notificationId) {
+    public ResponseEntity<?> markAsRead(CurrentUser currentUser, @PathVariable Long notificationId) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             notificationService.markAsRead(notificationId, patientId);
             return ResponseEntity.ok(Map.of("message", "Notification marked as read"));
         } catch (RuntimeException e) {
@@ -105,9 +92,9 @@ public class NotificationController {
      */
     @PutMapping("/mark-all-read")
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<?> markAllAsRead() {
+    public ResponseEntity<?> markAllAsRead(CurrentUser currentUser) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             notificationService.markAllAsRead(patientId);
             return ResponseEntity.ok(Map.of("message", "All notifications marked as read"));
         } catch (Exception e) {
@@ -121,9 +108,9 @@ public class NotificationController {
      */
     @DeleteMapping("/{notificationId}")
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<?> deleteNotification(@PathVariable Long notificationId) {
+    public ResponseEntity<?> deleteNotification(CurrentUser currentUser, @PathVariable Long notificationId) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             notificationService.deleteNotification(notificationId, patientId);
             return ResponseEntity.ok(Map.of("message", "Notification deleted"));
         } catch (RuntimeException e) {
@@ -5,17 +5,17 @@ import com.doctorbooking.backend.dto.request.CreateAppointmentRequest;
 import com.doctorbooking.backend.dto.request.CreateFeedbackRequest;
 import com.doctorbooking.backend.dto.request.UpdatePatientProfileRequest;
 import com.doctorbooking.backend.dto.response.*;
-import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.config.CurrentUser;
 import com.doctorbooking.backend.service.*;
 import com.doctorbooking.backend.dto.request.SymptomCheckRequest; // Thêm import
 import com.doctorbooking.backend.dto.response.SymptomCheckResponse; // Thêm import
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import com.doctorbooking.backend.util.ETags;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import org.slf4j.Logger;
@@ -33,19 +33,19 @@ public class PatientController {
 
     private final PatientService patientService;
     private final DoctorService doctorService;
+    private final ResourceVersions resourceVersions;
     private final AppointmentService appointmentService;
     private final TreatmentService treatmentService;
     private final FeedbackService feedbackService;
-    private final UserService userService;
     private final AISymptomService aiSymptomService;
     private final com.doctorbooking.backend.service.VNPayService vnPayService;
 
     // ========== Profile Management ==========
 
     @GetMapping("/profile")
-    public ResponseEntity<PatientResponse> getProfile() {
+    public ResponseEntity<PatientResponse> getProfile(CurrentUser currentUser) {
         try {
-            Long userId = getCurrentUserId();
+            Long userId = currentUser.getUserId();
             PatientResponse profile = patientService.getPatientByUserId(userId);
             return ResponseEntity.ok(profile);
         } catch (RuntimeException e) {
@@ -54,9 +54,9 @@ public class PatientController {
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<PatientResponse> updateProfile(@Valid @RequestBody UpdatePatientProfileRequest request) {
+    public ResponseEntity<PatientResponse> updateProfile(CurrentUser currentUser, @Valid @RequestBody UpdatePatientProfileRequest request) {
         try {
-            Long userId = getCurrentUserId();
+            Long userId = currentUser.getUserId();
             PatientResponse profile = patientService.updatePatientProfile(userId, request);
             return ResponseEntity.ok(profile);
         } catch (RuntimeException e) {
@@ -65,9 +65,9 @@ public class PatientController {
     }
 
     @PostMapping("/change-password")
-    public ResponseEntity<Void> changePassword(@Valid @RequestBody ChangePasswordRequest request) {
+    public ResponseEntity<Void> changePassword(CurrentUser currentUser, @Valid @RequestBody ChangePasswordRequest request) {
         try {
-            Long userId = getCurrentUserId();
+            Long userId = currentUser.getUserId();
             patientService.changePassword(userId, request);
             return ResponseEntity.ok().build();
         } catch (RuntimeException e) {
@@ -78,9 +78,9 @@ public class PatientController {
     // ========== Appointment Booking ==========
 
     @PostMapping("/appointments")
-    public ResponseEntity<?> createAppointment(@Valid @RequestBody CreateAppointmentRequest request) {
+    public ResponseEntity<?> createAppointment(CurrentUser currentUser, @Valid @RequestBody CreateAppointmentRequest request) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             AppointmentResponse appointment = appointmentService.createAppointment(patientId, request);
             
             // Nếu chọn VNPAY, tạo payment URL
@@ -117,21 +117,23 @@ public class PatientController {
     }
 
     @GetMapping("/appointments")
-    public ResponseEntity<List<AppointmentResponse>> getAppointments() {
+    public ResponseEntity<List<AppointmentResponse>> getAppointments(
+            CurrentUser currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            Long patientId = getCurrentPatientId();
-            List<AppointmentResponse> appointments = appointmentService.getPatientAppointments(patientId);
-            return ResponseEntity.ok(appointments);
+            Long patientId = currentUser.requirePatientId();
+            String etag = resourceVersions.etag(ResourceVersions.Resource.APPOINTMENTS, patientId);
+            return ETags.conditional(ifNoneMatch, etag, () -> appointmentService.getPatientAppointments(patientId));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/appointments/{id}")
-    public ResponseEntity<AppointmentResponse> getAppointmentById(@PathVariable Long id) {
+    public ResponseEntity<AppointmentResponse> getAppointmentById(CurrentUser currentUser, @PathVariable Long id) {
         try {
             AppointmentResponse appointment = appointmentService.getAppointmentById(id);
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
 
             // Verify the appointment belongs to this patient
             if (!appointment.getPatientId().equals(patientId)) {
@@ -145,9 +147,9 @@ public class PatientController {
     }
 
     @DeleteMapping("/appointments/{id}")
-    public ResponseEntity<Void> cancelAppointment(@PathVariable Long id) {
+    public ResponseEntity<Void> cancelAppointment(CurrentUser currentUser, @PathVariable Long id) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             appointmentService.cancelAppointment(id, patientId);
             return ResponseEntity.noContent().build();
         } catch (RuntimeException e) {
@@ -172,27 +174,67 @@ public class PatientController {
         }
     }
 
+    /**
+     * Lịch trống của nhiều bác sĩ trong nhiều ngày, vd:
+     * /api/patient/appointments/availability?doctorIds=1,2,3&from=2025-01-06&to=2025-01-12
+     * /api/patient/appointments/availability?specialization=Tim mạch&from=2025-01-06&to=2025-01-12
+     * Theo chuyên khoa: tối đa 50 bác sĩ mỗi trang, trang sau lấy bằng cursor = nextCursor
+     */
+    @GetMapping("/appointments/availability")
+    @PreAuthorize("hasRole('PATIENT')")
+    public ResponseEntity<?> getAvailability(
+            @RequestParam(required = false) List<Long> doctorIds,
+            @RequestParam(required = false) String specialization,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            CursorPage<DoctorAvailabilityResponse> availability = appointmentService.getAvailability(
+                    doctorIds, specialization, LocalDate.parse(from), LocalDate.parse(to), cursor, limit);
+            return ResponseEntity.ok(availability);
+        } catch (java.time.format.DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid date format, expected yyyy-MM-dd"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // ========== Doctor Search ==========
 
     @GetMapping("/doctors")
     public ResponseEntity<List<DoctorResponse>> searchDoctors(
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         if (search != null && !search.trim().isEmpty()) {
             return ResponseEntity.ok(doctorService.searchDoctors(search));
         }
-        // Return only active doctors for patients
-        return ResponseEntity.ok(doctorService.getActiveDoctors());
+        // Return only active doctors for patients (304 nếu danh bạ không đổi)
+        DoctorDirectory.Snapshot directory = doctorService.getDoctorDirectory();
+        return ETags.conditional(ifNoneMatch, directory.etag(), directory::activeDoctors);
+    }
+
+    /**
+     * Chuyên khoa của các bác sĩ đang hoạt động
+     */
+    @GetMapping("/doctors/specializations")
+    public ResponseEntity<List<String>> getSpecializations(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        DoctorDirectory.Snapshot directory = doctorService.getDoctorDirectory();
+        return ETags.conditional(ifNoneMatch, directory.specializationsEtag(), directory::specializations);
     }
 
     @GetMapping("/doctors/{id}")
-    public ResponseEntity<DoctorResponse> getDoctorById(@PathVariable Long id) {
+    public ResponseEntity<DoctorResponse> getDoctorById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             DoctorResponse doctor = doctorService.getDoctorById(id);
             // Only return if doctor is active
             if (!doctor.getStatus().equals("ACTIVE")) {
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(doctor);
+            return ETags.conditional(ifNoneMatch, DoctorDirectory.Snapshot.etagOf(doctor), () -> doctor);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -201,9 +243,9 @@ public class PatientController {
     // ========== Treatment Viewing ==========
 
     @GetMapping("/treatments")
-    public ResponseEntity<List<TreatmentResponse>> getTreatments() {
+    public ResponseEntity<List<TreatmentResponse>> getTreatments(CurrentUser currentUser) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             List<TreatmentResponse> treatments = treatmentService.getTreatmentsByPatientId(patientId);
             return ResponseEntity.ok(treatments);
         } catch (RuntimeException e) {
@@ -212,10 +254,10 @@ public class PatientController {
     }
 
     @GetMapping("/treatments/{id}")
-    public ResponseEntity<TreatmentResponse> getTreatmentById(@PathVariable Long id) {
+    public ResponseEntity<TreatmentResponse> getTreatmentById(CurrentUser currentUser, @PathVariable Long id) {
         try {
             TreatmentResponse treatment = treatmentService.getTreatmentById(id);
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
 
             // Verify the treatment belongs to this patient
             if (!treatment.getPatientId().equals(patientId)) {
@@ -229,10 +271,10 @@ public class PatientController {
     }
 
     @GetMapping("/appointments/{id}/treatment")
-    public ResponseEntity<TreatmentResponse> getTreatmentByAppointmentId(@PathVariable Long id) {
+    public ResponseEntity<TreatmentResponse> getTreatmentByAppointmentId(CurrentUser currentUser, @PathVariable Long id) {
         try {
             AppointmentResponse appointment = appointmentService.getAppointmentById(id);
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
 
             // Verify the appointment belongs to this patient
             if (!appointment.getPatientId().equals(patientId)) {
@@ -253,9 +295,9 @@ public class PatientController {
     // ========== Feedback ==========
 
     @PostMapping("/feedbacks")
-    public ResponseEntity<FeedbackResponse> createFeedback(@Valid @RequestBody CreateFeedbackRequest request) {
+    public ResponseEntity<FeedbackResponse> createFeedback(CurrentUser currentUser, @Valid @RequestBody CreateFeedbackRequest request) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             FeedbackResponse feedback = feedbackService.createFeedback(patientId, request);
             return ResponseEntity.status(HttpStatus.CREATED).body(feedback);
         } catch (RuntimeException e) {
@@ -264,9 +306,9 @@ public class PatientController {
     }
 
     @GetMapping("/feedbacks")
-    public ResponseEntity<List<FeedbackResponse>> getFeedbacks() {
+    public ResponseEntity<List<FeedbackResponse>> getFeedbacks(CurrentUser currentUser) {
         try {
-            Long patientId = getCurrentPatientId();
+            Long patientId = currentUser.requirePatientId();
             List<FeedbackResponse> feedbacks = feedbackService.getPatientFeedbacks(patientId);
             return ResponseEntity.ok(feedbacks);
         } catch (RuntimeException e) {
@@ -274,21 +316,6 @@ public class PatientController {
         }
     }
 
-    // ========== Helper Methods ==========
-
-    private Long getCurrentUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        User user = userService.findByUsername(username);
-        return user.getId();
-    }
-
-    private Long getCurrentPatientId() {
-        Long userId = getCurrentUserId();
-        PatientResponse patient = patientService.getPatientByUserId(userId);
-        return patient.getId();
-    }
-
     // ========== Methods AISymptoms ==========
     private static final Logger logger = LoggerFactory.getLogger(PatientController.class);
 
@@ -1,17 +1,18 @@
 package com.doctorbooking.backend.controller;
 
+import com.doctorbooking.backend.config.CurrentUser;
 import com.doctorbooking.backend.dto.request.TopUpRequest;
 import com.doctorbooking.backend.dto.response.TopUpResponse;
 import com.doctorbooking.backend.dto.response.WalletResponse;
 import com.doctorbooking.backend.dto.response.WalletTransactionResponse;
 import com.doctorbooking.backend.model.Patient;
 import com.doctorbooking.backend.model.WalletTransaction;
-import com.doctorbooking.backend.model.User;
 import com.doctorbooking.backend.repository.PatientRepository;
 import com.doctorbooking.backend.service.PatientService;
-import com.doctorbooking.backend.service.UserService;
+import com.doctorbooking.backend.service.ResourceVersions;
 import com.doctorbooking.backend.service.VNPayService;
 import com.doctorbooking.backend.service.WalletService;
+import com.doctorbooking.backend.util.ETags;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -20,10 +21,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -39,8 +40,8 @@ public class PaymentController {
     private static final Logger logger = LoggerFactory.getLogger(PaymentController.class);
     private final WalletService walletService;
     private final VNPayService vnPayService;
-    private final UserService userService;
     private final PatientRepository patientRepository;
+    private final ResourceVersions resourceVersions;
     private final com.doctorbooking.backend.service.AppointmentService appointmentService;
     private final com.doctorbooking.backend.repository.AppointmentRepository appointmentRepository;
 
@@ -52,17 +53,20 @@ public class PaymentController {
      */
     @GetMapping("/wallet")
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<WalletResponse> getWallet() {
+    public ResponseEntity<WalletResponse> getWallet(
+            CurrentUser currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            Long userId = getCurrentUserId();
-            Patient patient = patientRepository.findByUserId(userId)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
-
-            WalletResponse response = new WalletResponse(
-                    patient.getWalletBalance() != null ? patient.getWalletBalance() : BigDecimal.ZERO,
-                    patient.getLoyaltyPoints() != null ? patient.getLoyaltyPoints() : 0,
-                    patient.getLoyaltyTier() != null ? patient.getLoyaltyTier() : "BRONZE");
-            return ResponseEntity.ok(response);
+            Long patientId = currentUser.requirePatientId();
+            String etag = resourceVersions.etag(ResourceVersions.Resource.WALLET, patientId);
+            return ETags.conditional(ifNoneMatch, etag, () -> {
+                Patient patient = patientRepository.findById(patientId)
+                        .orElseThrow(() -> new RuntimeException("Patient not found"));
+                return new WalletResponse(
+                        patient.getWalletBalance() != null ? patient.getWalletBalance() : BigDecimal.ZERO,
+                        patient.getLoyaltyPoints() != null ? patient.getLoyaltyPoints() : 0,
+                        patient.getLoyaltyTier() != null ? patient.getLoyaltyTier() : "BRONZE");
+            });
         } catch (Exception e) {
             logger.error("Error getting wallet", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -74,10 +78,9 @@ public class PaymentController {
      */
     @PostMapping("/wallet/top-up")
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<TopUpResponse> topUp(@Valid @RequestBody TopUpRequest request) {
+    public ResponseEntity<TopUpResponse> topUp(CurrentUser currentUser, @Valid @RequestBody TopUpRequest request) {
         try {
-            Long userId = getCurrentUserId();
-            Patient patient = patientRepository.findByUserId(userId)
+            Patient patient = patientRepository.findById(currentUser.requirePatientId())
                     .orElseThrow(() -> new RuntimeException("Patient not found"));
             Long patientId = patient.getId();
 
@@ -345,13 +348,11 @@ public class PaymentController {
     @GetMapping("/wallet/transactions")
     @PreAuthorize("hasRole('PATIENT')")
     public ResponseEntity<Map<String, Object>> getTransactions(
+            CurrentUser currentUser,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
-            Long userId = getCurrentUserId();
-            Patient patient = patientRepository.findByUserId(userId)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
-            Long patientId = patient.getId();
+            Long patientId = currentUser.requirePatientId();
 
             Pageable pageable = PageRequest.of(page, size);
             Page<WalletTransaction> transactions = walletService.getTransactions(patientId, pageable);
@@ -382,12 +383,4 @@ public class PaymentController {
                 transaction.getPaymentMethod(),
                 transaction.getCreatedAt());
     }
-
-    private Long getCurrentUserId() {
-        org.springframework.security.core.Authentication authentication = SecurityContextHolder.getContext()
-                .getAuthentication();
-        String username = authentication.getName();
-        User user = userService.findByUsername(username);
-        return user.getId();
-    }
 }
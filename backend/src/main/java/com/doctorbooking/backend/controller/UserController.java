@@ -3,14 +3,18 @@ package com.doctorbooking.backend.controller;
 import com.doctorbooking.backend.dto.request.ChangePasswordRequest;
 import com.doctorbooking.backend.dto.request.UpdateUserRequest;
 import com.doctorbooking.backend.dto.request.UserRequest;
+import com.doctorbooking.backend.dto.response.CursorPage;
 import com.doctorbooking.backend.dto.response.UserResponse;
 import com.doctorbooking.backend.service.UserService;
+import com.doctorbooking.backend.util.NdjsonResponses;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -22,13 +26,48 @@ public class UserController {
 
     private final UserService userService;
 
+    /**
+     * Không có bộ lọc: toàn bộ tài khoản.
+     * Có search / role / enabled: mọi tài khoản có username / email bắt đầu bằng search.
+     * Danh sách lớn thì dùng /page.
+     */
     @GetMapping
     public ResponseEntity<List<UserResponse>> getAllUsers(
-            @RequestParam(required = false) String search) {
-        if (search != null && !search.trim().isEmpty()) {
-            return ResponseEntity.ok(userService.searchUsers(search));
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) Boolean enabled) {
+        boolean filtered = (search != null && !search.trim().isEmpty())
+                || (role != null && !role.isBlank()) || enabled != null;
+        if (!filtered) {
+            return ResponseEntity.ok(userService.getAllUsers());
         }
-        return ResponseEntity.ok(userService.getAllUsers());
+        try {
+            return ResponseEntity.ok(userService.searchUsers(search, role, enabled));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Tìm tài khoản theo trang (keyset theo id), trang sau lấy bằng cursor = nextCursor
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<UserResponse>> getUserPage(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) Boolean enabled,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(userService.getUserPage(search, role, enabled, cursor, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return NdjsonResponses.attachment("users", userService::exportUsers);
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,35 @@
+package com.doctorbooking.backend.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+@Data
+public class DoctorScheduleRequest {
+    @NotNull(message = "Work start is required")
+    private LocalTime workStart;
+
+    @NotNull(message = "Work end is required")
+    private LocalTime workEnd;
+
+    private LocalTime breakStart;
+    private LocalTime breakEnd;
+
+    @NotNull(message = "Slot length is required")
+    @Min(value = 5, message = "Slot length must be at least 5 minutes")
+    @Max(value = 480, message = "Slot length must be at most 480 minutes")
+    private Integer slotMinutes;
+
+    @Min(value = 0, message = "Buffer time must not be negative")
+    @Max(value = 240, message = "Buffer time must be at most 240 minutes")
+    private Integer bufferTime;
+
+    private Set<DayOfWeek> weeklyDaysOff;
+    private Set<LocalDate> daysOff;
+}
@@ -0,0 +1,42 @@
+package com.doctorbooking.backend.dto.response;
+
+import com.doctorbooking.backend.model.Appointment;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Dòng lịch hẹn trong danh sách của bác sĩ: chỉ các cột màn hình lịch hẹn cần,
+ * lấy thẳng bằng query (không load entity Appointment / Doctor).
+ */
+@Data
+@NoArgsConstructor
+public class DoctorAppointmentItem {
+    private Long id;
+    private Long patientId;
+    private String patientName;
+    private String patientPhone;
+    private LocalDate appointmentDate;
+    private LocalTime appointmentTime;
+    private String status;
+    private String notes;
+    private String paymentStatus;
+
+    // Dùng trong JPQL: SELECT new ...DoctorAppointmentItem(...)
+    public DoctorAppointmentItem(Long id, Long patientId, String patientName, String patientPhone,
+                                 LocalDate appointmentDate, LocalTime appointmentTime,
+                                 Appointment.AppointmentStatus status, String notes,
+                                 Appointment.PaymentStatus paymentStatus) {
+        this.id = id;
+        this.patientId = patientId;
+        this.patientName = patientName;
+        this.patientPhone = patientPhone;
+        this.appointmentDate = appointmentDate;
+        this.appointmentTime = appointmentTime;
+        this.status = status.name();
+        this.notes = notes;
+        this.paymentStatus = paymentStatus != null ? paymentStatus.name() : "PENDING";
+    }
+}
@@ -0,0 +1,18 @@
+package com.doctorbooking.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorAvailabilityResponse {
+    private Long doctorId;
+    private String doctorName;
+    private String specialization;
+    private Map<String, List<String>> availableSlots; // yyyy-MM-dd -> ["08:00", ...]
+}
@@ -0,0 +1,26 @@
+package com.doctorbooking.backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorScheduleResponse {
+    private Long doctorId;
+    private boolean customized; // false: đang dùng lịch mặc định
+    private LocalTime workStart;
+    private LocalTime workEnd;
+    private LocalTime breakStart;
+    private LocalTime breakEnd;
+    private Integer slotMinutes;
+    private Integer bufferTime;
+    private Set<DayOfWeek> weeklyDaysOff;
+    private Set<LocalDate> daysOff;
+}
@@ -0,0 +1,29 @@
+package com.doctorbooking.backend.event;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Phát ra khi đặt lịch thành công. Chứa sẵn toàn bộ dữ liệu cần cho email và thông báo,
+ * để phía xử lý sau commit không phải đọc lại entity.
+ */
+public record AppointmentBookedEvent(
+        Long appointmentId,
+        Long patientId,
+        String patientEmail,
+        String patientName,
+        String patientPhone,
+        String doctorName,
+        String doctorSpecialization,
+        String doctorPhone,
+        String doctorAddress,
+        LocalDate appointmentDate,
+        LocalTime appointmentTime,
+        String paymentMethod,
+        String paymentStatus,
+        String priceFormatted,
+        String notes,
+        String familyMemberName,
+        String familyMemberRelationship
+) {
+}
@@ -0,0 +1,23 @@
+package com.doctorbooking.backend.event;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Dữ liệu email nhắc hẹn (24h hoặc 1h trước giờ khám), lưu trong outbox
+ */
+public record AppointmentReminderEvent(
+        Long appointmentId,
+        String patientEmail,
+        String patientName,
+        String doctorName,
+        String doctorSpecialization,
+        String doctorPhone,
+        String doctorAddress,
+        LocalDate appointmentDate,
+        LocalTime appointmentTime,
+        int hoursBefore,
+        String familyMemberName,
+        String familyMemberRelationship
+) {
+}
@@ -10,10 +10,17 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
+// Chỗ khám được giữ qua bảng slot_claims (SlotClaim), nên một slot có thể có nhiều lịch cũ đã hủy/hoàn thành
+// idx_appointments_doctor_slot: lịch của một bác sĩ theo ngày/giờ (thay idx_appointments_doctor_date cũ),
+// dùng cho danh sách lịch hẹn phân trang keyset của bác sĩ
+// idx_appointments_reminder: index phủ cho việc nạp nhắc hẹn (AppointmentRepository.findUpcomingForReminders),
+// chỉ đọc các ngày sắp tới theo thứ tự (ngày, id) thay vì quét toàn bảng
 @Table(name = "appointments",
-        uniqueConstraints = @UniqueConstraint(
-                columnNames = {"doctor_id", "appointment_date", "appointment_time"}
-        ))
+        indexes = {
+                @Index(name = "idx_appointments_doctor_slot", columnList = "doctor_id, appointment_date, appointment_time"),
+                @Index(name = "idx_appointments_reminder",
+                        columnList = "appointment_date, id, status, reminder_24h_sent, reminder_1h_sent, appointment_time")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
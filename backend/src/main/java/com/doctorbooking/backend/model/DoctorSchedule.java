@@ -0,0 +1,75 @@
+package com.doctorbooking.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Lịch làm việc của bác sĩ: giờ làm, nghỉ trưa, độ dài slot và ngày nghỉ.
+ * Bác sĩ chưa có lịch riêng dùng lịch mặc định (08:00 - 17:30, nghỉ 12:00 - 13:00, slot 30 phút).
+ * Khoảng nghỉ giữa hai slot lấy từ Doctor.bufferTime (chỉ áp dụng khi bác sĩ có lịch riêng).
+ */
+@Entity
+@Table(name = "doctor_schedules")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorSchedule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne
+    @JoinColumn(name = "doctor_id", nullable = false, unique = true)
+    private Doctor doctor;
+
+    @Column(name = "work_start", nullable = false)
+    private LocalTime workStart = LocalTime.of(8, 0);
+
+    @Column(name = "work_end", nullable = false)
+    private LocalTime workEnd = LocalTime.of(17, 30);
+
+    @Column(name = "break_start")
+    private LocalTime breakStart = LocalTime.of(12, 0);
+
+    @Column(name = "break_end")
+    private LocalTime breakEnd = LocalTime.of(13, 0);
+
+    @Column(name = "slot_minutes", nullable = false)
+    private Integer slotMinutes = 30;
+
+    // Ngày nghỉ cố định trong tuần, vd: "SATURDAY,SUNDAY"
+    @Column(name = "weekly_days_off", length = 100)
+    private String weeklyDaysOff;
+
+    // Ngày nghỉ cụ thể (nghỉ phép, lễ...)
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "doctor_days_off", joinColumns = @JoinColumn(name = "schedule_id"))
+    @Column(name = "day_off", nullable = false)
+    private Set<LocalDate> daysOff = new HashSet<>();
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,72 @@
+package com.doctorbooking.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox: email cần gửi được ghi vào bảng này trong CÙNG transaction với thay đổi nghiệp vụ,
+ * sau đó OutboxDispatcher lấy theo lô (FOR UPDATE SKIP LOCKED) để gửi.
+ */
+@Entity
+@Table(name = "outbox_messages",
+        indexes = @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private MessageType type;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload; // JSON
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Hết hạn giữ khi đang PROCESSING: quá thời điểm này thì dispatcher khác được lấy lại (vd: instance bị crash)
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    public enum MessageType {
+        APPOINTMENT_CONFIRMATION_EMAIL,
+        APPOINTMENT_REMINDER_EMAIL
+    }
+
+    public enum Status {
+        PENDING, PROCESSING, DONE, FAILED
+    }
+}
@@ -0,0 +1,40 @@
+package com.doctorbooking.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Khóa tìm kiếm của bệnh nhân (do PatientSearchService sinh ra, không sửa tay):
+ * - Tiền tố của từng từ trong họ tên đã bỏ dấu ("nguyen" -> "n", "ng", ..., "nguyen")
+ * - "tel:" + số điện thoại chỉ gồm chữ số (+84 đổi thành 0)
+ *
+ * Unique key (term, patient_id) vừa chống trùng vừa là index để tìm theo term và phân trang theo patient_id.
+ * Khi bệnh nhân bị xóa thì database tự xóa theo.
+ */
+@Entity
+@Table(name = "patient_search_keys",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_patient_search_keys_term",
+                columnNames = {"term", "patient_id"}
+        ))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientSearchKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String term;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Patient patient;
+}
@@ -0,0 +1,30 @@
+package com.doctorbooking.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease của một instance backend đang chạy job nền. Mỗi instance gia hạn dòng của mình theo nhịp heartbeat;
+ * dòng quá expires_at coi như instance đã chết và phần việc của nó được chia lại cho các instance còn sống.
+ */
+@Entity
+@Table(name = "scheduler_nodes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerNode {
+
+    @Id
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+}
@@ -0,0 +1,50 @@
+package com.doctorbooking.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Giữ chỗ một slot khám (bác sĩ, ngày, giờ) cho đúng một lịch hẹn đang hiệu lực (PENDING/CONFIRMED).
+ * Unique key trên (doctor_id, slot_date, slot_time) đảm bảo hai người không thể đặt cùng một slot.
+ * Khi lịch hẹn bị hủy/hoàn thành thì bản ghi này được xóa; khi lịch hẹn bị xóa thì database tự xóa theo.
+ */
+@Entity
+@Table(name = "slot_claims",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_slot_claims_slot",
+                columnNames = {"doctor_id", "slot_date", "slot_time"}
+        ))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotClaim {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(name = "slot_time", nullable = false)
+    private LocalTime slotTime;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "appointment_id", nullable = false, unique = true)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Appointment appointment;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -13,7 +13,10 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        // Lọc danh sách tài khoản theo vai trò, phân trang theo id
+        @Index(name = "idx_users_role", columnList = "role, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
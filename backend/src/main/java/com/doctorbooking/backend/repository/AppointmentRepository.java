@@ -1,13 +1,17 @@
 package com.doctorbooking.backend.repository;
 
+import com.doctorbooking.backend.dto.response.DoctorAppointmentItem;
 import com.doctorbooking.backend.model.Appointment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,34 +45,131 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("SELECT a FROM Appointment a JOIN FETCH a.patient JOIN FETCH a.doctor WHERE a.doctor.id = :doctorId AND " +
            "a.appointmentDate = :date")
     List<Appointment> findByDoctorAndDate(@Param("doctorId") Long doctorId, @Param("date") LocalDate date);
+
+    /**
+     * Lịch hẹn của một bác sĩ, mới nhất trước, phân trang keyset theo (ngày, giờ, id) sau cursor
+     * (cursorDate = null: trang đầu). Lọc khoảng ngày / trạng thái tùy chọn (null = không lọc).
+     * Chạy trên index idx_appointments_doctor_slot nên chỉ đọc dữ liệu của bác sĩ đó.
+     */
+    @Query("SELECT new com.doctorbooking.backend.dto.response.DoctorAppointmentItem(" +
+           "a.id, p.id, p.fullName, p.phone, a.appointmentDate, a.appointmentTime, a.status, a.notes, a.paymentStatus) " +
+           "FROM Appointment a JOIN a.patient p " +
+           "WHERE a.doctor.id = :doctorId " +
+           "AND (:fromDate IS NULL OR a.appointmentDate >= :fromDate) " +
+           "AND (:toDate IS NULL OR a.appointmentDate <= :toDate) " +
+           "AND (:status IS NULL OR a.status = :status) " +
+           "AND (:cursorDate IS NULL OR a.appointmentDate < :cursorDate " +
+           "OR (a.appointmentDate = :cursorDate AND (a.appointmentTime < :cursorTime " +
+           "OR (a.appointmentTime = :cursorTime AND a.id < :cursorId)))) " +
+           "ORDER BY a.appointmentDate DESC, a.appointmentTime DESC, a.id DESC")
+    List<DoctorAppointmentItem> findDoctorAppointmentPage(
+        @Param("doctorId") Long doctorId,
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate,
+        @Param("status") Appointment.AppointmentStatus status,
+        @Param("cursorDate") LocalDate cursorDate,
+        @Param("cursorTime") LocalTime cursorTime,
+        @Param("cursorId") Long cursorId,
+        Pageable pageable
+    );
+
+    /**
+     * Danh sách lịch hẹn của admin (mới nhất trước), phân trang keyset theo (ngày, id) sau cursor
+     * (cursorDate = null: trang đầu), đi theo index idx_appointments_reminder (appointment_date, id, ...).
+     * Lọc theo một ngày tùy chọn.
+     */
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.patient p JOIN FETCH p.user JOIN FETCH a.doctor d JOIN FETCH d.user " +
+           "WHERE (:date IS NULL OR a.appointmentDate = :date) " +
+           "AND (:cursorDate IS NULL OR a.appointmentDate < :cursorDate " +
+           "OR (a.appointmentDate = :cursorDate AND a.id < :cursorId)) " +
+           "ORDER BY a.appointmentDate DESC, a.id DESC")
+    List<Appointment> findAdminAppointmentPage(
+        @Param("date") LocalDate date,
+        @Param("cursorDate") LocalDate cursorDate,
+        @Param("cursorId") Long cursorId,
+        Pageable pageable
+    );
+
+    /**
+     * Chỉ lấy giờ khám của các lịch còn hiệu lực (PENDING hoặc CONFIRMED), không load entity
+     */
+    @Query("SELECT a.appointmentTime FROM Appointment a WHERE a.doctor.id = :doctorId AND " +
+           "a.appointmentDate = :date AND a.status IN ('PENDING', 'CONFIRMED')")
+    List<LocalTime> findBookedTimes(@Param("doctorId") Long doctorId, @Param("date") LocalDate date);
+
+    /**
+     * Các lịch còn hiệu lực của nhiều bác sĩ trong khoảng ngày: [doctorId, appointmentDate, appointmentTime]
+     */
+    @Query("SELECT a.doctor.id, a.appointmentDate, a.appointmentTime FROM Appointment a " +
+           "WHERE a.doctor.id IN :doctorIds AND a.appointmentDate BETWEEN :fromDate AND :toDate " +
+           "AND a.status IN ('PENDING', 'CONFIRMED')")
+    List<Object[]> findBookedSlots(
+        @Param("doctorIds") java.util.Collection<Long> doctorIds,
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
     
     @Query("SELECT a FROM Appointment a JOIN FETCH a.patient JOIN FETCH a.doctor WHERE a.patient.id = :patientId ORDER BY a.appointmentDate DESC, a.appointmentTime DESC")
     List<Appointment> findByPatientIdOrderByDateDesc(@Param("patientId") Long patientId);
     
     /**
-     * Tìm các appointments sắp tới cần gửi nhắc hẹn
-     * Status: PENDING hoặc CONFIRMED
-     * Chưa gửi nhắc hẹn 24h
+     * Các appointment sắp tới còn nhắc hẹn chưa gửi, dùng để nạp timer wheel (ReminderScheduler).
+     * Chỉ lấy (id, ngày, giờ, reminder24hSent, reminder1hSent); phân trang keyset theo (ngày, id) sau
+     * (afterDate, afterId), trùng thứ tự của index phủ idx_appointments_reminder: mỗi trang đọc tiếp trên index
+     * đúng số dòng cần, không sort và không đọc dòng dữ liệu.
+     * Mỗi instance chỉ nạp phần của mình: id % partitions = partition.
      */
-    @Query("SELECT a FROM Appointment a JOIN FETCH a.patient p JOIN FETCH p.user JOIN FETCH a.doctor " +
-           "WHERE a.status IN ('PENDING', 'CONFIRMED') " +
-           "AND a.reminder24hSent = false " +
-           "AND a.appointmentDate = :targetDate")
-    List<Appointment> findAppointmentsFor24hReminder(@Param("targetDate") java.time.LocalDate targetDate);
-    
+    @Query("SELECT a.id, a.appointmentDate, a.appointmentTime, a.reminder24hSent, a.reminder1hSent " +
+           "FROM Appointment a " +
+           "WHERE a.appointmentDate BETWEEN :fromDate AND :toDate " +
+           "AND (a.appointmentDate > :afterDate OR (a.appointmentDate = :afterDate AND a.id > :afterId)) " +
+           "AND a.status IN ('PENDING', 'CONFIRMED') " +
+           "AND (a.reminder24hSent = false OR a.reminder1hSent = false) " +
+           "AND MOD(a.id, :partitions) = :partition " +
+           "ORDER BY a.appointmentDate, a.id")
+    List<Object[]> findUpcomingForReminders(
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate,
+        @Param("afterDate") LocalDate afterDate,
+        @Param("afterId") Long afterId,
+        @Param("partition") int partition,
+        @Param("partitions") int partitions,
+        Pageable pageable
+    );
+
+    /**
+     * Khóa (FOR UPDATE) các appointment còn hiệu lực chưa gửi nhắc hẹn 24h trong danh sách ids.
+     * Instance khác cùng gửi sẽ chờ tới khi commit rồi thấy cờ đã bật, nên không gửi trùng.
+     */
+    @Query(value = "SELECT id FROM appointments WHERE id IN (:ids) " +
+                   "AND status IN ('PENDING', 'CONFIRMED') AND reminder_24h_sent = false " +
+                   "FOR UPDATE", nativeQuery = true)
+    List<Long> lockUnsentReminder24h(@Param("ids") Collection<Long> ids);
+
     /**
-     * Tìm các appointments sắp tới cần gửi nhắc hẹn 1h
-     * Status: PENDING hoặc CONFIRMED
-     * Chưa gửi nhắc hẹn 1h
+     * Như lockUnsentReminder24h() cho nhắc hẹn 1h
      */
+    @Query(value = "SELECT id FROM appointments WHERE id IN (:ids) " +
+                   "AND status IN ('PENDING', 'CONFIRMED') AND reminder_1h_sent = false " +
+                   "FOR UPDATE", nativeQuery = true)
+    List<Long> lockUnsentReminder1h(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT a FROM Appointment a JOIN FETCH a.patient p JOIN FETCH p.user JOIN FETCH a.doctor " +
-           "WHERE a.status IN ('PENDING', 'CONFIRMED') " +
-           "AND a.reminder1hSent = false " +
-           "AND a.appointmentDate = :targetDate " +
-           "AND a.appointmentTime = :targetTime")
-    List<Appointment> findAppointmentsFor1hReminder(
-        @Param("targetDate") java.time.LocalDate targetDate,
-        @Param("targetTime") java.time.LocalTime targetTime
-    );
+           "WHERE a.id IN :ids ORDER BY a.id")
+    List<Appointment> findForReminder(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Đánh dấu đã gửi nhắc hẹn 24h cho cả lô bằng một câu UPDATE
+     */
+    @Modifying
+    @Query("UPDATE Appointment a SET a.reminder24hSent = true WHERE a.id IN :ids")
+    int markReminder24hSent(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Đánh dấu đã gửi nhắc hẹn 1h cho cả lô bằng một câu UPDATE
+     */
+    @Modifying
+    @Query("UPDATE Appointment a SET a.reminder1hSent = true WHERE a.id IN :ids")
+    int markReminder1hSent(@Param("ids") Collection<Long> ids);
 }
 
@@ -1,6 +1,7 @@
 package com.doctorbooking.backend.repository;
 
 import com.doctorbooking.backend.model.Doctor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,11 +15,38 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     Optional<Doctor> findByUserId(Long userId);
     List<Doctor> findByStatus(Doctor.DoctorStatus status);
     
+    /**
+     * Toàn bộ bác sĩ kèm user trong một query (nạp DoctorSearchIndex)
+     */
+    @Query("SELECT d FROM Doctor d JOIN FETCH d.user")
+    List<Doctor> findAllWithUser();
+
+    /**
+     * Tìm bằng LIKE trên database, chỉ dùng khi DoctorSearchIndex chưa nạp xong
+     */
     @Query("SELECT d FROM Doctor d WHERE " +
            "LOWER(d.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(d.specialization) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<Doctor> searchDoctors(@Param("keyword") String keyword);
 
+    /**
+     * Một trang bác sĩ theo id tăng dần (keyset id > afterId), keyword = null thì không lọc
+     */
+    @Query("SELECT d FROM Doctor d JOIN FETCH d.user WHERE d.id > :afterId AND (:keyword IS NULL OR " +
+           "LOWER(d.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+           "LOWER(d.specialization) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+           "ORDER BY d.id")
+    List<Doctor> findPage(@Param("keyword") String keyword, @Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Một trang bác sĩ đang hoạt động của chuyên khoa, id tăng dần (keyset id > afterId)
+     */
+    @Query("SELECT d FROM Doctor d WHERE d.status = 'ACTIVE' AND d.id > :afterId AND " +
+           "LOWER(d.specialization) LIKE LOWER(CONCAT('%', :specialization, '%')) " +
+           "ORDER BY d.id")
+    List<Doctor> findActiveBySpecialization(@Param("specialization") String specialization,
+                                            @Param("afterId") long afterId, Pageable pageable);
+
     @Query("SELECT DISTINCT d.specialization FROM Doctor d WHERE d.status = 'ACTIVE'")
     List<String> findDistinctSpecializations();
 }
@@ -0,0 +1,18 @@
+package com.doctorbooking.backend.repository;
+
+import com.doctorbooking.backend.model.DoctorSchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DoctorScheduleRepository extends JpaRepository<DoctorSchedule, Long> {
+    Optional<DoctorSchedule> findByDoctorId(Long doctorId);
+
+    List<DoctorSchedule> findByDoctorIdIn(Collection<Long> doctorIds);
+
+    void deleteByDoctorId(Long doctorId);
+}
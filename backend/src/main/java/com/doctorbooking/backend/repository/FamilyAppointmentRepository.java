@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,12 @@ public interface FamilyAppointmentRepository extends JpaRepository<FamilyAppoint
      */
     Optional<FamilyAppointment> findByAppointmentId(Long appointmentId);
 
+    /**
+     * Tìm family appointments (kèm family member) của nhiều appointment bằng một query
+     */
+    @Query("SELECT fa FROM FamilyAppointment fa JOIN FETCH fa.familyMember WHERE fa.appointment.id IN :appointmentIds")
+    List<FamilyAppointment> findWithMemberByAppointmentIdIn(@Param("appointmentIds") Collection<Long> appointmentIds);
+
     /**
      * Tìm tất cả family appointments của một patient (người đặt lịch)
      */
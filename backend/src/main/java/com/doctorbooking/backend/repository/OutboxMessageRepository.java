@@ -0,0 +1,62 @@
+package com.doctorbooking.backend.repository;
+
+import com.doctorbooking.backend.model.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Hạn gửi và lease lấy theo đồng hồ của database (CURRENT_TIMESTAMP), không theo đồng hồ từng app server:
+    // instance lệch giờ không lấy message trước hạn hay chiếm lại lô mà instance khác vẫn đang giữ.
+
+    /**
+     * Khóa một lô message đến hạn gửi (kể cả message PROCESSING đã hết hạn giữ).
+     * Message chưa gửi lần nào luôn đến hạn: next_attempt_at ban đầu là giờ tạo theo đồng hồ app server.
+     * SKIP LOCKED: các dispatcher chạy song song lấy các lô khác nhau, không chờ nhau.
+     */
+    @Query(value = "SELECT id FROM outbox_messages " +
+                   "WHERE (status = 'PENDING' AND (attempts = 0 OR next_attempt_at <= CURRENT_TIMESTAMP(3))) " +
+                   "OR (status = 'PROCESSING' AND locked_until < CURRENT_TIMESTAMP(3)) " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockDueBatch(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_messages SET status = 'PROCESSING', " +
+                   "locked_until = TIMESTAMPADD(MICROSECOND, :leaseMicros, CURRENT_TIMESTAMP(3)), " +
+                   "attempts = attempts + 1 WHERE id IN (:ids)",
+           nativeQuery = true)
+    int markProcessing(@Param("ids") Collection<Long> ids, @Param("leaseMicros") long leaseMicros);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'DONE', m.processedAt = :now, m.lockedUntil = null, " +
+           "m.lastError = null WHERE m.id IN :ids AND m.status = 'PROCESSING'")
+    int markDone(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_messages SET status = 'PENDING', " +
+                   "next_attempt_at = TIMESTAMPADD(MICROSECOND, :delayMicros, CURRENT_TIMESTAMP(3)), " +
+                   "locked_until = NULL, last_error = :error WHERE id = :id AND status = 'PROCESSING'",
+           nativeQuery = true)
+    int reschedule(@Param("id") Long id, @Param("delayMicros") long delayMicros, @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'FAILED', m.processedAt = :now, m.lockedUntil = null, " +
+           "m.lastError = :error WHERE m.id = :id AND m.status = 'PROCESSING'")
+    int markFailed(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("error") String error);
+
+    @Query("SELECT m.status, COUNT(m) FROM OutboxMessage m GROUP BY m.status")
+    List<Object[]> countByStatus();
+
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.status = 'DONE' AND m.processedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+}
@@ -1,11 +1,13 @@
 package com.doctorbooking.backend.repository;
 
 import com.doctorbooking.backend.model.Patient;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,9 +18,20 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     @Query("SELECT p FROM Patient p LEFT JOIN FETCH p.user u WHERE u.username = :username")
     Optional<Patient> findByUser_Username(@Param("username") String username);
     
-    @Query("SELECT p FROM Patient p WHERE " +
-           "LOWER(p.fullName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "CAST(p.id AS string) LIKE CONCAT('%', :keyword, '%')")
-    List<Patient> searchPatients(@Param("keyword") String keyword);
+    /**
+     * Một trang bệnh nhân theo id tăng dần (keyset id > afterId)
+     */
+    @Query("SELECT p FROM Patient p JOIN FETCH p.user WHERE p.id > :afterId ORDER BY p.id")
+    List<Patient> findPage(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Patient p JOIN FETCH p.user WHERE p.id IN :ids")
+    List<Patient> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Bệnh nhân chưa có khóa tìm kiếm (dữ liệu có từ trước khi có patient_search_keys)
+     */
+    @Query("SELECT p FROM Patient p WHERE p.id > :afterId AND NOT EXISTS " +
+           "(SELECT 1 FROM PatientSearchKey k WHERE k.patient = p) ORDER BY p.id")
+    List<Patient> findWithoutSearchKeys(@Param("afterId") long afterId, Pageable pageable);
 }
 
@@ -0,0 +1,29 @@
+package com.doctorbooking.backend.repository;
+
+import com.doctorbooking.backend.model.PatientSearchKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PatientSearchKeyRepository extends JpaRepository<PatientSearchKey, Long> {
+
+    @Query("SELECT k.term FROM PatientSearchKey k WHERE k.patient.id = :patientId")
+    List<String> findTerms(@Param("patientId") Long patientId);
+
+    @Modifying
+    @Query("DELETE FROM PatientSearchKey k WHERE k.patient.id = :patientId AND k.term IN :terms")
+    int deleteTerms(@Param("patientId") Long patientId, @Param("terms") Collection<String> terms);
+
+    /**
+     * Id bệnh nhân có đúng term (tìm theo số điện thoại)
+     */
+    @Query("SELECT k.patient.id FROM PatientSearchKey k WHERE k.term = :term ORDER BY k.patient.id")
+    List<Long> findPatientIds(@Param("term") String term, Pageable pageable);
+}
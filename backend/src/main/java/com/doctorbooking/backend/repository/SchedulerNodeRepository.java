@@ -0,0 +1,46 @@
+package com.doctorbooking.backend.repository;
+
+import com.doctorbooking.backend.model.SchedulerNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SchedulerNodeRepository extends JpaRepository<SchedulerNode, String> {
+
+    // Mọi mốc thời gian lease lấy theo đồng hồ của database (CURRENT_TIMESTAMP), không theo đồng hồ từng app server:
+    // các instance lệch giờ nhau vẫn thấy cùng một danh sách instance còn sống.
+
+    @Modifying
+    @Query(value = "UPDATE scheduler_nodes " +
+                   "SET expires_at = TIMESTAMPADD(MICROSECOND, :leaseMicros, CURRENT_TIMESTAMP(3)) " +
+                   "WHERE node_id = :nodeId",
+           nativeQuery = true)
+    int renewLease(@Param("nodeId") String nodeId, @Param("leaseMicros") long leaseMicros);
+
+    @Modifying
+    @Query(value = "INSERT INTO scheduler_nodes (node_id, expires_at, started_at) " +
+                   "VALUES (:nodeId, TIMESTAMPADD(MICROSECOND, :leaseMicros, CURRENT_TIMESTAMP(3)), CURRENT_TIMESTAMP(3))",
+           nativeQuery = true)
+    int join(@Param("nodeId") String nodeId, @Param("leaseMicros") long leaseMicros);
+
+    /**
+     * Các instance còn lease, sắp theo nodeId để mọi instance tính ra cùng một cách chia phần việc
+     */
+    @Query(value = "SELECT node_id FROM scheduler_nodes WHERE expires_at > CURRENT_TIMESTAMP(3) ORDER BY node_id",
+           nativeQuery = true)
+    List<String> findLiveNodeIds();
+
+    /**
+     * Xóa lease đã hết hạn quá graceMicros
+     */
+    @Modifying
+    @Query(value = "DELETE FROM scheduler_nodes " +
+                   "WHERE expires_at < TIMESTAMPADD(MICROSECOND, -:graceMicros, CURRENT_TIMESTAMP(3))",
+           nativeQuery = true)
+    int deleteExpired(@Param("graceMicros") long graceMicros);
+}
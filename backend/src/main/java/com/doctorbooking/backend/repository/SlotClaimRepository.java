@@ -0,0 +1,35 @@
+package com.doctorbooking.backend.repository;
+
+import com.doctorbooking.backend.model.SlotClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Repository
+public interface SlotClaimRepository extends JpaRepository<SlotClaim, Long> {
+
+    /**
+     * Giữ slot. Slot đã bị giữ thì unique key uk_slot_claims_slot (doctor_id, slot_date, slot_time) báo trùng:
+     * DataIntegrityViolationException với cause là ConstraintViolationException (UNIQUE) của Hibernate.
+     * Hai transaction cùng chèn một slot: transaction sau chờ transaction trước commit/rollback rồi mới có kết quả.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO slot_claims (doctor_id, slot_date, slot_time, appointment_id, created_at) " +
+                   "VALUES (:doctorId, :slotDate, :slotTime, :appointmentId, CURRENT_TIMESTAMP)",
+           nativeQuery = true)
+    int insert(
+        @Param("doctorId") Long doctorId,
+        @Param("slotDate") LocalDate slotDate,
+        @Param("slotTime") LocalTime slotTime,
+        @Param("appointmentId") Long appointmentId
+    );
+
+    @Modifying
+    @Query("DELETE FROM SlotClaim c WHERE c.appointment.id = :appointmentId")
+    int deleteByAppointmentId(@Param("appointmentId") Long appointmentId);
+}
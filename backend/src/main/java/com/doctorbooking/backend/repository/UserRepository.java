@@ -1,9 +1,14 @@
 package com.doctorbooking.backend.repository;
 
+import com.doctorbooking.backend.dto.response.UserResponse;
 import com.doctorbooking.backend.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,5 +17,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    /**
+     * Một trang tài khoản (id tăng dần, keyset id > afterId) có username hoặc email bắt đầu bằng prefix.
+     * prefix là mẫu LIKE đã escape bằng '!' và kết thúc bằng '%', nên dùng được unique index của username / email
+     * (collation mặc định của MySQL không phân biệt hoa thường). Tham số null thì không lọc theo điều kiện đó.
+     */
+    @Query("SELECT new com.doctorbooking.backend.dto.response.UserResponse(u.id, u.username, u.email, u.role, u.enabled, " +
+           "u.createdAt, u.updatedAt) " +
+           "FROM User u WHERE u.id > :afterId " +
+           "AND (:prefix IS NULL OR u.username LIKE :prefix ESCAPE '!' OR u.email LIKE :prefix ESCAPE '!') " +
+           "AND (:role IS NULL OR u.role = :role) " +
+           "AND (:enabled IS NULL OR u.enabled = :enabled) " +
+           "ORDER BY u.id")
+    List<UserResponse> searchPage(@Param("prefix") String prefix, @Param("role") User.Role role,
+                                  @Param("enabled") Boolean enabled, @Param("afterId") long afterId,
+                                  Pageable pageable);
 }
 
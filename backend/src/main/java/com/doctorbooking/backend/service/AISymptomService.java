@@ -1,7 +1,6 @@
 package com.doctorbooking.backend.service;
 
 import com.doctorbooking.backend.dto.response.SymptomCheckResponse;
-import com.doctorbooking.backend.repository.DoctorRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -25,7 +24,7 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class AISymptomService {
 
-    private final DoctorRepository doctorRepository;
+    private final DoctorDirectory doctorDirectory;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private static final Logger logger = LoggerFactory.getLogger(AISymptomService.class);
     private static final int MAX_RETRIES = 2;
@@ -40,8 +39,8 @@ public class AISymptomService {
         logger.info("--- Nhận input từ người dùng: '{}' ---", userInput);
 
         try {
-            // 1. Lấy danh sách chuyên khoa hiện có
-            List<String> availableSpecializations = doctorRepository.findDistinctSpecializations();
+            // 1. Lấy danh sách chuyên khoa hiện có (từ danh bạ bác sĩ trong bộ nhớ)
+            List<String> availableSpecializations = doctorDirectory.current().specializations();
             String specializationsStr = String.join(", ", availableSpecializations);
             logger.debug("Khoa hiện có: {}", specializationsStr);
 
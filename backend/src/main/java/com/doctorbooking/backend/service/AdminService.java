@@ -2,6 +2,7 @@ package com.doctorbooking.backend.service;
 
 import com.doctorbooking.backend.dto.request.AdminUpdatePatientRequest;
 import com.doctorbooking.backend.dto.request.DoctorRequest;
+import com.doctorbooking.backend.dto.request.DoctorScheduleRequest;
 import com.doctorbooking.backend.dto.request.PatientRequest;
 import com.doctorbooking.backend.dto.response.*;
 import com.doctorbooking.backend.model.Patient;
@@ -13,6 +14,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -23,10 +25,16 @@ public class AdminService {
     private final DoctorService doctorService;
     private final PatientService patientService;
     private final AppointmentService appointmentService;
+    private final AppointmentQueryService appointmentQueryService;
     private final FeedbackService feedbackService;
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final CurrentUserService currentUserService;
+    private final ScheduleTemplateService scheduleTemplateService;
+    private final PatientSearchService patientSearchService;
 
     // Doctor Management
     public List<DoctorResponse> getAllDoctors() {
@@ -40,6 +48,14 @@ public class AdminService {
         return doctorService.searchDoctors(keyword);
     }
 
+    public CursorPage<DoctorResponse> getDoctorPage(String keyword, String cursor, Integer limit) {
+        return doctorService.getDoctorPage(keyword, cursor, limit);
+    }
+
+    public long exportDoctors(OutputStream out) {
+        return doctorService.exportDoctors(out);
+    }
+
     public DoctorResponse getDoctorById(Long id) {
         return doctorService.getDoctorById(id);
     }
@@ -56,11 +72,27 @@ public class AdminService {
         doctorService.deleteDoctor(id);
     }
 
+    public DoctorScheduleResponse getDoctorSchedule(Long id) {
+        return scheduleTemplateService.getSchedule(id);
+    }
+
+    public DoctorScheduleResponse updateDoctorSchedule(Long id, DoctorScheduleRequest request) {
+        return scheduleTemplateService.updateSchedule(id, request);
+    }
+
     // Patient Management
     public List<PatientResponse> searchPatients(String keyword) {
         return patientService.searchPatients(keyword);
     }
 
+    public CursorPage<PatientResponse> getPatientPage(String keyword, String cursor, Integer limit) {
+        return patientService.getPatientPage(keyword, cursor, limit);
+    }
+
+    public long exportPatients(OutputStream out) {
+        return patientService.exportPatients(out);
+    }
+
     public PatientResponse getPatientById(Long id) {
         return patientService.getPatientById(id);
     }
@@ -95,6 +127,7 @@ public class AdminService {
         patient.setEmergencyContact(request.getEmergencyContact());
         patient.setEmergencyPhone(request.getEmergencyPhone());
         Patient savedPatient = patientRepository.save(patient);
+        patientSearchService.index(savedPatient);
 
         return patientService.getPatientById(savedPatient.getId());
     }
@@ -112,6 +145,7 @@ public class AdminService {
             }
             user.setEmail(request.getEmail());
             userRepository.save(user);
+            principalCache.evictUser(user.getId());
         }
 
         // Update Patient info
@@ -123,6 +157,7 @@ public class AdminService {
         patient.setEmergencyContact(request.getEmergencyContact());
         patient.setEmergencyPhone(request.getEmergencyPhone());
         Patient updatedPatient = patientRepository.save(patient);
+        patientSearchService.index(updatedPatient);
 
         return patientService.getPatientById(updatedPatient.getId());
     }
@@ -134,6 +169,9 @@ public class AdminService {
         User user = patient.getUser();
         patientRepository.delete(patient);
         userRepository.delete(user);
+        principalCache.evictUser(user.getId());
+        tokenVersionRegistry.bump(user.getId());
+        currentUserService.evict(user.getId());
     }
 
     // Appointment Management
@@ -144,6 +182,14 @@ public class AdminService {
         return appointmentService.getAllAppointments();
     }
 
+    public CursorPage<AppointmentResponse> getAppointmentPage(LocalDate date, String cursor, Integer limit) {
+        return appointmentQueryService.getAdminAppointmentPage(date, cursor, limit);
+    }
+
+    public long exportAppointments(LocalDate date, OutputStream out) {
+        return appointmentQueryService.exportAppointments(date, out);
+    }
+
     public AppointmentResponse getAppointmentById(Long id) {
         return appointmentService.getAppointmentById(id);
     }
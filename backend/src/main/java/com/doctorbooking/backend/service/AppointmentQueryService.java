@@ -0,0 +1,113 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.AppointmentResponse;
+import com.doctorbooking.backend.dto.response.CursorPage;
+import com.doctorbooking.backend.dto.response.DoctorAppointmentItem;
+import com.doctorbooking.backend.model.Appointment;
+import com.doctorbooking.backend.repository.AppointmentRepository;
+import com.doctorbooking.backend.util.KeysetCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Danh sách lịch hẹn (chỉ đọc), lọc và phân trang ngay trong database theo người xem
+ * thay vì load toàn bộ appointments rồi lọc trong Java.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentQueryService {
+
+    private static final String EXPORT_QUERY =
+            "SELECT a FROM Appointment a JOIN FETCH a.patient p JOIN FETCH p.user JOIN FETCH a.doctor d JOIN FETCH d.user " +
+            "WHERE (:date IS NULL OR a.appointmentDate = :date) ORDER BY a.id";
+
+    private final AppointmentRepository appointmentRepository;
+    private final NdjsonExporter ndjsonExporter;
+
+    /**
+     * Toàn bộ lịch hẹn của một bác sĩ (hoặc của một ngày), giữ định dạng AppointmentResponse cũ
+     */
+    public List<AppointmentResponse> getDoctorAppointments(Long doctorId, LocalDate date) {
+        List<Appointment> appointments = date != null
+                ? appointmentRepository.findByDoctorAndDate(doctorId, date)
+                : appointmentRepository.findByDoctorId(doctorId);
+        return appointments.stream()
+                .map(AppointmentResponse::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Một trang lịch hẹn của bác sĩ (mới nhất trước). cursor = nextCursor của trang trước, null cho trang đầu.
+     */
+    public CursorPage<DoctorAppointmentItem> getDoctorAppointmentPage(Long doctorId, LocalDate from, LocalDate to,
+                                                                     String status, String cursor, Integer limit) {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        Appointment.AppointmentStatus statusFilter = status != null && !status.isBlank()
+                ? Appointment.AppointmentStatus.valueOf(status.trim().toUpperCase())
+                : null;
+        int size = CursorPage.pageSize(limit);
+
+        LocalDate cursorDate = null;
+        LocalTime cursorTime = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] values = KeysetCursor.decode(cursor, 3);
+            try {
+                cursorDate = LocalDate.parse(values[0]);
+                cursorTime = LocalTime.parse(values[1]);
+                cursorId = Long.parseLong(values[2]);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+
+        // Lấy thêm một dòng để biết còn trang sau hay không
+        List<DoctorAppointmentItem> rows = appointmentRepository.findDoctorAppointmentPage(
+                doctorId, from, to, statusFilter, cursorDate, cursorTime, cursorId, PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size,
+                last -> KeysetCursor.encode(last.getAppointmentDate(), last.getAppointmentTime(), last.getId()));
+    }
+
+    /**
+     * Danh sách lịch hẹn của admin theo trang (mới nhất trước), lọc theo ngày tùy chọn
+     */
+    public CursorPage<AppointmentResponse> getAdminAppointmentPage(LocalDate date, String cursor, Integer limit) {
+        int size = CursorPage.pageSize(limit);
+        LocalDate cursorDate = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] values = KeysetCursor.decode(cursor, 2);
+            try {
+                cursorDate = LocalDate.parse(values[0]);
+                cursorId = Long.parseLong(values[1]);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+        List<AppointmentResponse> rows = appointmentRepository.findAdminAppointmentPage(
+                        date, cursorDate, cursorId, PageRequest.of(0, size + 1)).stream()
+                .map(AppointmentResponse::fromEntity)
+                .collect(Collectors.toList());
+        return CursorPage.of(rows, size, last -> KeysetCursor.encode(last.getAppointmentDate(), last.getId()));
+    }
+
+    /**
+     * Xuất toàn bộ lịch hẹn (hoặc của một ngày) dạng NDJSON, đọc theo luồng
+     */
+    public long exportAppointments(LocalDate date, OutputStream out) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("date", date);
+        return ndjsonExporter.export(out, EXPORT_QUERY, Appointment.class, params, AppointmentResponse::fromEntity);
+    }
+}
@@ -1,146 +1,178 @@
 package com.doctorbooking.backend.service;
 
+import com.doctorbooking.backend.event.AppointmentReminderEvent;
 import com.doctorbooking.backend.model.Appointment;
 import com.doctorbooking.backend.model.FamilyAppointment;
+import com.doctorbooking.backend.model.Notification;
+import com.doctorbooking.backend.model.OutboxMessage;
 import com.doctorbooking.backend.repository.AppointmentRepository;
 import com.doctorbooking.backend.repository.FamilyAppointmentRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gửi nhắc hẹn 24h / 1h theo lô. Thời điểm gửi do ReminderScheduler (timer wheel) quyết định;
+ * mỗi lô timer đến hạn là một transaction ngắn.
+ */
 @Service
 @RequiredArgsConstructor
 public class AppointmentReminderService {
 
     private static final Logger logger = LoggerFactory.getLogger(AppointmentReminderService.class);
 
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    // Cho phép lệch nhỏ giữa lúc timer chạy và mốc nhắc tính lại từ database
+    private static final long DUE_TOLERANCE_MS = 5_000;
+
     private final AppointmentRepository appointmentRepository;
     private final FamilyAppointmentRepository familyAppointmentRepository;
-    private final EmailService emailService;
+    private final OutboxService outboxService;
     private final NotificationService notificationService;
+    private final PlatformTransactionManager transactionManager;
 
-    /**
-     * Chạy mỗi 30 phút để kiểm tra và gửi nhắc hẹn 24 giờ
-     */
-    @Scheduled(fixedRate = 1800000) // 30 phút = 1800000 milliseconds
-    @Transactional
-    public void send24HourReminders() {
-        try {
-            LocalDate tomorrow = LocalDate.now().plusDays(1);
-            List<Appointment> appointments = appointmentRepository.findAppointmentsFor24hReminder(tomorrow);
+    private final ReminderStats stats24h = new ReminderStats();
+    private final ReminderStats stats1h = new ReminderStats();
 
-            if (appointments.isEmpty()) {
-                logger.debug("No appointments found for 24h reminder on {}", tomorrow);
-                return;
-            }
+    private TransactionTemplate tx;
 
-            logger.info("Found {} appointments for 24h reminder on {}", appointments.size(), tomorrow);
-
-            for (Appointment appointment : appointments) {
-                try {
-                    sendReminderEmail(appointment, 24);
-                    // Đánh dấu đã gửi nhắc hẹn 24h
-                    appointment.setReminder24hSent(true);
-                    appointmentRepository.save(appointment);
-                    logger.info("✅ 24h reminder sent for appointment ID: {}", appointment.getId());
-                } catch (Exception e) {
-                    logger.error("❌ Error sending 24h reminder for appointment ID: {}", appointment.getId(), e);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("❌ Error in send24HourReminders scheduled task", e);
-        }
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("reminder24h", stats24h.snapshot());
+        snapshot.put("reminder1h", stats1h.snapshot());
+        return snapshot;
     }
 
     /**
-     * Chạy mỗi 15 phút để kiểm tra và gửi nhắc hẹn 1 giờ
+     * Gửi nhắc hẹn cho các appointment mà timer vừa đến hạn (gọi từ ReminderScheduler), trong một transaction:
+     * khóa các dòng chưa gửi, ghi email vào outbox (OutboxDispatcher gửi bất đồng bộ), lưu thông báo,
+     * rồi đánh dấu reminder24hSent / reminder1hSent cho cả lô bằng một câu UPDATE.
+     * Appointment đã gửi, đã hủy hoặc đã đổi sang giờ khác (timer mới sẽ chạy) được bỏ qua.
      */
-    @Scheduled(fixedRate = 900000) // 15 phút = 900000 milliseconds
-    @Transactional
-    public void send1HourReminders() {
+    public void sendDueReminders(int hoursBefore, List<Long> appointmentIds) {
+        ReminderStats stats = hoursBefore == 24 ? stats24h : stats1h;
+        long start = System.nanoTime();
+        BatchResult result;
         try {
-            LocalDateTime now = LocalDateTime.now();
-            LocalDate today = now.toLocalDate();
-            LocalTime oneHourLater = now.plusHours(1).toLocalTime();
-            
-            // Làm tròn xuống giờ gần nhất (ví dụ: 14:35 -> 14:00, 14:45 -> 14:00)
-            LocalTime targetTime = LocalTime.of(oneHourLater.getHour(), 0);
-
-            List<Appointment> appointments = appointmentRepository.findAppointmentsFor1hReminder(today, targetTime);
-
-            if (appointments.isEmpty()) {
-                logger.debug("No appointments found for 1h reminder at {} on {}", targetTime, today);
-                return;
+            result = tx.execute(status -> processBatch(hoursBefore, appointmentIds));
+        } catch (RuntimeException e) {
+            stats.failed.add(appointmentIds.size());
+            throw e;
+        }
+        if (result != null) {
+            stats.recordBatch(result, System.nanoTime() - start);
+            if (result.sent > 0) {
+                logger.info("✅ {}h reminders queued for {} appointment(s)", hoursBefore, result.sent);
             }
+        }
+    }
+
+    private BatchResult processBatch(int hoursBefore, List<Long> appointmentIds) {
+        List<Long> unsent = hoursBefore == 24
+                ? appointmentRepository.lockUnsentReminder24h(appointmentIds)
+                : appointmentRepository.lockUnsentReminder1h(appointmentIds);
+        int skipped = appointmentIds.size() - unsent.size();
+        if (unsent.isEmpty()) {
+            return new BatchResult(appointmentIds.size(), 0, skipped, 0);
+        }
+        List<Appointment> appointments = appointmentRepository.findForReminder(unsent);
+
+        Map<Long, FamilyAppointment> familyByAppointment = new HashMap<>();
+        for (FamilyAppointment familyAppointment : familyAppointmentRepository.findWithMemberByAppointmentIdIn(unsent)) {
+            familyByAppointment.put(familyAppointment.getAppointment().getId(), familyAppointment);
+        }
 
-            logger.info("Found {} appointments for 1h reminder at {} on {}", appointments.size(), targetTime, today);
-
-            for (Appointment appointment : appointments) {
-                try {
-                    // Kiểm tra xem thời gian hiện tại có gần với thời gian hẹn không (trong khoảng 1h ± 15 phút)
-                    LocalDateTime appointmentDateTime = LocalDateTime.of(
-                        appointment.getAppointmentDate(),
-                        appointment.getAppointmentTime()
-                    );
-                    long minutesUntilAppointment = java.time.Duration.between(now, appointmentDateTime).toMinutes();
-                    
-                    // Chỉ gửi nếu còn từ 45 đến 75 phút (1 giờ ± 15 phút)
-                    if (minutesUntilAppointment >= 45 && minutesUntilAppointment <= 75) {
-                        sendReminderEmail(appointment, 1);
-                        // Đánh dấu đã gửi nhắc hẹn 1h
-                        appointment.setReminder1hSent(true);
-                        appointmentRepository.save(appointment);
-                        logger.info("✅ 1h reminder sent for appointment ID: {}", appointment.getId());
-                    } else {
-                        logger.debug("Skipping appointment ID: {} - time difference: {} minutes (not in 45-75 range)", 
-                                   appointment.getId(), minutesUntilAppointment);
-                    }
-                } catch (Exception e) {
-                    logger.error("❌ Error sending 1h reminder for appointment ID: {}", appointment.getId(), e);
+        long now = System.currentTimeMillis();
+        List<Long> handled = new ArrayList<>();
+        List<AppointmentReminderEvent> emails = new ArrayList<>();
+        List<Notification> notifications = new ArrayList<>();
+        int failed = 0;
+        for (Appointment appointment : appointments) {
+            if (!isDue(appointment, hoursBefore, now)) {
+                skipped++;
+                logger.debug("Skipping appointment ID: {} - {}h reminder is not due", appointment.getId(), hoursBefore);
+                continue;
+            }
+            try {
+                AppointmentReminderEvent event = buildReminder(appointment, hoursBefore, familyByAppointment.get(appointment.getId()));
+                if (event.patientEmail() != null && !event.patientEmail().trim().isEmpty()) {
+                    emails.add(event);
+                } else {
+                    logger.warn("⚠️ Patient email is null or empty for appointment ID: {}", appointment.getId());
                 }
+                notifications.add(buildNotification(appointment, event));
+                handled.add(appointment.getId());
+            } catch (Exception e) {
+                failed++;
+                logger.error("❌ Error preparing {}h reminder for appointment ID: {}", hoursBefore, appointment.getId(), e);
             }
-        } catch (Exception e) {
-            logger.error("❌ Error in send1HourReminders scheduled task", e);
         }
+
+        if (!handled.isEmpty()) {
+            // Email và cờ reminderSent nằm cùng transaction: commit thì chắc chắn email sẽ được gửi
+            outboxService.enqueueAll(OutboxMessage.MessageType.APPOINTMENT_REMINDER_EMAIL, emails);
+            notificationService.createNotifications(notifications);
+            if (hoursBefore == 24) {
+                appointmentRepository.markReminder24hSent(handled);
+            } else {
+                appointmentRepository.markReminder1hSent(handled);
+            }
+        }
+        return new BatchResult(appointmentIds.size(), handled.size(), skipped, failed);
     }
 
     /**
-     * Gửi email nhắc hẹn cho appointment
+     * Nhắc hẹn còn đúng hạn: giờ khám chưa qua, mốc nhắc đã tới (timer không chạy sớm) và
+     * nhắc 24h không còn ý nghĩa khi đã tới mốc 1h.
      */
-    private void sendReminderEmail(Appointment appointment, int hoursBefore) {
-        try {
-            String patientEmail = appointment.getPatient().getUser().getEmail();
-            if (patientEmail == null || patientEmail.trim().isEmpty()) {
-                logger.warn("⚠️ Patient email is null or empty for appointment ID: {}", appointment.getId());
-                return;
-            }
+    private static boolean isDue(Appointment appointment, int hoursBefore, long now) {
+        LocalDate date = appointment.getAppointmentDate();
+        LocalTime time = appointment.getAppointmentTime();
+        if (ReminderScheduler.dueAt(date, time, 0) <= now) {
+            return false;
+        }
+        if (ReminderScheduler.dueAt(date, time, hoursBefore) > now + DUE_TOLERANCE_MS) {
+            // Giờ khám đã bị dời về sau: timer mới của giờ khám mới sẽ gửi
+            return false;
+        }
+        return hoursBefore != 24 || ReminderScheduler.dueAt(date, time, 1) > now;
+    }
 
-            // Lấy thông tin family member nếu đặt cho người nhà
-            String familyMemberName = null;
-            String familyMemberRelationship = null;
-            
-            FamilyAppointment familyAppointment = familyAppointmentRepository
-                .findByAppointmentId(appointment.getId())
-                .orElse(null);
-            
-            if (familyAppointment != null && familyAppointment.getFamilyMember() != null) {
-                familyMemberName = familyAppointment.getFamilyMember().getFullName();
-                if (familyAppointment.getFamilyMember().getRelationship() != null) {
-                    familyMemberRelationship = familyAppointment.getFamilyMember().getRelationship().name();
-                }
+    private static AppointmentReminderEvent buildReminder(Appointment appointment, int hoursBefore, FamilyAppointment familyAppointment) {
+        // Lấy thông tin family member nếu đặt cho người nhà
+        String familyMemberName = null;
+        String familyMemberRelationship = null;
+        if (familyAppointment != null && familyAppointment.getFamilyMember() != null) {
+            familyMemberName = familyAppointment.getFamilyMember().getFullName();
+            if (familyAppointment.getFamilyMember().getRelationship() != null) {
+                familyMemberRelationship = familyAppointment.getFamilyMember().getRelationship().name();
             }
+        }
 
-            // Gửi email nhắc hẹn
-            emailService.sendAppointmentReminderEmail(
-                patientEmail,
+        return new AppointmentReminderEvent(
+                appointment.getId(),
+                appointment.getPatient().getUser().getEmail(),
                 appointment.getPatient().getFullName(),
                 appointment.getDoctor().getFullName(),
                 appointment.getDoctor().getSpecialization(),
@@ -148,61 +180,74 @@ public class AppointmentReminderService {
                 appointment.getDoctor().getAddress() != null ? appointment.getDoctor().getAddress() : "",
                 appointment.getAppointmentDate(),
                 appointment.getAppointmentTime(),
-                String.valueOf(appointment.getId()),
                 hoursBefore,
                 familyMemberName,
                 familyMemberRelationship
-            );
+        );
+    }
 
-            logger.info("📧 Reminder email ({}h before) sent to: {} for appointment ID: {}", 
-                       hoursBefore, patientEmail, appointment.getId());
-            
-            // Tạo thông báo trong hệ thống (ngoài email)
-            try {
-                String notificationTitle = String.format("Nhắc hẹn: Lịch khám còn %d giờ nữa", hoursBefore);
-                String notificationMessage;
-                
-                if (familyMemberName != null && !familyMemberName.trim().isEmpty()) {
-                    notificationMessage = String.format(
-                        "Lịch khám của %s với Bác sĩ %s sẽ diễn ra sau %d giờ nữa (%s lúc %s). Vui lòng có mặt trước 15 phút.",
-                        familyMemberName,
-                        appointment.getDoctor().getFullName(),
-                        hoursBefore,
-                        appointment.getAppointmentDate().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                        appointment.getAppointmentTime().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm"))
-                    );
-                } else {
-                    notificationMessage = String.format(
-                        "Lịch khám của bạn với Bác sĩ %s sẽ diễn ra sau %d giờ nữa (%s lúc %s). Vui lòng có mặt trước 15 phút.",
-                        appointment.getDoctor().getFullName(),
-                        hoursBefore,
-                        appointment.getAppointmentDate().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                        appointment.getAppointmentTime().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm"))
-                    );
-                }
-                
-                com.doctorbooking.backend.model.Notification.NotificationType notificationType = 
-                    hoursBefore == 24 
-                        ? com.doctorbooking.backend.model.Notification.NotificationType.APPOINTMENT_REMINDER_24H
-                        : com.doctorbooking.backend.model.Notification.NotificationType.APPOINTMENT_REMINDER_1H;
-                
-                notificationService.createNotification(
-                    appointment.getPatient().getId(),
-                    notificationTitle,
-                    notificationMessage,
-                    notificationType,
-                    appointment.getId()
-                );
-                logger.info("✅ Notification created for reminder ({}h before) - Appointment ID: {}", hoursBefore, appointment.getId());
-            } catch (Exception e) {
-                logger.error("❌ Error creating notification for reminder - Appointment ID: {}", appointment.getId(), e);
-                // Không throw để không làm gián đoạn quá trình gửi email
-            }
-            
-        } catch (Exception e) {
-            logger.error("❌ Error sending reminder email for appointment ID: {}", appointment.getId(), e);
-            throw e; // Re-throw để transaction có thể rollback nếu cần
+    /**
+     * Thông báo trong hệ thống (ngoài email)
+     */
+    private static Notification buildNotification(Appointment appointment, AppointmentReminderEvent event) {
+        String who = event.familyMemberName() != null && !event.familyMemberName().trim().isEmpty()
+                ? event.familyMemberName()
+                : "bạn";
+
+        Notification notification = new Notification();
+        notification.setPatient(appointment.getPatient());
+        notification.setTitle(String.format("Nhắc hẹn: Lịch khám còn %d giờ nữa", event.hoursBefore()));
+        notification.setMessage(String.format(
+                "Lịch khám của %s với Bác sĩ %s sẽ diễn ra sau %d giờ nữa (%s lúc %s). Vui lòng có mặt trước 15 phút.",
+                who,
+                event.doctorName(),
+                event.hoursBefore(),
+                event.appointmentDate().format(DATE_FORMAT),
+                event.appointmentTime().format(TIME_FORMAT)
+        ));
+        notification.setType(event.hoursBefore() == 24
+                ? Notification.NotificationType.APPOINTMENT_REMINDER_24H
+                : Notification.NotificationType.APPOINTMENT_REMINDER_1H);
+        notification.setAppointmentId(appointment.getId());
+        return notification;
+    }
+
+    private record BatchResult(int candidates, int sent, int skipped, int failed) {
+    }
+
+    private static final class ReminderStats {
+        final LongAdder batches = new LongAdder();
+        final LongAdder candidates = new LongAdder();
+        final LongAdder sent = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder batchNanos = new LongAdder();
+        final AtomicLong lastBatchNanos = new AtomicLong();
+        final AtomicLong maxBatchNanos = new AtomicLong();
+
+        void recordBatch(BatchResult result, long nanos) {
+            batches.increment();
+            candidates.add(result.candidates);
+            sent.add(result.sent);
+            skipped.add(result.skipped);
+            failed.add(result.failed);
+            batchNanos.add(nanos);
+            lastBatchNanos.set(nanos);
+            maxBatchNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            long batchCount = batches.sum();
+            snapshot.put("batches", batchCount);
+            snapshot.put("candidates", candidates.sum());
+            snapshot.put("sent", sent.sum());
+            snapshot.put("skipped", skipped.sum());
+            snapshot.put("failed", failed.sum());
+            snapshot.put("lastBatchMs", lastBatchNanos.get() / 1_000_000.0);
+            snapshot.put("maxBatchMs", maxBatchNanos.get() / 1_000_000.0);
+            snapshot.put("avgBatchMs", batchCount == 0 ? 0.0 : batchNanos.sum() / 1_000_000.0 / batchCount);
+            return snapshot;
         }
     }
 }
-
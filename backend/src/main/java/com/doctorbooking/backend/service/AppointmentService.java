@@ -2,8 +2,11 @@ package com.doctorbooking.backend.service;
 
 import com.doctorbooking.backend.dto.request.CreateAppointmentRequest;
 import com.doctorbooking.backend.dto.response.AppointmentResponse;
+import com.doctorbooking.backend.dto.response.CursorPage;
+import com.doctorbooking.backend.dto.response.DoctorAvailabilityResponse;
 import com.doctorbooking.backend.model.Appointment;
 import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.OutboxMessage;
 import com.doctorbooking.backend.model.Patient;
 import com.doctorbooking.backend.repository.AppointmentRepository;
 import com.doctorbooking.backend.repository.DoctorRepository;
@@ -12,16 +15,23 @@ import com.doctorbooking.backend.repository.FamilyAppointmentRepository;
 import com.doctorbooking.backend.repository.FamilyMemberRepository;
 import com.doctorbooking.backend.model.FamilyAppointment;
 import com.doctorbooking.backend.model.FamilyMember;
-import com.doctorbooking.backend.service.EmailService;
+import com.doctorbooking.backend.event.AppointmentBookedEvent;
+import com.doctorbooking.backend.util.KeysetCursor;
+import com.doctorbooking.backend.util.MinuteBitmap;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,11 +44,18 @@ public class AppointmentService {
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
     private final WalletService walletService;
-    private final EmailService emailService;
+    private final OutboxService outboxService;
     private final NotificationService notificationService;
-    private final jakarta.persistence.EntityManager entityManager;
     private final FamilyAppointmentRepository familyAppointmentRepository;
     private final FamilyMemberRepository familyMemberRepository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final ScheduleTemplateService scheduleTemplateService;
+    private final SlotClaimService slotClaimService;
+    private final ReminderScheduler reminderScheduler;
+    private final ResourceVersions resourceVersions;
+
+    private static final int MAX_AVAILABILITY_DAYS = 31;
+    private static final int MAX_AVAILABILITY_DOCTORS = 50;
 
     public List<AppointmentResponse> getAllAppointments() {
         // Use custom query to fetch all with relationships
@@ -61,30 +78,79 @@ public class AppointmentService {
      * CHỈ tính các appointments PENDING hoặc CONFIRMED (không tính CANCELLED và COMPLETED)
      */
     public List<String> getAvailableTimeSlots(Long doctorId, LocalDate date) {
-        // Danh sách tất cả time slots trong ngày
-        List<String> allSlots = List.of(
-            "08:00", "08:30", "09:00", "09:30", "10:00", "10:30",
-            "11:00", "11:30", "13:00", "13:30", "14:00", "14:30",
-            "15:00", "15:30", "16:00", "16:30", "17:00"
-        );
-
-        // Lấy các appointments của bác sĩ trong ngày
-        List<Appointment> appointments = appointmentRepository.findByDoctorAndDate(doctorId, date);
+        // Slot theo lịch làm việc của bác sĩ (đã biên dịch sẵn theo thứ trong tuần)
+        long[] slots = scheduleTemplateService.getSlotMask(doctorId, date);
+        if (MinuteBitmap.isEmpty(slots)) {
+            return List.of(); // Ngày nghỉ
+        }
 
-        // Chỉ tính các slot đã book và CHƯA HOÀN THÀNH/HỦY
-        List<String> bookedTimes = appointments.stream()
-            .filter(apt -> apt.getStatus() == Appointment.AppointmentStatus.PENDING 
-                        || apt.getStatus() == Appointment.AppointmentStatus.CONFIRMED)
-            .map(apt -> {
-                String time = apt.getAppointmentTime().toString();
-                return time.length() > 5 ? time.substring(0, 5) : time; // HH:mm
-            })
-            .collect(Collectors.toList());
+        // Bitmap các phút đã book (PENDING/CONFIRMED), lấy từ index trong bộ nhớ
+        long[] booked = slotAvailabilityIndex.getBooked(doctorId, date);
 
         // Trả về slots available (chưa bị book hoặc đã CANCELLED/COMPLETED)
-        return allSlots.stream()
-            .filter(slot -> !bookedTimes.contains(slot))
-            .collect(Collectors.toList());
+        return MinuteBitmap.availableLabels(slots, booked);
+    }
+
+    /**
+     * Lịch trống của nhiều bác sĩ (theo danh sách id hoặc chuyên khoa) trong khoảng ngày [from, to].
+     * Các lịch đã đặt được lấy bằng một query theo khoảng ngày thay vì một query cho mỗi bác sĩ/ngày.
+     * Theo danh sách id: tối đa MAX_AVAILABILITY_DOCTORS id, một trang duy nhất.
+     * Theo chuyên khoa: phân trang theo id bác sĩ (tối đa MAX_AVAILABILITY_DOCTORS bác sĩ mỗi trang),
+     * trang sau lấy bằng cursor = nextCursor của trang trước.
+     */
+    public CursorPage<DoctorAvailabilityResponse> getAvailability(List<Long> doctorIds, String specialization,
+                                                                  LocalDate from, LocalDate to,
+                                                                  String cursor, Integer limit) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_DAYS) {
+            throw new RuntimeException("Date range must not exceed " + MAX_AVAILABILITY_DAYS + " days");
+        }
+
+        List<Doctor> doctors;
+        String nextCursor = null;
+        if (doctorIds != null && !doctorIds.isEmpty()) {
+            // Kiểm tra số id trước khi query, không load cả danh sách rồi mới từ chối
+            List<Long> distinctIds = doctorIds.stream().distinct().collect(Collectors.toList());
+            if (distinctIds.size() > MAX_AVAILABILITY_DOCTORS) {
+                throw new RuntimeException("Too many doctors, at most " + MAX_AVAILABILITY_DOCTORS + " are allowed");
+            }
+            doctors = doctorRepository.findAllById(distinctIds).stream()
+                    .filter(d -> d.getStatus() == Doctor.DoctorStatus.ACTIVE)
+                    .collect(Collectors.toList());
+        } else if (specialization != null && !specialization.trim().isEmpty()) {
+            int size = limit != null
+                    ? Math.min(CursorPage.pageSize(limit), MAX_AVAILABILITY_DOCTORS)
+                    : MAX_AVAILABILITY_DOCTORS;
+            List<Doctor> rows = doctorRepository.findActiveBySpecialization(
+                    specialization.trim(), KeysetCursor.decodeId(cursor), PageRequest.of(0, size + 1));
+            CursorPage<Doctor> page = CursorPage.of(rows, size, last -> KeysetCursor.encode(last.getId()));
+            doctors = page.getItems();
+            nextCursor = page.getNextCursor();
+        } else {
+            throw new RuntimeException("doctorIds or specialization is required");
+        }
+        if (doctors.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+
+        List<Long> ids = doctors.stream().map(Doctor::getId).collect(Collectors.toList());
+        scheduleTemplateService.preload(ids);
+        Map<Long, Map<LocalDate, long[]>> booked = slotAvailabilityIndex.getBookedRange(ids, from, to);
+
+        List<DoctorAvailabilityResponse> result = new ArrayList<>(doctors.size());
+        for (Doctor doctor : doctors) {
+            Map<LocalDate, long[]> bookedByDate = booked.get(doctor.getId());
+            Map<String, List<String>> slotsByDate = new LinkedHashMap<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                long[] slots = scheduleTemplateService.getSlotMask(doctor.getId(), date);
+                slotsByDate.put(date.toString(), MinuteBitmap.availableLabels(slots, bookedByDate.get(date)));
+            }
+            result.add(new DoctorAvailabilityResponse(
+                    doctor.getId(), doctor.getFullName(), doctor.getSpecialization(), slotsByDate));
+        }
+        return new CursorPage<>(result, nextCursor);
     }
 
     public AppointmentResponse getAppointmentById(Long id) {
@@ -107,39 +173,9 @@ public class AppointmentService {
             throw new RuntimeException("Doctor is not active");
         }
 
-        // Check if appointment slot is already taken
-        // CHỈ check các appointment PENDING hoặc CONFIRMED (không tính CANCELLED và COMPLETED)
-        List<Appointment> existingAppointments = appointmentRepository.findByDoctorAndDate(
-                request.getDoctorId(),
-                request.getAppointmentDate()
-        );
-
-        boolean slotTaken = existingAppointments.stream()
-                .anyMatch(apt -> 
-                    apt.getAppointmentTime().equals(request.getAppointmentTime()) &&
-                    (apt.getStatus() == Appointment.AppointmentStatus.PENDING || 
-                     apt.getStatus() == Appointment.AppointmentStatus.CONFIRMED)
-                );
-
-        if (slotTaken) {
-            throw new RuntimeException("Appointment slot is already taken");
-        }
-        
-        // Nếu có appointment cũ ở slot này đã CANCELLED hoặc COMPLETED, DELETE nó để tránh duplicate constraint
-        List<Appointment> oldAppointments = existingAppointments.stream()
-                .filter(apt -> apt.getAppointmentTime().equals(request.getAppointmentTime()) &&
-                              (apt.getStatus() == Appointment.AppointmentStatus.CANCELLED || 
-                               apt.getStatus() == Appointment.AppointmentStatus.COMPLETED))
-                .collect(Collectors.toList());
-        
-        if (!oldAppointments.isEmpty()) {
-            for (Appointment apt : oldAppointments) {
-                logger.info("Deleting old appointment (status={}) to reuse slot: appointmentId={}", apt.getStatus(), apt.getId());
-                appointmentRepository.delete(apt);
-            }
-            // QUAN TRỌNG: Flush để đảm bảo DELETE được commit trước khi INSERT
-            entityManager.flush();
-            logger.info("Flushed entity manager after deleting old appointments");
+        // Giờ khám phải nằm trong lịch làm việc của bác sĩ
+        if (!scheduleTemplateService.isBookable(doctor.getId(), request.getAppointmentDate(), request.getAppointmentTime())) {
+            throw new RuntimeException("Selected time is not in the doctor's schedule");
         }
 
         // Check if date is not in the past
@@ -165,15 +201,20 @@ public class AppointmentService {
         String paymentMethod = request.getPaymentMethod() != null ? request.getPaymentMethod() : "CASH";
         appointment.setPaymentMethod(paymentMethod);
         
+        // Lưu appointment rồi giữ slot: insert có điều kiện vào slot_claims.
+        // Nếu slot đã có người giữ thì throw, transaction rollback luôn appointment vừa lưu.
+        appointment.setPaymentStatus(Appointment.PaymentStatus.PENDING);
+        appointment = appointmentRepository.save(appointment);
+        appointmentsChanged(appointment);
+        if (!slotClaimService.claim(appointment)) {
+            throw new RuntimeException("Appointment slot is already taken");
+        }
+
         // Xử lý thanh toán theo phương thức
         if ("WALLET".equals(paymentMethod)) {
             // Thanh toán bằng ví: Trừ tiền ngay
             if (consultationFee.compareTo(java.math.BigDecimal.ZERO) > 0) {
                 try {
-                    // Save appointment first to get ID
-                    appointment.setPaymentStatus(Appointment.PaymentStatus.PENDING);
-                    appointment = appointmentRepository.save(appointment);
-                    
                     // Process wallet payment
                     walletService.payForAppointment(
                         patientId, 
@@ -185,6 +226,7 @@ public class AppointmentService {
                     // Update payment status to PAID
                     appointment.setPaymentStatus(Appointment.PaymentStatus.PAID);
                     appointment = appointmentRepository.save(appointment);
+                    appointmentsChanged(appointment);
                 } catch (Exception e) {
                     throw new RuntimeException("Payment failed: " + e.getMessage());
                 }
@@ -192,19 +234,18 @@ public class AppointmentService {
                 // Miễn phí
                 appointment.setPaymentStatus(Appointment.PaymentStatus.PAID);
                 appointment = appointmentRepository.save(appointment);
+                appointmentsChanged(appointment);
             }
-        } else if ("VNPAY".equals(paymentMethod)) {
-            // VNPAY: Save appointment với PENDING, Frontend sẽ redirect sang VNPAY
-            appointment.setPaymentStatus(Appointment.PaymentStatus.PENDING);
-            appointment = appointmentRepository.save(appointment);
-            // Note: Payment URL sẽ được tạo ở controller layer
-        } else {
-            // CASH: Payment status = PENDING
-            appointment.setPaymentStatus(Appointment.PaymentStatus.PENDING);
-            appointment = appointmentRepository.save(appointment);
         }
+        // VNPAY: giữ PENDING, Frontend sẽ redirect sang VNPAY (Payment URL được tạo ở controller layer)
+        // CASH: Payment status = PENDING
+        slotAvailabilityIndex.markBooked(doctor.getId(), appointment.getAppointmentDate(), appointment.getAppointmentTime());
+        reminderScheduler.schedule(appointment);
         
         // Nếu đặt lịch cho người nhà (có familyMemberId), tạo record trong family_appointments
+        // Giữ lại tên và quan hệ của người nhà để dùng cho email và notification
+        String familyMemberName = null;
+        String familyMemberRelationship = null;
         if (request.getFamilyMemberId() != null) {
             try {
                 // Verify family member belongs to this patient
@@ -226,6 +267,10 @@ public class AppointmentService {
                 familyAppointment.setBookedByPatient(patient);
                 
                 familyAppointmentRepository.save(familyAppointment);
+                familyMemberName = familyMember.getFullName();
+                familyMemberRelationship = familyMember.getRelationship() != null 
+                    ? familyMember.getRelationship().name() 
+                    : null;
                 
                 logger.info("Created family appointment: appointmentId={}, familyMemberId={}, bookedByPatientId={}", 
                            appointment.getId(), familyMember.getId(), patientId);
@@ -235,102 +280,56 @@ public class AppointmentService {
             }
         }
         
-        // Lấy thông tin family member nếu đặt cho người nhà (dùng cho cả email và notification)
-        String familyMemberName = null;
-        String familyMemberRelationship = null;
-        if (request.getFamilyMemberId() != null) {
-            try {
-                FamilyMember familyMember = familyMemberRepository.findByIdAndMainPatientId(
-                    request.getFamilyMemberId(), 
-                    patientId
-                );
-                if (familyMember != null) {
-                    familyMemberName = familyMember.getFullName();
-                    familyMemberRelationship = familyMember.getRelationship() != null 
-                        ? familyMember.getRelationship().name() 
-                        : null;
-                }
-            } catch (Exception e) {
-                logger.warn("Could not load family member for notification: {}", e.getMessage());
-            }
-        }
-        
-        // Gửi email xác nhận đặt lịch thành công (lấy tất cả dữ liệu từ database)
-        try {
-            String patientEmail = patient.getUser().getEmail();
-            if (patientEmail != null && !patientEmail.trim().isEmpty()) {
-                // Format giá tiền
-                String priceFormatted = consultationFee != null && consultationFee.compareTo(java.math.BigDecimal.ZERO) > 0
-                    ? String.format("%,d", consultationFee.longValue())
-                    : "Miễn phí";
-                
-                // Lấy payment status từ appointment
-                String paymentStatus = appointment.getPaymentStatus() != null 
-                    ? appointment.getPaymentStatus().name() 
-                    : "PENDING";
-                
-                // Gửi email với tất cả dữ liệu từ database
-                emailService.sendAppointmentConfirmationEmail(
-                    patientEmail,                                    // Email người nhận
-                    patient.getFullName(),                           // Tên người đặt lịch
-                    patient.getPhone() != null ? patient.getPhone() : "", // SĐT người đặt lịch
-                    doctor.getFullName(),                            // Tên bác sĩ
-                    doctor.getSpecialization(),                      // Chuyên khoa
-                    doctor.getPhone() != null ? doctor.getPhone() : "", // SĐT bác sĩ
-                    doctor.getAddress() != null ? doctor.getAddress() : "", // Địa chỉ bác sĩ
-                    appointment.getAppointmentDate(),                // Ngày khám
-                    appointment.getAppointmentTime(),                // Giờ khám
-                    String.valueOf(appointment.getId()),            // Mã lịch hẹn
-                    appointment.getPaymentMethod() != null ? appointment.getPaymentMethod() : "CASH", // Phương thức thanh toán
-                    paymentStatus,                                   // Trạng thái thanh toán
-                    priceFormatted,                                  // Phí khám
-                    appointment.getNotes(),                          // Ghi chú
-                    familyMemberName,                                // Tên người nhà (nếu có)
-                    familyMemberRelationship                         // Quan hệ (nếu có)
-                );
-                logger.info("Appointment confirmation email sent to patient: {} (Appointment ID: {})", patientEmail, appointment.getId());
-            } else {
-                logger.warn("Patient email is null or empty, skipping email notification for appointment: {}", appointment.getId());
-            }
-        } catch (Exception e) {
-            // Log error nhưng không throw exception để không làm gián đoạn quá trình đặt lịch
-            logger.error("Failed to send appointment confirmation email for appointment: {}", appointment.getId(), e);
+        // Email xác nhận được ghi vào outbox cùng transaction, OutboxDispatcher gửi sau khi commit
+        // (không giữ connection/HTTP thread trong lúc gửi SMTP, không mất email khi crash)
+        String priceFormatted = consultationFee.compareTo(java.math.BigDecimal.ZERO) > 0
+            ? String.format("%,d", consultationFee.longValue())
+            : "Miễn phí";
+        AppointmentBookedEvent bookedEvent = new AppointmentBookedEvent(
+            appointment.getId(),
+            patientId,
+            patient.getUser().getEmail(),
+            patient.getFullName(),
+            patient.getPhone() != null ? patient.getPhone() : "",
+            doctor.getFullName(),
+            doctor.getSpecialization(),
+            doctor.getPhone() != null ? doctor.getPhone() : "",
+            doctor.getAddress() != null ? doctor.getAddress() : "",
+            appointment.getAppointmentDate(),
+            appointment.getAppointmentTime(),
+            appointment.getPaymentMethod() != null ? appointment.getPaymentMethod() : "CASH",
+            appointment.getPaymentStatus() != null ? appointment.getPaymentStatus().name() : "PENDING",
+            priceFormatted,
+            appointment.getNotes(),
+            familyMemberName,
+            familyMemberRelationship
+        );
+        if (patient.getUser().getEmail() != null && !patient.getUser().getEmail().trim().isEmpty()) {
+            outboxService.enqueue(OutboxMessage.MessageType.APPOINTMENT_CONFIRMATION_EMAIL, bookedEvent);
+        } else {
+            logger.warn("Patient email is null or empty, skipping email notification for appointment: {}", appointment.getId());
         }
-        
-        // Tạo thông báo trong hệ thống (ngoài email)
-        try {
-            String notificationTitle = "Đặt lịch khám thành công";
-            String notificationMessage;
-            
-            if (familyMemberName != null && !familyMemberName.trim().isEmpty()) {
-                notificationMessage = String.format(
-                    "Bạn đã đặt lịch khám thành công cho %s với Bác sĩ %s vào %s lúc %s",
-                    familyMemberName,
-                    doctor.getFullName(),
-                    appointment.getAppointmentDate().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                    appointment.getAppointmentTime().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm"))
-                );
-            } else {
-                notificationMessage = String.format(
-                    "Bạn đã đặt lịch khám thành công với Bác sĩ %s vào %s lúc %s",
-                    doctor.getFullName(),
-                    appointment.getAppointmentDate().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                    appointment.getAppointmentTime().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm"))
-                );
-            }
-            
-            notificationService.createNotification(
-                patientId,
-                notificationTitle,
-                notificationMessage,
-                com.doctorbooking.backend.model.Notification.NotificationType.APPOINTMENT_CONFIRMED,
-                appointment.getId()
-            );
-            logger.info("✅ Notification created for appointment ID: {}", appointment.getId());
-        } catch (Exception e) {
-            // Log error nhưng không throw exception để không làm gián đoạn quá trình đặt lịch
-            logger.error("Failed to create notification for appointment: {}", appointment.getId(), e);
+
+        // Thông báo trong hệ thống: chỉ là một bản ghi, ghi luôn trong transaction đặt lịch
+        String notificationMessage;
+        String formattedDate = appointment.getAppointmentDate().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        String formattedTime = appointment.getAppointmentTime().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm"));
+        if (familyMemberName != null && !familyMemberName.trim().isEmpty()) {
+            notificationMessage = String.format(
+                "Bạn đã đặt lịch khám thành công cho %s với Bác sĩ %s vào %s lúc %s",
+                familyMemberName, doctor.getFullName(), formattedDate, formattedTime);
+        } else {
+            notificationMessage = String.format(
+                "Bạn đã đặt lịch khám thành công với Bác sĩ %s vào %s lúc %s",
+                doctor.getFullName(), formattedDate, formattedTime);
         }
+        notificationService.createNotification(
+            patientId,
+            "Đặt lịch khám thành công",
+            notificationMessage,
+            com.doctorbooking.backend.model.Notification.NotificationType.APPOINTMENT_CONFIRMED,
+            appointment.getId()
+        );
         
         return AppointmentResponse.fromEntity(appointment);
     }
@@ -344,6 +343,7 @@ public class AppointmentService {
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
         appointment.setPaymentStatus(paymentStatus);
         appointmentRepository.save(appointment);
+        appointmentsChanged(appointment);
     }
 
     /**
@@ -356,6 +356,8 @@ public class AppointmentService {
         appointment.setStatus(Appointment.AppointmentStatus.CANCELLED);
         appointment.setPaymentStatus(Appointment.PaymentStatus.UNPAID);
         appointmentRepository.save(appointment);
+        appointmentsChanged(appointment);
+        freeSlot(appointment);
     }
 
     public List<AppointmentResponse> getPatientAppointments(Long patientId) {
@@ -419,6 +421,8 @@ public class AppointmentService {
         // Cập nhật status thành CANCELLED
         appointment.setStatus(Appointment.AppointmentStatus.CANCELLED);
         appointmentRepository.save(appointment);
+        appointmentsChanged(appointment);
+        freeSlot(appointment);
         logger.info("Appointment cancelled successfully: appointmentId={}", appointmentId);
     }
 
@@ -440,6 +444,7 @@ public class AppointmentService {
 
         appointment.setStatus(Appointment.AppointmentStatus.CONFIRMED);
         appointment = appointmentRepository.save(appointment);
+        appointmentsChanged(appointment);
         return AppointmentResponse.fromEntity(appointment);
     }
 
@@ -456,6 +461,8 @@ public class AppointmentService {
 
         appointment.setStatus(Appointment.AppointmentStatus.COMPLETED);
         appointmentRepository.save(appointment);
+        appointmentsChanged(appointment);
+        freeSlot(appointment);
     }
 
     // Admin methods
@@ -463,6 +470,8 @@ public class AppointmentService {
     public AppointmentResponse updateAppointmentByAdmin(Long id, com.doctorbooking.backend.dto.request.UpdateAppointmentRequest request) {
         Appointment appointment = appointmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Appointment not found with id: " + id));
+        LocalDate oldDate = appointment.getAppointmentDate();
+        LocalTime oldTime = appointment.getAppointmentTime();
 
         if (request.getStatus() != null) {
             appointment.setStatus(request.getStatus());
@@ -477,7 +486,23 @@ public class AppointmentService {
             appointment.setNotes(request.getNotes());
         }
 
+        if (!oldDate.equals(appointment.getAppointmentDate()) || !oldTime.equals(appointment.getAppointmentTime())) {
+            // Dời lịch: nhắc hẹn của giờ khám mới chưa được gửi
+            appointment.setReminder24hSent(false);
+            appointment.setReminder1hSent(false);
+        }
+
         Appointment updated = appointmentRepository.save(appointment);
+
+        appointmentsChanged(updated);
+        slotClaimService.sync(updated);
+        reminderScheduler.schedule(updated);
+        // Có thể đổi cả status, ngày và giờ: nạp lại index của ngày cũ và ngày mới
+        Long doctorId = updated.getDoctor().getId();
+        slotAvailabilityIndex.invalidate(doctorId, oldDate);
+        if (!oldDate.equals(updated.getAppointmentDate())) {
+            slotAvailabilityIndex.invalidate(doctorId, updated.getAppointmentDate());
+        }
         return AppointmentResponse.fromEntity(updated);
     }
 
@@ -486,6 +511,23 @@ public class AppointmentService {
         Appointment appointment = appointmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Appointment not found with id: " + id));
         appointmentRepository.delete(appointment);
+        appointmentsChanged(appointment);
+        freeSlot(appointment);
+    }
+
+    // Danh sách lịch hẹn của bệnh nhân đã đổi: ETag cũ của /api/patient/appointments hết hiệu lực
+    private void appointmentsChanged(Appointment appointment) {
+        resourceVersions.bump(ResourceVersions.Resource.APPOINTMENTS, appointment.getPatient().getId());
+    }
+
+    private void freeSlot(Appointment appointment) {
+        slotClaimService.release(appointment);
+        reminderScheduler.unschedule(appointment.getId());
+        slotAvailabilityIndex.markFree(
+            appointment.getDoctor().getId(),
+            appointment.getAppointmentDate(),
+            appointment.getAppointmentTime()
+        );
     }
 }
 
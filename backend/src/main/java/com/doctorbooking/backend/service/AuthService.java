@@ -35,6 +35,8 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final PatientSearchService patientSearchService;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
@@ -62,12 +64,11 @@ public class AuthService {
         patient.setUser(user);
         patient.setFullName(request.getFullName());
         patient.setPhone(request.getPhone());
-        patientRepository.save(patient);
+        patient = patientRepository.save(patient);
+        patientSearchService.index(patient);
 
         // Generate tokens
-        Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("role", user.getRole().name());
-        extraClaims.put("userId", user.getId());
+        Map<String, Object> extraClaims = buildClaims(user);
 
         String token = jwtUtil.generateToken(user, extraClaims);
         String refreshToken = jwtUtil.generateRefreshToken(user);
@@ -129,9 +130,7 @@ public class AuthService {
         // QUAN TRỌNG: Sử dụng user.getUsername() (username thực tế từ DB) thay vì userDetails.getUsername()
         // Vì userDetails.getUsername() có thể trả về email nếu login bằng email
         // Nhưng token phải có subject là username thực tế để validate đúng
-        Map<String, Object> extraClaims = new HashMap<>();
-        extraClaims.put("role", user.getRole().name());
-        extraClaims.put("userId", user.getId());
+        Map<String, Object> extraClaims = buildClaims(user);
 
         // Tạo UserDetails wrapper với username thực tế để tạo token
         UserDetails tokenUserDetails = org.springframework.security.core.userdetails.User.builder()
@@ -164,6 +163,26 @@ public class AuthService {
         return response;
     }
 
+    /**
+     * Claims dùng cho xác thực stateless: role, userId, version token hiện tại và patientId/doctorId
+     */
+    private Map<String, Object> buildClaims(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtUtil.CLAIM_ROLE, user.getRole().name());
+        claims.put(JwtUtil.CLAIM_USER_ID, user.getId());
+        claims.put(JwtUtil.CLAIM_TOKEN_EPOCH, tokenVersionRegistry.getEpoch());
+        claims.put(JwtUtil.CLAIM_TOKEN_VERSION, tokenVersionRegistry.currentVersion(user.getId()));
+        // patientId/doctorId để controller không phải tra lại theo userId ở mỗi request
+        switch (user.getRole()) {
+            case PATIENT -> patientRepository.findByUserId(user.getId())
+                    .ifPresent(patient -> claims.put(JwtUtil.CLAIM_PATIENT_ID, patient.getId()));
+            case DOCTOR -> doctorRepository.findByUserId(user.getId())
+                    .ifPresent(doctor -> claims.put(JwtUtil.CLAIM_DOCTOR_ID, doctor.getId()));
+            case ADMIN -> { }
+        }
+        return claims;
+    }
+
     private String getFullNameByRole(User user) {
         try {
             return switch (user.getRole()) {
@@ -0,0 +1,117 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.config.CurrentUser;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.Patient;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import com.doctorbooking.backend.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolve userId, role và patientId/doctorId của user đang đăng nhập.
+ * Ưu tiên lấy từ claims trong token (cấp khi login), nếu không có thì tra database
+ * một lần rồi cache theo userId (patientId/doctorId không đổi trong suốt vòng đời user).
+ */
+@Service
+@RequiredArgsConstructor
+public class CurrentUserService {
+
+    private final UserRepository userRepository;
+    private final PatientRepository patientRepository;
+    private final DoctorRepository doctorRepository;
+    private final JwtUtil jwtUtil;
+
+    private final Map<Long, CurrentUser> cache = new ConcurrentHashMap<>();
+
+    @Value("${app.security.current-user-cache.max-size:10000}")
+    private int maxSize;
+
+    public CurrentUser resolve(Authentication authentication, Claims claims) {
+        User principal = authentication.getPrincipal() instanceof User user ? user : null;
+
+        // 1. Token đã chứa đủ thông tin (và khớp với principal nếu principal được nạp từ database)
+        if (claims != null) {
+            CurrentUser fromClaims = fromClaims(claims, authentication.getName());
+            if (fromClaims != null && (principal == null
+                    || (principal.getId().equals(fromClaims.getUserId()) && principal.getRole() == fromClaims.getRole()))) {
+                return fromClaims;
+            }
+        }
+
+        // 2. Xác định userId/role từ principal, claims, hoặc database
+        Long userId;
+        User.Role role;
+        String username = authentication.getName();
+        if (principal != null) {
+            userId = principal.getId();
+            role = principal.getRole();
+        } else if (claims != null && jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_USER_ID) != null
+                && claims.get(JwtUtil.CLAIM_ROLE, String.class) != null) {
+            userId = jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_USER_ID);
+            role = User.Role.valueOf(claims.get(JwtUtil.CLAIM_ROLE, String.class));
+        } else {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+            userId = user.getId();
+            role = user.getRole();
+        }
+
+        CurrentUser cached = cache.get(userId);
+        if (cached != null && cached.getRole() == role) {
+            return cached;
+        }
+
+        // 3. Tra patientId/doctorId một lần
+        Long patientId = null;
+        Long doctorId = null;
+        switch (role) {
+            case PATIENT -> patientId = patientRepository.findByUserId(userId).map(Patient::getId).orElse(null);
+            case DOCTOR -> doctorId = doctorRepository.findByUserId(userId).map(Doctor::getId).orElse(null);
+            case ADMIN -> { }
+        }
+        CurrentUser resolved = new CurrentUser(userId, username, role, patientId, doctorId);
+
+        // Không cache khi chưa có hồ sơ patient/doctor (có thể được tạo sau)
+        if (role == User.Role.ADMIN || patientId != null || doctorId != null) {
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+            cache.put(userId, resolved);
+        }
+        return resolved;
+    }
+
+    public void evict(Long userId) {
+        if (userId != null) {
+            cache.remove(userId);
+        }
+    }
+
+    private CurrentUser fromClaims(Claims claims, String username) {
+        Long userId = jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_USER_ID);
+        String role = claims.get(JwtUtil.CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+        User.Role userRole = User.Role.valueOf(role);
+        Long patientId = jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_PATIENT_ID);
+        Long doctorId = jwtUtil.getLongClaim(claims, JwtUtil.CLAIM_DOCTOR_ID);
+        boolean complete = switch (userRole) {
+            case PATIENT -> patientId != null;
+            case DOCTOR -> doctorId != null;
+            case ADMIN -> true;
+        };
+        return complete ? new CurrentUser(userId, username, userRole, patientId, doctorId) : null;
+    }
+}
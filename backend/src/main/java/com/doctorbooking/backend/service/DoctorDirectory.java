@@ -0,0 +1,183 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.DoctorResponse;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.util.ETags;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Danh bạ bác sĩ trong bộ nhớ: bác sĩ đang hoạt động, bác sĩ theo id và danh sách chuyên khoa,
+ * đọc nhiều hơn ghi rất nhiều.
+ *
+ * - Snapshot bất biến, thay cả khối (copy-on-write) nên reader không cần lock
+ * - Nạp lần đầu khi có người đọc (read-through), nạp lại định kỳ (app.doctors.directory.refresh-ms)
+ *   để bắt thay đổi từ instance khác
+ * - Tạo/sửa/xóa bác sĩ cập nhật snapshot SAU KHI transaction commit
+ * - ETag tính từ nội dung nên giống nhau trên mọi instance; version chỉ đếm số lần snapshot đổi trên instance này
+ */
+@Component
+@RequiredArgsConstructor
+public class DoctorDirectory {
+
+    private final DoctorRepository doctorRepository;
+
+    private volatile Snapshot snapshot;
+    // Tăng sau mỗi lần ghi; bản nạp lại chỉ được dùng nếu không có lần ghi nào xen giữa
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    /**
+     * Snapshot hiện tại. Các DoctorResponse bên trong dùng chung giữa các request, không được sửa.
+     */
+    public Snapshot current() {
+        reads.increment();
+        Snapshot current = snapshot;
+        return current != null ? current : load();
+    }
+
+    /**
+     * Đưa trạng thái của doctor vào danh bạ sau commit (lúc đó @PreUpdate đã chạy nên updatedAt đúng)
+     */
+    public void put(Doctor doctor) {
+        afterCommit(() -> {
+            DoctorResponse response = DoctorResponse.fromEntity(doctor);
+            Map<Long, DoctorResponse> doctors = new HashMap<>(snapshot.byId());
+            doctors.put(response.getId(), response);
+            return doctors.values();
+        });
+    }
+
+    public void remove(Long doctorId) {
+        afterCommit(() -> {
+            Map<Long, DoctorResponse> doctors = new HashMap<>(snapshot.byId());
+            doctors.remove(doctorId);
+            return doctors.values();
+        });
+    }
+
+    @Scheduled(initialDelayString = "${app.doctors.directory.refresh-ms:60000}",
+            fixedDelayString = "${app.doctors.directory.refresh-ms:60000}")
+    public void refresh() {
+        if (snapshot != null) {
+            load();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("version", current != null ? current.version() : 0);
+        stats.put("doctors", current != null ? current.byId().size() : 0);
+        stats.put("reads", reads.sum());
+        stats.put("loads", loads.sum());
+        return stats;
+    }
+
+    private Snapshot load() {
+        long sequence = writeSequence.get();
+        List<DoctorResponse> doctors = doctorRepository.findAllWithUser().stream()
+                .map(DoctorResponse::fromEntity)
+                .toList();
+        loads.increment();
+        synchronized (this) {
+            if (snapshot != null && writeSequence.get() != sequence) {
+                // Có thay đổi trong lúc nạp: giữ snapshot đang được cập nhật, lần sau nạp lại
+                return snapshot;
+            }
+            install(doctors);
+            return snapshot;
+        }
+    }
+
+    // Chỉ gọi khi đang giữ lock của this
+    private void install(Collection<DoctorResponse> doctors) {
+        Snapshot built = Snapshot.of(version.get() + 1, doctors);
+        Snapshot current = snapshot;
+        if (current != null && current.byId().equals(built.byId())) {
+            // Nội dung không đổi: giữ nguyên version và ETag
+            return;
+        }
+        snapshot = built;
+        version.set(built.version());
+    }
+
+    private void afterCommit(Supplier<Collection<DoctorResponse>> change) {
+        Runnable apply = () -> {
+            synchronized (this) {
+                writeSequence.incrementAndGet();
+                if (snapshot != null) {
+                    install(change.get());
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * @param activeDoctors   bác sĩ ACTIVE theo id tăng dần
+     * @param specializations chuyên khoa (không trùng, sắp xếp) của bác sĩ ACTIVE
+     * @param etag            ETag của activeDoctors
+     */
+    public record Snapshot(long version, Map<Long, DoctorResponse> byId, List<DoctorResponse> activeDoctors,
+                           List<String> specializations, String etag, String specializationsEtag) {
+
+        static Snapshot of(long version, Collection<DoctorResponse> doctors) {
+            List<DoctorResponse> sorted = new ArrayList<>(doctors);
+            sorted.sort(Comparator.comparing(DoctorResponse::getId));
+            Map<Long, DoctorResponse> byId = new HashMap<>();
+            List<DoctorResponse> active = new ArrayList<>();
+            TreeSet<String> specializations = new TreeSet<>();
+            for (DoctorResponse doctor : sorted) {
+                byId.put(doctor.getId(), doctor);
+                if (Doctor.DoctorStatus.ACTIVE.name().equals(doctor.getStatus())) {
+                    active.add(doctor);
+                    if (doctor.getSpecialization() != null) {
+                        specializations.add(doctor.getSpecialization());
+                    }
+                }
+            }
+            return new Snapshot(version, Collections.unmodifiableMap(byId), List.copyOf(active),
+                    List.copyOf(specializations), ETags.digest(active.toString()),
+                    ETags.digest(specializations.toString()));
+        }
+
+        public DoctorResponse get(Long id) {
+            return byId.get(id);
+        }
+
+        /**
+         * ETag của một bác sĩ (tính từ nội dung)
+         */
+        public static String etagOf(DoctorResponse doctor) {
+            return ETags.digest(doctor.toString());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.DoctorResponse;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.util.InvertedIndex;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tìm kiếm bác sĩ trong bộ nhớ (thay cho LOWER(...) LIKE '%kw%' phải quét cả bảng doctors).
+ * Index theo họ tên, chuyên khoa, bằng cấp và giới thiệu; bỏ dấu tiếng Việt, khớp theo tiền tố từ.
+ *
+ * - Nạp toàn bộ khi ứng dụng khởi động và nạp lại định kỳ (app.doctors.search.rebuild-ms)
+ *   để bắt thay đổi từ instance khác
+ * - Tạo/sửa/xóa bác sĩ cập nhật index SAU KHI transaction commit
+ * - Trước khi nạp xong, search() trả về null để caller dùng query database
+ */
+@Component
+@RequiredArgsConstructor
+public class DoctorSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoctorSearchIndex.class);
+
+    // Họ tên > chuyên khoa > bằng cấp > giới thiệu
+    private static final int[] FIELD_WEIGHTS = {8, 4, 2, 1};
+
+    private final DoctorRepository doctorRepository;
+
+    private volatile InvertedIndex<DoctorResponse> index;
+    // Tăng sau mỗi lần ghi; bản nạp lại chỉ được dùng nếu không có lần ghi nào xen giữa
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    @Value("${app.doctors.search.max-results:200}")
+    private int maxResults;
+
+    /**
+     * Bác sĩ khớp keyword theo thứ tự liên quan, hoặc null nếu index chưa sẵn sàng
+     */
+    public List<DoctorResponse> search(String keyword) {
+        InvertedIndex<DoctorResponse> current = index;
+        if (current == null) {
+            fallbacks.increment();
+            return null;
+        }
+        searches.increment();
+        return current.search(keyword, maxResults);
+    }
+
+    /**
+     * Đưa trạng thái của doctor vào index sau commit (lúc đó @PreUpdate đã chạy nên updatedAt đúng)
+     */
+    public void put(Doctor doctor) {
+        afterCommit(() -> {
+            InvertedIndex<DoctorResponse> current = index;
+            if (current != null) {
+                add(current, DoctorResponse.fromEntity(doctor));
+            }
+        });
+    }
+
+    public void remove(Long doctorId) {
+        afterCommit(() -> {
+            InvertedIndex<DoctorResponse> current = index;
+            if (current != null) {
+                current.remove(doctorId);
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.doctors.search.rebuild-ms:300000}",
+            fixedDelayString = "${app.doctors.search.rebuild-ms:300000}")
+    public void rebuild() {
+        long sequence = writeSequence.get();
+        InvertedIndex<DoctorResponse> rebuilt = new InvertedIndex<>(FIELD_WEIGHTS);
+        for (Doctor doctor : doctorRepository.findAllWithUser()) {
+            add(rebuilt, DoctorResponse.fromEntity(doctor));
+        }
+        synchronized (this) {
+            if (writeSequence.get() != sequence && index != null) {
+                // Có thay đổi trong lúc nạp: giữ index đang được cập nhật, lần sau nạp lại
+                logger.debug("Doctor search rebuild skipped: concurrent writes");
+                return;
+            }
+            index = rebuilt;
+        }
+        rebuilds.incrementAndGet();
+    }
+
+    public Map<String, Object> snapshot() {
+        InvertedIndex<DoctorResponse> current = index;
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("ready", current != null);
+        snapshot.put("doctors", current != null ? current.size() : 0);
+        snapshot.put("terms", current != null ? current.termCount() : 0);
+        snapshot.put("searches", searches.sum());
+        snapshot.put("fallbacks", fallbacks.sum());
+        snapshot.put("rebuilds", rebuilds.get());
+        return snapshot;
+    }
+
+    private static void add(InvertedIndex<DoctorResponse> target, DoctorResponse doctor) {
+        target.put(doctor.getId(), doctor,
+                doctor.getFullName(), doctor.getSpecialization(), doctor.getQualification(), doctor.getBio());
+    }
+
+    private void afterCommit(Runnable update) {
+        Runnable counted = () -> {
+            synchronized (this) {
+                writeSequence.incrementAndGet();
+                update.run();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counted.run();
+                }
+            });
+        } else {
+            counted.run();
+        }
+    }
+}
@@ -3,17 +3,22 @@ package com.doctorbooking.backend.service;
 import com.doctorbooking.backend.dto.request.ChangePasswordRequest;
 import com.doctorbooking.backend.dto.request.DoctorRequest;
 import com.doctorbooking.backend.dto.request.UpdateProfileRequest;
+import com.doctorbooking.backend.dto.response.CursorPage;
 import com.doctorbooking.backend.dto.response.DoctorResponse;
 import com.doctorbooking.backend.model.Doctor;
 import com.doctorbooking.backend.model.User;
 import com.doctorbooking.backend.repository.DoctorRepository;
 import com.doctorbooking.backend.repository.UserRepository;
+import com.doctorbooking.backend.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,6 +28,13 @@ public class DoctorService {
     private final DoctorRepository doctorRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final CurrentUserService currentUserService;
+    private final ScheduleTemplateService scheduleTemplateService;
+    private final NdjsonExporter ndjsonExporter;
+    private final DoctorSearchIndex doctorSearchIndex;
+    private final DoctorDirectory doctorDirectory;
 
     public List<DoctorResponse> getAllDoctors() {
         return doctorRepository.findAll().stream()
@@ -30,19 +42,57 @@ public class DoctorService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Danh sách bác sĩ theo trang (id tăng dần), lọc theo từ khóa tùy chọn
+     */
+    public CursorPage<DoctorResponse> getDoctorPage(String keyword, String cursor, Integer limit) {
+        int size = CursorPage.pageSize(limit);
+        String filter = keyword == null || keyword.trim().isEmpty() ? null : keyword.trim();
+        List<DoctorResponse> rows = doctorRepository.findPage(
+                        filter, KeysetCursor.decodeId(cursor), PageRequest.of(0, size + 1)).stream()
+                .map(DoctorResponse::fromEntity)
+                .collect(Collectors.toList());
+        return CursorPage.of(rows, size, last -> KeysetCursor.encode(last.getId()));
+    }
+
+    /**
+     * Xuất toàn bộ bác sĩ dạng NDJSON, đọc theo luồng
+     */
+    public long exportDoctors(OutputStream out) {
+        return ndjsonExporter.export(out, "SELECT d FROM Doctor d JOIN FETCH d.user ORDER BY d.id",
+                Doctor.class, Map.of(), DoctorResponse::fromEntity);
+    }
+
+    /**
+     * Tìm bác sĩ theo từ khóa (không dấu cũng khớp, khớp tiền tố từ), kết quả liên quan nhất trước
+     */
     public List<DoctorResponse> searchDoctors(String keyword) {
+        List<DoctorResponse> ranked = doctorSearchIndex.search(keyword);
+        if (ranked != null) {
+            return ranked;
+        }
         return doctorRepository.searchDoctors(keyword).stream()
                 .map(DoctorResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
     public List<DoctorResponse> getActiveDoctors() {
-        return doctorRepository.findByStatus(Doctor.DoctorStatus.ACTIVE).stream()
-                .map(DoctorResponse::fromEntity)
-                .collect(Collectors.toList());
+        return doctorDirectory.current().activeDoctors();
+    }
+
+    /**
+     * Snapshot danh bạ bác sĩ (kèm ETag) để controller trả 304 khi không đổi
+     */
+    public DoctorDirectory.Snapshot getDoctorDirectory() {
+        return doctorDirectory.current();
     }
 
     public DoctorResponse getDoctorById(Long id) {
+        DoctorResponse cached = doctorDirectory.current().get(id);
+        if (cached != null) {
+            return cached;
+        }
+        // Bác sĩ vừa được tạo ở instance khác, chưa có trong snapshot
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + id));
         return DoctorResponse.fromEntity(doctor);
@@ -79,6 +129,7 @@ public class DoctorService {
         doctor.setBio(request.getBio());
         doctor.setStatus(Doctor.DoctorStatus.ACTIVE);
         doctor = doctorRepository.save(doctor);
+        publish(doctor);
 
         return DoctorResponse.fromEntity(doctor);
     }
@@ -113,6 +164,8 @@ public class DoctorService {
         }
 
         userRepository.save(user);
+        principalCache.evictUser(user.getId());
+        tokenVersionRegistry.bump(user.getId());
 
         // Update doctor
         if (request.getFullName() != null) {
@@ -138,6 +191,7 @@ public class DoctorService {
         }
 
         doctor = doctorRepository.save(doctor);
+        publish(doctor);
         return DoctorResponse.fromEntity(doctor);
     }
 
@@ -145,7 +199,11 @@ public class DoctorService {
     public void deleteDoctor(Long id) {
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + id));
+        scheduleTemplateService.deleteForDoctor(id);
         doctorRepository.delete(doctor);
+        doctorSearchIndex.remove(id);
+        doctorDirectory.remove(id);
+        currentUserService.evict(doctor.getUser().getId());
         // User will be deleted by cascade if configured
     }
 
@@ -184,6 +242,7 @@ public class DoctorService {
         }
 
         doctor = doctorRepository.save(doctor);
+        publish(doctor);
         return DoctorResponse.fromEntity(doctor);
     }
 
@@ -201,6 +260,13 @@ public class DoctorService {
         user.setPassword(request.getNewPassword()); // Plain text
         // user.setPassword(passwordEncoder.encode(request.getNewPassword())); // BCrypt - uncomment sau khi test xong
         userRepository.save(user);
+        principalCache.evictUser(userId);
+        tokenVersionRegistry.bump(userId);
     }
-}
 
+    // Cập nhật index tìm kiếm và danh bạ bác sĩ (cả hai áp dụng sau commit)
+    private void publish(Doctor doctor) {
+        doctorSearchIndex.put(doctor);
+        doctorDirectory.put(doctor);
+    }
+}
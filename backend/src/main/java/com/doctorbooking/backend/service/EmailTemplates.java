@@ -0,0 +1,117 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.event.AppointmentBookedEvent;
+import com.doctorbooking.backend.event.AppointmentReminderEvent;
+import com.doctorbooking.backend.util.HtmlTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+import static java.util.Map.entry;
+
+/**
+ * Các template email (src/main/resources/templates/email), biên dịch một lần khi khởi động.
+ * Model của template chính là event tương ứng; phần chuyển sang chữ hiển thị nằm trong binding.
+ */
+@Component
+public class EmailTemplates {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final HtmlTemplate<AppointmentBookedEvent> appointmentConfirmation;
+    private final HtmlTemplate<AppointmentReminderEvent> appointmentReminder;
+
+    public EmailTemplates() {
+        appointmentConfirmation = HtmlTemplate.compile(load("appointment-confirmation.html"), Map.ofEntries(
+                entry("patientName", AppointmentBookedEvent::patientName),
+                entry("appointmentId", e -> String.valueOf(e.appointmentId())),
+                entry("patientForName", e -> patientForName(e.patientName(), e.familyMemberName())),
+                entry("relationship", e -> relationshipLabel(e.familyMemberRelationship())),
+                entry("doctorName", AppointmentBookedEvent::doctorName),
+                entry("doctorSpecialization", AppointmentBookedEvent::doctorSpecialization),
+                entry("doctorPhone", AppointmentBookedEvent::doctorPhone),
+                entry("doctorAddress", AppointmentBookedEvent::doctorAddress),
+                entry("appointmentDate", e -> e.appointmentDate().format(DATE_FORMAT)),
+                entry("appointmentTime", e -> e.appointmentTime().format(TIME_FORMAT)),
+                entry("paymentMethod", e -> paymentMethodLabel(e.paymentMethod())),
+                entry("paymentStatus", e -> paymentStatusLabel(e.paymentStatus())),
+                entry("price", AppointmentBookedEvent::priceFormatted),
+                entry("notes", AppointmentBookedEvent::notes)
+        ));
+        appointmentReminder = HtmlTemplate.compile(load("appointment-reminder.html"), Map.ofEntries(
+                entry("timeRemaining", e -> e.hoursBefore() == 24 ? "24 giờ" : "1 giờ"),
+                entry("patientName", AppointmentReminderEvent::patientName),
+                entry("appointmentId", e -> String.valueOf(e.appointmentId())),
+                entry("patientForName", e -> patientForName(e.patientName(), e.familyMemberName())),
+                entry("relationship", e -> relationshipLabel(e.familyMemberRelationship())),
+                entry("doctorName", AppointmentReminderEvent::doctorName),
+                entry("doctorSpecialization", AppointmentReminderEvent::doctorSpecialization),
+                entry("doctorPhone", AppointmentReminderEvent::doctorPhone),
+                entry("doctorAddress", AppointmentReminderEvent::doctorAddress),
+                entry("appointmentDate", e -> e.appointmentDate().format(DATE_FORMAT)),
+                entry("appointmentTime", e -> e.appointmentTime().format(TIME_FORMAT))
+        ));
+    }
+
+    public String renderAppointmentConfirmation(AppointmentBookedEvent event) {
+        return appointmentConfirmation.render(event);
+    }
+
+    public String renderAppointmentReminder(AppointmentReminderEvent event) {
+        return appointmentReminder.render(event);
+    }
+
+    private static String load(String name) {
+        try (InputStream in = new ClassPathResource("templates/email/" + name).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load email template " + name, e);
+        }
+    }
+
+    // Nếu đặt cho người nhà thì hiển thị tên người nhà
+    private static String patientForName(String patientName, String familyMemberName) {
+        return familyMemberName != null && !familyMemberName.trim().isEmpty() ? familyMemberName : patientName;
+    }
+
+    private static String paymentMethodLabel(String paymentMethod) {
+        return switch (paymentMethod != null ? paymentMethod.toUpperCase() : "CASH") {
+            case "WALLET" -> "Ví điện tử";
+            case "VNPAY" -> "VNPay";
+            default -> "Tiền mặt";
+        };
+    }
+
+    private static String paymentStatusLabel(String paymentStatus) {
+        return switch (paymentStatus != null ? paymentStatus.toUpperCase() : "PENDING") {
+            case "PAID" -> "Đã thanh toán";
+            case "REFUNDED" -> "Đã hoàn tiền";
+            default -> "Chưa thanh toán";
+        };
+    }
+
+    /**
+     * Chuyển đổi relationship enum sang tiếng Việt
+     */
+    private static String relationshipLabel(String relationship) {
+        if (relationship == null || relationship.trim().isEmpty()) {
+            return "Bản thân";
+        }
+        return switch (relationship.toUpperCase()) {
+            case "SELF" -> "Bản thân";
+            case "CHILD" -> "Con cái";
+            case "PARENT" -> "Bố/Mẹ";
+            case "SPOUSE" -> "Vợ/Chồng";
+            case "SIBLING" -> "Anh/Chị/Em";
+            case "OTHER" -> "Khác";
+            default -> relationship;
+        };
+    }
+}
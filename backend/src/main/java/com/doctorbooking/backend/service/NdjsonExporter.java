@@ -0,0 +1,90 @@
+package com.doctorbooking.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Xuất danh sách dạng NDJSON (mỗi dòng một JSON object) bằng cách đọc kết quả query theo luồng (JPA Stream):
+ * không bao giờ giữ toàn bộ bảng trên heap.
+ *
+ * - Query chạy trong transaction chỉ đọc, fetch size lấy từ app.export.fetch-size
+ *   (MySQL Connector/J: Integer.MIN_VALUE = đọc từng dòng từ server)
+ * - Query phải JOIN FETCH mọi quan hệ mà mapper dùng: khi đang stream, connection không chạy được query khác
+ * - Cứ flush-every dòng thì flush ra client và clear persistence context
+ */
+@Component
+@RequiredArgsConstructor
+public class NdjsonExporter {
+
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.export.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    @Value("${app.export.flush-every:500}")
+    private int flushEvery;
+
+    private TransactionTemplate readOnlyTx;
+    private ObjectWriter writer;
+
+    @PostConstruct
+    void init() {
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Chạy jpql, map từng entity qua mapper và ghi ra out. Trả về số dòng đã ghi.
+     */
+    public <E> long export(OutputStream out, String jpql, Class<E> type, Map<String, Object> params,
+                           Function<E, ?> mapper) {
+        Long written = readOnlyTx.execute(status -> {
+            TypedQuery<E> query = entityManager.createQuery(jpql, type)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true);
+            params.forEach(query::setParameter);
+            long count = 0;
+            try (Stream<E> rows = query.getResultStream()) {
+                Iterator<E> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(out, mapper.apply(iterator.next()));
+                    out.write('\n');
+                    if (++count % flushEvery == 0) {
+                        entityManager.clear();
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                // Client ngắt kết nối giữa chừng: dừng đọc và đóng result set
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+        return written != null ? written : 0;
+    }
+}
@@ -20,6 +20,7 @@ public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final PatientRepository patientRepository;
+    private final ResourceVersions resourceVersions;
 
     /**
      * Tạo thông báo mới
@@ -44,11 +45,27 @@ public class NotificationService {
         notification.setIsRead(false);
 
         Notification saved = notificationRepository.save(notification);
+        resourceVersions.bump(ResourceVersions.Resource.NOTIFICATIONS, patientId);
         logger.info("✅ Notification created: ID={}, Type={}, PatientID={}", saved.getId(), type, patientId);
         
         return saved;
     }
 
+    /**
+     * Lưu nhiều thông báo đã dựng sẵn (patient đã được gán) trong một lần, dùng cho các job chạy theo lô
+     */
+    @Transactional
+    public List<Notification> createNotifications(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return notifications;
+        }
+        notifications.forEach(notification -> notification.setIsRead(false));
+        List<Notification> saved = notificationRepository.saveAll(notifications);
+        saved.forEach(n -> resourceVersions.bump(ResourceVersions.Resource.NOTIFICATIONS, n.getPatient().getId()));
+        logger.info("✅ {} notifications created", saved.size());
+        return saved;
+    }
+
     /**
      * Lấy tất cả thông báo của patient
      */
@@ -78,6 +95,7 @@ public class NotificationService {
 
         notification.setIsRead(true);
         notificationRepository.save(notification);
+        resourceVersions.bump(ResourceVersions.Resource.NOTIFICATIONS, patientId);
         logger.info("✅ Notification marked as read: ID={}", notificationId);
     }
 
@@ -91,6 +109,7 @@ public class NotificationService {
             notification.setIsRead(true);
         }
         notificationRepository.saveAll(unreadNotifications);
+        resourceVersions.bump(ResourceVersions.Resource.NOTIFICATIONS, patientId);
         logger.info("✅ All notifications marked as read for patient: {}", patientId);
     }
 
@@ -108,6 +127,7 @@ public class NotificationService {
         }
 
         notificationRepository.delete(notification);
+        resourceVersions.bump(ResourceVersions.Resource.NOTIFICATIONS, patientId);
         logger.info("✅ Notification deleted: ID={}", notificationId);
     }
 }
@@ -0,0 +1,278 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.event.AppointmentBookedEvent;
+import com.doctorbooking.backend.event.AppointmentReminderEvent;
+import com.doctorbooking.backend.model.OutboxMessage;
+import com.doctorbooking.backend.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gửi các message trong outbox.
+ *
+ * Mỗi worker lặp: khóa một lô message đến hạn (FOR UPDATE SKIP LOCKED) và chuyển sang PROCESSING,
+ * commit, gửi cả lô qua một kết nối SMTP (EmailService.sendBatch), rồi đánh dấu DONE cả lô bằng một câu UPDATE. Message lỗi được hẹn gửi lại
+ * với backoff tăng dần, quá max-attempts thì chuyển FAILED. Nhiều worker (và nhiều instance) lấy các lô
+ * khác nhau nên thông lượng tăng theo số worker. Hạn gửi và lease tính theo đồng hồ của database.
+ *
+ * Bảo đảm at-least-once: nếu instance chết sau khi gửi SMTP nhưng trước khi đánh dấu DONE,
+ * message được lấy lại khi hết lease và có thể gửi trùng đúng một lô đó.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.outbox.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.dispatcher.threads:2}")
+    private int threads;
+
+    @Value("${app.outbox.dispatcher.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.outbox.dispatcher.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    @Value("${app.outbox.dispatcher.lease-seconds:600}")
+    private long leaseSeconds;
+
+    @Value("${app.outbox.dispatcher.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.dispatcher.retry-backoff-ms:5000}")
+    private long retryBackoffMs;
+
+    @Value("${app.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    void start() {
+        tx = new TransactionTemplate(transactionManager);
+        if (!enabled) {
+            logger.info("Outbox dispatcher is disabled");
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= threads; i++) {
+            Thread worker = new Thread(this::runLoop, "outbox-dispatcher-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Đánh thức một worker đang chờ (gọi sau khi commit message mới)
+     */
+    public void wakeUp() {
+        if (wakeups.availablePermits() < threads) {
+            wakeups.release();
+        }
+    }
+
+    /**
+     * Xóa các message đã gửi xong quá retention-days
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeDelivered() {
+        Integer removed = tx.execute(status ->
+                outboxMessageRepository.deleteDoneBefore(LocalDateTime.now().minusDays(retentionDays)));
+        if (removed != null && removed > 0) {
+            logger.info("Purged {} delivered outbox messages", removed);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (OutboxMessage.Status status : OutboxMessage.Status.values()) {
+            byStatus.put(status.name(), 0L);
+        }
+        for (Object[] row : outboxMessageRepository.countByStatus()) {
+            byStatus.put(row[0].toString(), (Long) row[1]);
+        }
+        stats.put("messages", byStatus);
+        stats.put("workers", workers.size());
+        stats.put("batches", batches.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                int processed = dispatchBatch();
+                if (processed < batchSize) {
+                    // Hết việc: chờ tới lượt poll tiếp theo hoặc tới khi có message mới
+                    if (wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS)) {
+                        wakeups.drainPermits();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Outbox dispatch failed: {}", e.getMessage(), e);
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lấy và gửi một lô message. Trả về số message đã xử lý.
+     */
+    int dispatchBatch() {
+        List<OutboxMessage> claimed = tx.execute(status -> {
+            List<Long> ids = outboxMessageRepository.lockDueBatch(batchSize);
+            if (ids.isEmpty()) {
+                return List.<OutboxMessage>of();
+            }
+            outboxMessageRepository.markProcessing(ids, TimeUnit.SECONDS.toMicros(leaseSeconds));
+            return outboxMessageRepository.findAllById(ids);
+        });
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        batches.increment();
+
+        List<Long> done = new ArrayList<>(claimed.size());
+        Map<OutboxMessage, Exception> errors = new LinkedHashMap<>();
+        if (!emailService.isSmtpConfigured()) {
+            // SMTP chưa cấu hình: bỏ qua, không cần retry
+            claimed.forEach(message -> done.add(message.getId()));
+        } else {
+            // Dựng toàn bộ email trước, rồi gửi cả lô qua một kết nối SMTP
+            Map<MimeMessage, OutboxMessage> prepared = new LinkedHashMap<>();
+            for (OutboxMessage message : claimed) {
+                try {
+                    prepared.put(prepare(message), message);
+                } catch (Exception e) {
+                    errors.put(message, e);
+                }
+            }
+            Map<MimeMessage, MailException> failures = emailService.sendBatch(prepared.keySet());
+            prepared.forEach((mime, message) -> {
+                MailException error = failures.get(mime);
+                if (error == null) {
+                    done.add(message.getId());
+                } else {
+                    errors.put(message, error);
+                }
+            });
+        }
+
+        tx.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!done.isEmpty()) {
+                outboxMessageRepository.markDone(done, now);
+            }
+            errors.forEach((message, e) -> {
+                String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage());
+                // attempts đã được tăng khi claim
+                int attempts = message.getAttempts();
+                if (attempts >= maxAttempts || !isRetryable(e)) {
+                    outboxMessageRepository.markFailed(message.getId(), now, error);
+                    failed.increment();
+                    logger.error("Outbox message {} ({}) failed after {} attempt(s): {}",
+                            message.getId(), message.getType(), attempts, error);
+                } else {
+                    long delay = retryBackoffMs << Math.min(attempts - 1, 10);
+                    outboxMessageRepository.reschedule(message.getId(), TimeUnit.MILLISECONDS.toMicros(delay), error);
+                    retried.increment();
+                    logger.warn("Outbox message {} ({}) failed (attempt {}/{}), retrying in {} ms: {}",
+                            message.getId(), message.getType(), attempts, maxAttempts, delay, error);
+                }
+            });
+        });
+        delivered.add(done.size());
+        return claimed.size();
+    }
+
+    private MimeMessage prepare(OutboxMessage message) throws Exception {
+        try {
+            return switch (message.getType()) {
+                case APPOINTMENT_CONFIRMATION_EMAIL -> emailService.prepareAppointmentConfirmationEmail(
+                        objectMapper.readValue(message.getPayload(), AppointmentBookedEvent.class));
+                case APPOINTMENT_REMINDER_EMAIL -> emailService.prepareAppointmentReminderEmail(
+                        objectMapper.readValue(message.getPayload(), AppointmentReminderEvent.class));
+            };
+        } catch (MessagingException e) {
+            throw new MailPreparationException(e);
+        }
+    }
+
+    // Lỗi xác thực / dựng message là lỗi cấu hình hoặc dữ liệu, retry cũng không khỏi
+    private static boolean isRetryable(Exception e) {
+        return !(e instanceof MailAuthenticationException
+                || e instanceof MailParseException
+                || e instanceof MailPreparationException
+                || e instanceof com.fasterxml.jackson.core.JsonProcessingException);
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > 500 ? value.substring(0, 500) : value;
+    }
+}
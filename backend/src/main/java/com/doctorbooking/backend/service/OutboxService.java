@@ -0,0 +1,64 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.model.OutboxMessage;
+import com.doctorbooking.backend.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi message vào outbox trong transaction hiện tại của nghiệp vụ.
+ * Transaction rollback thì message cũng mất theo; commit thì chắc chắn sẽ được gửi.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final OutboxDispatcher outboxDispatcher;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxMessage enqueue(OutboxMessage.MessageType type, Object payload) {
+        return enqueueAll(type, List.of(payload)).get(0);
+    }
+
+    /**
+     * Ghi nhiều message cùng loại (ví dụ một lô nhắc hẹn) trong transaction hiện tại
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<OutboxMessage> enqueueAll(OutboxMessage.MessageType type, List<?> payloads) {
+        if (payloads.isEmpty()) {
+            return List.of();
+        }
+        List<OutboxMessage> messages = new ArrayList<>(payloads.size());
+        for (Object payload : payloads) {
+            OutboxMessage message = new OutboxMessage();
+            message.setType(type);
+            try {
+                message.setPayload(objectMapper.writeValueAsString(payload));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Cannot serialize outbox payload: " + e.getMessage(), e);
+            }
+            messages.add(message);
+        }
+        messages = outboxMessageRepository.saveAll(messages);
+
+        // Báo dispatcher ngay sau commit, không phải chờ tới lượt poll tiếp theo
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxDispatcher.wakeUp();
+            }
+        });
+        return messages;
+    }
+}
@@ -0,0 +1,260 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.CursorPage;
+import com.doctorbooking.backend.dto.response.PatientResponse;
+import com.doctorbooking.backend.model.Patient;
+import com.doctorbooking.backend.model.PatientSearchKey;
+import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.repository.PatientSearchKeyRepository;
+import com.doctorbooking.backend.util.KeysetCursor;
+import com.doctorbooking.backend.util.SearchText;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Tìm bệnh nhân bằng bảng patient_search_keys thay cho LIKE '%kw%' / CAST(id AS string) (quét cả bảng patients).
+ *
+ * - Từ khóa chỉ gồm số: tìm đúng id (khóa chính) và đúng số điện thoại (term "tel:...")
+ * - Từ khóa chữ: mỗi từ (đã bỏ dấu) phải là tiền tố của một từ trong họ tên.
+ *   Từ dài nhất dẫn đường (quét index (term, patient_id) từ cursor), các từ còn lại kiểm tra bằng EXISTS trên cùng index,
+ *   nên một trang chỉ đọc vài chục dòng index dù bảng có bao nhiêu bệnh nhân
+ * - Khóa được cập nhật trong cùng transaction với thao tác tạo/sửa bệnh nhân; dữ liệu cũ được bổ sung khi khởi động
+ */
+@Service
+@RequiredArgsConstructor
+public class PatientSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientSearchService.class);
+
+    static final String PHONE_PREFIX = "tel:";
+    // Từ trong họ tên dài hơn thì chỉ lưu tiền tố 20 ký tự
+    private static final int MAX_PREFIX = 20;
+    private static final int MAX_QUERY_WORDS = 4;
+    private static final int MIN_PHONE_DIGITS = 8;
+    private static final Pattern NUMERIC = Pattern.compile("[+\\d\\s.()-]*\\d[+\\d\\s.()-]*");
+
+    private final PatientRepository patientRepository;
+    private final PatientSearchKeyRepository patientSearchKeyRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.patients.search.backfill-batch:500}")
+    private int backfillBatch;
+
+    private TransactionTemplate transactionTemplate;
+    private final LongAdder idOrPhoneSearches = new LongAdder();
+    private final LongAdder nameSearches = new LongAdder();
+    private final LongAdder reindexed = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Khóa tìm kiếm của một bệnh nhân: tiền tố các từ trong họ tên và số điện thoại
+     */
+    static Set<String> keysOf(Patient patient) {
+        Set<String> keys = new HashSet<>();
+        for (String word : SearchText.tokens(patient.getFullName())) {
+            for (int length = 1; length <= Math.min(word.length(), MAX_PREFIX); length++) {
+                keys.add(word.substring(0, length));
+            }
+        }
+        String phone = normalizePhone(patient.getPhone());
+        if (phone != null) {
+            keys.add(PHONE_PREFIX + phone);
+        }
+        return keys;
+    }
+
+    /**
+     * Chỉ giữ chữ số, đầu số +84/84 đổi thành 0; null nếu quá ngắn để là số điện thoại
+     */
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = phone.replaceAll("\\D", "");
+        if (digits.startsWith("84") && digits.length() >= 11) {
+            digits = "0" + digits.substring(2);
+        }
+        return digits.length() >= MIN_PHONE_DIGITS && digits.length() <= 15 ? digits : null;
+    }
+
+    /**
+     * Cập nhật khóa tìm kiếm theo họ tên / số điện thoại hiện tại (gọi trong transaction, sau khi save patient)
+     */
+    public void index(Patient patient) {
+        Set<String> wanted = keysOf(patient);
+        Set<String> existing = new HashSet<>(patientSearchKeyRepository.findTerms(patient.getId()));
+        Set<String> stale = new HashSet<>(existing);
+        stale.removeAll(wanted);
+        if (!stale.isEmpty()) {
+            patientSearchKeyRepository.deleteTerms(patient.getId(), stale);
+        }
+        List<PatientSearchKey> added = new ArrayList<>();
+        for (String term : wanted) {
+            if (!existing.contains(term)) {
+                added.add(new PatientSearchKey(null, term, patient));
+            }
+        }
+        patientSearchKeyRepository.saveAll(added);
+    }
+
+    /**
+     * Một trang bệnh nhân khớp keyword (id tăng dần). keyword trống: toàn bộ bệnh nhân theo trang.
+     */
+    public CursorPage<PatientResponse> search(String keyword, String cursor, Integer limit) {
+        int size = CursorPage.pageSize(limit);
+        long afterId = KeysetCursor.decodeId(cursor);
+        String trimmed = keyword == null ? "" : keyword.trim();
+
+        if (trimmed.isEmpty()) {
+            List<PatientResponse> rows = patientRepository.findPage(afterId, PageRequest.of(0, size + 1)).stream()
+                    .map(PatientResponse::fromEntity)
+                    .collect(Collectors.toList());
+            return CursorPage.of(rows, size, last -> KeysetCursor.encode(last.getId()));
+        }
+
+        if (NUMERIC.matcher(trimmed).matches()) {
+            idOrPhoneSearches.increment();
+            // Vài kết quả là cùng: trả về một trang, không có trang sau
+            return new CursorPage<>(load(findByIdOrPhone(trimmed, afterId, size)), null);
+        }
+
+        nameSearches.increment();
+        List<Long> ids = findByName(trimmed, afterId, size + 1);
+        List<PatientResponse> rows = load(ids);
+        return CursorPage.of(rows, size, last -> KeysetCursor.encode(last.getId()));
+    }
+
+    /**
+     * Bổ sung khóa cho bệnh nhân chưa có (dữ liệu trước khi có bảng patient_search_keys), theo từng lô
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long afterId = 0;
+        long total = 0;
+        while (true) {
+            long from = afterId;
+            List<Long> batch;
+            try {
+                batch = transactionTemplate.execute(status -> {
+                    List<Patient> patients = patientRepository.findWithoutSearchKeys(from, PageRequest.of(0, backfillBatch));
+                    patients.forEach(this::index);
+                    return patients.stream().map(Patient::getId).toList();
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Instance khác đang bổ sung cùng lô: lần chạy sau sẽ nhận phần còn thiếu
+                logger.info("Patient search backfill stopped by a concurrent writer after {} patients", total);
+                break;
+            }
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            total += batch.size();
+            afterId = batch.get(batch.size() - 1);
+        }
+        reindexed.add(total);
+        if (total > 0) {
+            logger.info("Patient search keys backfilled for {} patients", total);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("idOrPhoneSearches", idOrPhoneSearches.sum());
+        snapshot.put("nameSearches", nameSearches.sum());
+        snapshot.put("backfilled", reindexed.sum());
+        return snapshot;
+    }
+
+    private List<Long> findByIdOrPhone(String keyword, long afterId, int size) {
+        Set<Long> ids = new TreeSet<>();
+        String digits = keyword.replaceAll("\\D", "");
+        if (digits.length() <= 18 && keyword.matches("\\d+")) {
+            long id = Long.parseLong(digits);
+            if (id > afterId && patientRepository.existsById(id)) {
+                ids.add(id);
+            }
+        }
+        String phone = normalizePhone(keyword);
+        if (phone != null) {
+            ids.addAll(patientSearchKeyRepository.findPatientIds(PHONE_PREFIX + phone, PageRequest.of(0, size)));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private List<Long> findByName(String keyword, long afterId, int limit) {
+        // Từ dài nhất thường ít bệnh nhân khớp nhất nên dùng để dẫn đường
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(SearchText.tokens(keyword)));
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        words.sort(Comparator.comparingInt(String::length).reversed());
+        words = words.subList(0, Math.min(words.size(), MAX_QUERY_WORDS));
+
+        StringBuilder jpql = new StringBuilder(
+                "SELECT k.patient.id FROM PatientSearchKey k WHERE k.term = :t0 AND k.patient.id > :afterId");
+        for (int i = 1; i < words.size(); i++) {
+            jpql.append(" AND EXISTS (SELECT 1 FROM PatientSearchKey k").append(i)
+                    .append(" WHERE k").append(i).append(".term = :t").append(i)
+                    .append(" AND k").append(i).append(".patient = k.patient)");
+        }
+        jpql.append(" ORDER BY k.patient.id");
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            query.setParameter("t" + i, word.length() > MAX_PREFIX ? word.substring(0, MAX_PREFIX) : word);
+        }
+        return query.getResultList();
+    }
+
+    private List<PatientResponse> load(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Patient> byId = patientRepository.findAllWithUserByIdIn(ids).stream()
+                .collect(Collectors.toMap(Patient::getId, p -> p));
+        List<PatientResponse> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Patient patient = byId.get(id);
+            if (patient != null) {
+                rows.add(PatientResponse.fromEntity(patient));
+            }
+        }
+        return rows;
+    }
+}
@@ -2,6 +2,7 @@ package com.doctorbooking.backend.service;
 
 import com.doctorbooking.backend.dto.request.ChangePasswordRequest;
 import com.doctorbooking.backend.dto.request.UpdatePatientProfileRequest;
+import com.doctorbooking.backend.dto.response.CursorPage;
 import com.doctorbooking.backend.dto.response.PatientResponse;
 import com.doctorbooking.backend.dto.response.TreatmentResponse;
 import com.doctorbooking.backend.model.Patient;
@@ -14,7 +15,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,16 +28,37 @@ public class PatientService {
     private final TreatmentRepository treatmentRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final NdjsonExporter ndjsonExporter;
+    private final PatientSearchService patientSearchService;
 
+    /**
+     * Không có từ khóa: toàn bộ bệnh nhân. Có từ khóa: tối đa CursorPage.MAX_PAGE_SIZE kết quả đầu tiên
+     * (trang sau lấy qua getPatientPage)
+     */
     public List<PatientResponse> searchPatients(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return patientRepository.findAll().stream()
                     .map(PatientResponse::fromEntity)
                     .collect(Collectors.toList());
         }
-        return patientRepository.searchPatients(keyword).stream()
-                .map(PatientResponse::fromEntity)
-                .collect(Collectors.toList());
+        return patientSearchService.search(keyword, null, CursorPage.MAX_PAGE_SIZE).getItems();
+    }
+
+    /**
+     * Danh sách bệnh nhân theo trang (id tăng dần), lọc theo từ khóa tùy chọn
+     */
+    public CursorPage<PatientResponse> getPatientPage(String keyword, String cursor, Integer limit) {
+        return patientSearchService.search(keyword, cursor, limit);
+    }
+
+    /**
+     * Xuất toàn bộ bệnh nhân dạng NDJSON, đọc theo luồng
+     */
+    public long exportPatients(OutputStream out) {
+        return ndjsonExporter.export(out, "SELECT p FROM Patient p JOIN FETCH p.user ORDER BY p.id",
+                Patient.class, Map.of(), PatientResponse::fromEntity);
     }
 
     public PatientResponse getPatientById(Long id) {
@@ -96,6 +120,7 @@ public class PatientService {
         }
 
         patient = patientRepository.save(patient);
+        patientSearchService.index(patient);
         return PatientResponse.fromEntity(patient);
     }
 
@@ -113,6 +138,8 @@ public class PatientService {
         user.setPassword(request.getNewPassword()); // Plain text
         // user.setPassword(passwordEncoder.encode(request.getNewPassword())); // BCrypt - uncomment sau khi test xong
         userRepository.save(user);
+        principalCache.evictUser(userId);
+        tokenVersionRegistry.bump(userId);
     }
 }
 
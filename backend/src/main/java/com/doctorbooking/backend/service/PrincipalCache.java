@@ -0,0 +1,120 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache các User đã xác thực theo username/email dùng khi login hoặc trong JWT.
+ * Mỗi entry có TTL, tổng số entry bị giới hạn bởi max-size.
+ * Các thao tác ghi lên User (update, toggle, delete, đổi mật khẩu) phải gọi evictUser().
+ */
+@Component
+public class PrincipalCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Value("${app.security.principal-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.security.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    public User get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.user;
+    }
+
+    public void put(String key, User user) {
+        if (entries.size() >= maxSize) {
+            purge();
+        }
+        entries.put(key, new Entry(user, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    /**
+     * Xóa mọi entry của user (cả key username lẫn email).
+     * Nếu đang trong transaction thì xóa thêm một lần sau khi commit,
+     * tránh trường hợp request khác nạp lại dữ liệu cũ trước khi commit.
+     */
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        removeUser(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeUser(userId);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void removeUser(Long userId) {
+        entries.entrySet().removeIf(e -> {
+            boolean match = userId.equals(e.getValue().user.getId());
+            if (match) {
+                evictions.increment();
+            }
+            return match;
+        });
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt < now);
+        // Vẫn đầy: bỏ các entry sắp hết hạn nhất cho đến khi còn chỗ
+        while (!entries.isEmpty() && entries.size() >= maxSize) {
+            entries.entrySet().stream()
+                    .min((a, b) -> Long.compare(a.getValue().expiresAt, b.getValue().expiresAt))
+                    .ifPresent(oldest -> {
+                        entries.remove(oldest.getKey(), oldest.getValue());
+                        evictions.increment();
+                    });
+        }
+    }
+
+    private record Entry(User user, long expiresAt) {
+    }
+}
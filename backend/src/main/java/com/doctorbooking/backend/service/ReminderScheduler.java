@@ -0,0 +1,307 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.model.Appointment;
+import com.doctorbooking.backend.repository.AppointmentRepository;
+import com.doctorbooking.backend.service.SchedulerNodeRegistry.Partition;
+import com.doctorbooking.backend.util.TimerWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lập lịch nhắc hẹn bằng timer wheel trong bộ nhớ: mỗi appointment có tối đa hai timer
+ * (24h và 1h trước giờ khám), chạy đúng thời điểm đến hạn thay vì quét bảng appointments định kỳ.
+ *
+ * - Khi khởi động (và mỗi ngày một lần) nạp các appointment trong load-days ngày tới
+ * - Đặt lịch / đổi giờ / hủy / hoàn thành / xóa cập nhật timer SAU KHI transaction commit
+ * - Timer đến hạn được gom theo loại và gửi qua AppointmentReminderService.sendDueReminders();
+ *   lô lỗi được hẹn chạy lại sau retry-delay
+ *
+ * Chạy nhiều instance: mỗi instance chỉ nạp các appointment thuộc phần của mình (id % số instance sống,
+ * xem SchedulerNodeRegistry) và nạp lại khi số instance thay đổi. Timer do chính instance đặt khi xử lý
+ * request vẫn được giữ; nếu hai instance cùng chạy một nhắc hẹn thì khóa dòng + cờ reminderSent
+ * trong sendDueReminders() đảm bảo chỉ gửi một lần.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReminderScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentReminderService appointmentReminderService;
+    private final SchedulerNodeRegistry schedulerNodeRegistry;
+
+    @Value("${app.reminders.wheel.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reminders.wheel.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${app.reminders.wheel.load-days:7}")
+    private int loadDays;
+
+    @Value("${app.reminders.wheel.retry-delay-ms:60000}")
+    private long retryDelayMs;
+
+    @Value("${app.reminders.wheel.catch-up-ms:3600000}")
+    private long catchUpMs;
+
+    @Value("${app.reminders.page-size:200}")
+    private int pageSize;
+
+    private TimerWheel<ReminderKey> wheel;
+    private Thread ticker;
+    private volatile boolean running;
+    private volatile Partition partition = Partition.ALL;
+
+    /**
+     * Thời điểm cần gửi nhắc hẹn (giờ khám trừ đi hoursBefore), theo múi giờ của server
+     */
+    public static long dueAt(LocalDate date, LocalTime time, int hoursBefore) {
+        return LocalDateTime.of(date, time).minusHours(hoursBefore)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        synchronized (this) {
+            wheel = new TimerWheel<>(tickMillis, System.currentTimeMillis());
+        }
+        if (!enabled) {
+            logger.info("Reminder timer wheel is disabled");
+            return;
+        }
+        partition = schedulerNodeRegistry.heartbeat();
+        reload();
+        running = true;
+        ticker = new Thread(this::runLoop, "reminder-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+            schedulerNodeRegistry.leave();
+        }
+    }
+
+    /**
+     * Gia hạn lease của instance; khi có instance vào / rời cụm thì nạp lại phần việc mới.
+     * Phần của instance đã chết được các instance còn lại nhận sau tối đa lease-ms + heartbeat-ms;
+     * nhắc hẹn đến hạn trong khoảng đó được gửi ngay khi nạp lại.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.heartbeat-ms:10000}", initialDelayString = "${app.cluster.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (!running) {
+            return;
+        }
+        try {
+            Partition next = schedulerNodeRegistry.heartbeat();
+            if (!next.equals(partition)) {
+                logger.info("Reminder partition changed from {}/{} to {}/{}",
+                        partition.index(), partition.count(), next.index(), next.count());
+                partition = next;
+                reload();
+            }
+        } catch (Exception e) {
+            logger.warn("Reminder scheduler heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại các appointment sắp tới vào wheel (idempotent, timer cũ được thay thế).
+     * Chạy mỗi ngày để nạp các appointment vừa lọt vào cửa sổ load-days.
+     */
+    @Scheduled(cron = "0 5 0 * * *")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        Partition current = partition;
+        LocalDate today = LocalDate.now();
+        LocalDate to = today.plusDays(loadDays);
+        LocalDate afterDate = today;
+        long afterId = 0;
+        int loaded = 0;
+        while (true) {
+            List<Object[]> rows = appointmentRepository.findUpcomingForReminders(
+                    today, to, afterDate, afterId, current.index(), current.count(), PageRequest.of(0, pageSize));
+            for (Object[] row : rows) {
+                schedule((Long) row[0], (LocalDate) row[1], (LocalTime) row[2], (Boolean) row[3], (Boolean) row[4], catchUpMs);
+            }
+            loaded += rows.size();
+            if (rows.size() < pageSize) {
+                break;
+            }
+            Object[] last = rows.get(rows.size() - 1);
+            afterDate = (LocalDate) last[1];
+            afterId = (Long) last[0];
+        }
+        logger.info("Loaded {} upcoming appointments of partition {}/{} into the reminder wheel ({} timers)",
+                loaded, current.index(), current.count(), size());
+    }
+
+    /**
+     * Đặt (hoặc đặt lại) timer nhắc hẹn cho appointment sau khi transaction commit
+     */
+    public void schedule(Appointment appointment) {
+        Long id = appointment.getId();
+        LocalDate date = appointment.getAppointmentDate();
+        LocalTime time = appointment.getAppointmentTime();
+        boolean sent24h = Boolean.TRUE.equals(appointment.getReminder24hSent());
+        boolean sent1h = Boolean.TRUE.equals(appointment.getReminder1hSent());
+        boolean active = SlotClaimService.isActive(appointment);
+        afterCommit(() -> {
+            if (active) {
+                schedule(id, date, time, sent24h, sent1h, 0);
+            } else {
+                cancel(id);
+            }
+        });
+    }
+
+    /**
+     * Hủy các timer nhắc hẹn của appointment sau khi transaction commit
+     */
+    public void unschedule(Long appointmentId) {
+        afterCommit(() -> cancel(appointmentId));
+    }
+
+    public synchronized int size() {
+        return wheel != null ? wheel.size() : 0;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("timers", size());
+        snapshot.put("node", schedulerNodeRegistry.getNodeId());
+        snapshot.put("partition", partition.index());
+        snapshot.put("partitions", partition.count());
+        return snapshot;
+    }
+
+    /**
+     * lateness24hMs: nhắc 24h đã trễ hạn tối đa bao lâu thì vẫn gửi bù. Đặt lịch mới = 0 (đặt trong vòng 24h
+     * trước giờ khám thì không nhắc 24h); nạp lại = catch-up-ms (gửi bù nhắc hẹn lỡ khi instance khởi động
+     * lại hoặc nhận phần việc của instance đã chết).
+     */
+    private synchronized void schedule(Long id, LocalDate date, LocalTime time, boolean sent24h, boolean sent1h,
+                                       long lateness24hMs) {
+        if (wheel == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long appointmentAt = dueAt(date, time, 0);
+        wheel.cancel(new ReminderKey(id, 24));
+        wheel.cancel(new ReminderKey(id, 1));
+        if (appointmentAt <= now) {
+            return;
+        }
+        long due1h = dueAt(date, time, 1);
+        if (!sent1h) {
+            wheel.schedule(new ReminderKey(id, 1), due1h);
+        }
+        // Đã qua mốc 1h thì chỉ cần nhắc 1h
+        long due24h = dueAt(date, time, 24);
+        if (!sent24h && now < due1h && now <= due24h + lateness24hMs) {
+            wheel.schedule(new ReminderKey(id, 24), due24h);
+        }
+    }
+
+    private synchronized void cancel(Long id) {
+        if (wheel != null) {
+            wheel.cancel(new ReminderKey(id, 24));
+            wheel.cancel(new ReminderKey(id, 1));
+        }
+    }
+
+    private synchronized List<ReminderKey> advance(long now) {
+        return wheel.advance(now);
+    }
+
+    private synchronized void retryLater(List<Long> ids, int hoursBefore) {
+        long due = System.currentTimeMillis() + retryDelayMs;
+        for (Long id : ids) {
+            wheel.schedule(new ReminderKey(id, hoursBefore), due);
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                TimeUnit.MILLISECONDS.sleep(tickMillis - now % tickMillis);
+                fire(advance(System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Reminder wheel tick failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Gửi các nhắc hẹn đến hạn, gom theo loại và chia lô theo page-size
+     */
+    void fire(List<ReminderKey> due) {
+        if (due.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<Long>> byKind = new LinkedHashMap<>();
+        for (ReminderKey key : due) {
+            byKind.computeIfAbsent(key.hoursBefore(), k -> new ArrayList<>()).add(key.appointmentId());
+        }
+        byKind.forEach((hoursBefore, ids) -> {
+            for (int from = 0; from < ids.size(); from += pageSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + pageSize, ids.size()));
+                try {
+                    appointmentReminderService.sendDueReminders(hoursBefore, batch);
+                } catch (Exception e) {
+                    logger.error("❌ {}h reminder batch failed, retrying in {} ms", hoursBefore, retryDelayMs, e);
+                    retryLater(batch, hoursBefore);
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    record ReminderKey(Long appointmentId, int hoursBefore) {
+    }
+}
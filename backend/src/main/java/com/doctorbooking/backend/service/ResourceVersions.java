@@ -0,0 +1,107 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.util.ETags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Version stamp trong bộ nhớ cho dữ liệu theo từng bệnh nhân (lịch hẹn, ví, thông báo), dùng làm ETag
+ * để các endpoint hay bị poll trả 304 mà không query database.
+ *
+ * - Thao tác ghi gọi bump(): stamp bị xóa ngay và thêm lần nữa sau commit, nên ETag cấp cho dữ liệu
+ *   đọc trước khi commit không bao giờ còn hiệu lực sau commit
+ * - Lần đọc sau tạo stamp mới với version tăng dần trên toàn instance
+ * - ETag chứa id của instance (đổi mỗi lần khởi động): ETag của instance khác hoặc trước khi restart không bao giờ khớp
+ * - Stamp chỉ sống ttl-seconds: ghi ở instance khác không bump được bảng này, nên độ cũ bị giới hạn bởi TTL
+ */
+@Component
+public class ResourceVersions {
+
+    public enum Resource {
+        APPOINTMENTS, WALLET, NOTIFICATIONS
+    }
+
+    private final String instance = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<Key, Stamp> stamps = new ConcurrentHashMap<>();
+    private final AtomicLong nextVersion = new AtomicLong();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder bumps = new LongAdder();
+
+    @Value("${app.http.etag.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${app.http.etag.max-size:100000}")
+    private int maxSize;
+
+    /**
+     * ETag hiện tại của resource của bệnh nhân. Phải lấy TRƯỚC khi đọc dữ liệu để trả về.
+     */
+    public String etag(Resource resource, Long patientId) {
+        long now = System.currentTimeMillis();
+        Key key = new Key(resource, patientId);
+        Stamp stamp = stamps.get(key);
+        if (stamp == null || stamp.expiresAt < now) {
+            if (stamps.size() >= maxSize) {
+                purge(now);
+            }
+            Stamp fresh = new Stamp(nextVersion.incrementAndGet(), now + ttlSeconds * 1000);
+            // Nếu luồng khác vừa tạo stamp còn hạn thì dùng stamp đó
+            stamp = stamps.compute(key, (k, old) -> old != null && old.expiresAt >= now ? old : fresh);
+            if (stamp == fresh) {
+                issued.increment();
+            }
+        }
+        return ETags.quote(resource.name().toLowerCase(Locale.ROOT) + "-" + instance + "-" + stamp.version);
+    }
+
+    /**
+     * Dữ liệu resource của bệnh nhân đã (hoặc sắp, khi transaction commit) thay đổi
+     */
+    public void bump(Resource resource, Long patientId) {
+        if (patientId == null) {
+            return;
+        }
+        Key key = new Key(resource, patientId);
+        stamps.remove(key);
+        bumps.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stamps.remove(key);
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("size", stamps.size());
+        snapshot.put("issued", issued.sum());
+        snapshot.put("bumps", bumps.sum());
+        return snapshot;
+    }
+
+    private void purge(long now) {
+        stamps.entrySet().removeIf(e -> e.getValue().expiresAt < now);
+        if (stamps.size() >= maxSize) {
+            stamps.clear();
+        }
+    }
+
+    private record Key(Resource resource, Long patientId) {
+    }
+
+    private record Stamp(long version, long expiresAt) {
+    }
+}
@@ -0,0 +1,245 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.request.DoctorScheduleRequest;
+import com.doctorbooking.backend.dto.response.DoctorScheduleResponse;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.DoctorSchedule;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.DoctorScheduleRepository;
+import com.doctorbooking.backend.util.MinuteBitmap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Lịch làm việc của bác sĩ, được biên dịch một lần thành bitmap slot cho từng thứ trong tuần và cache lại.
+ * Tính slot trống = bitmap của ngày AND NOT bitmap đã đặt (SlotAvailabilityIndex).
+ */
+@Service
+@RequiredArgsConstructor
+public class ScheduleTemplateService {
+
+    // Lịch mặc định, cho ra đúng 17 slot cũ (08:00 - 11:30, 13:00 - 17:00)
+    private static final CompiledSchedule DEFAULT_SCHEDULE = compile(new DoctorSchedule(), 0);
+
+    private final DoctorScheduleRepository doctorScheduleRepository;
+    private final DoctorRepository doctorRepository;
+
+    private final Map<Long, CompiledSchedule> compiled = new ConcurrentHashMap<>();
+    private final AtomicLong writeSequence = new AtomicLong();
+
+    /**
+     * Bitmap các slot bắt đầu trong ngày (bitmap rỗng nếu là ngày nghỉ). Không được sửa mảng trả về.
+     */
+    public long[] getSlotMask(Long doctorId, LocalDate date) {
+        return getCompiled(doctorId).slotsFor(date);
+    }
+
+    public boolean isBookable(Long doctorId, LocalDate date, LocalTime time) {
+        return MinuteBitmap.isSet(getSlotMask(doctorId, date), MinuteBitmap.toMinute(time));
+    }
+
+    /**
+     * Nạp trước lịch của nhiều bác sĩ bằng một query (dùng cho API xem lịch trống nhiều bác sĩ)
+     */
+    public void preload(Collection<Long> doctorIds) {
+        Set<Long> missing = new HashSet<>();
+        for (Long doctorId : doctorIds) {
+            if (!compiled.containsKey(doctorId)) {
+                missing.add(doctorId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        long sequence = writeSequence.get();
+        Map<Long, CompiledSchedule> loaded = new HashMap<>();
+        for (Long doctorId : missing) {
+            loaded.put(doctorId, DEFAULT_SCHEDULE);
+        }
+        for (DoctorSchedule schedule : doctorScheduleRepository.findByDoctorIdIn(missing)) {
+            loaded.put(schedule.getDoctor().getId(), compile(schedule, bufferOf(schedule)));
+        }
+        if (writeSequence.get() == sequence) {
+            compiled.putAll(loaded);
+        }
+    }
+
+    public DoctorScheduleResponse getSchedule(Long doctorId) {
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + doctorId));
+        return doctorScheduleRepository.findByDoctorId(doctorId)
+                .map(schedule -> toResponse(schedule, doctor, true))
+                .orElseGet(() -> toResponse(new DoctorSchedule(), doctor, false));
+    }
+
+    @Transactional
+    public DoctorScheduleResponse updateSchedule(Long doctorId, DoctorScheduleRequest request) {
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + doctorId));
+
+        if (!request.getWorkStart().isBefore(request.getWorkEnd())) {
+            throw new RuntimeException("Work start must be before work end");
+        }
+        if ((request.getBreakStart() == null) != (request.getBreakEnd() == null)) {
+            throw new RuntimeException("Break start and break end must be provided together");
+        }
+        if (request.getBreakStart() != null && !request.getBreakStart().isBefore(request.getBreakEnd())) {
+            throw new RuntimeException("Break start must be before break end");
+        }
+
+        DoctorSchedule schedule = doctorScheduleRepository.findByDoctorId(doctorId)
+                .orElseGet(() -> {
+                    DoctorSchedule created = new DoctorSchedule();
+                    created.setDoctor(doctor);
+                    return created;
+                });
+        schedule.setWorkStart(request.getWorkStart());
+        schedule.setWorkEnd(request.getWorkEnd());
+        schedule.setBreakStart(request.getBreakStart());
+        schedule.setBreakEnd(request.getBreakEnd());
+        schedule.setSlotMinutes(request.getSlotMinutes());
+        schedule.setWeeklyDaysOff(request.getWeeklyDaysOff() == null || request.getWeeklyDaysOff().isEmpty()
+                ? null
+                : EnumSet.copyOf(request.getWeeklyDaysOff()).stream()
+                        .map(DayOfWeek::name)
+                        .collect(Collectors.joining(",")));
+        schedule.getDaysOff().clear();
+        if (request.getDaysOff() != null) {
+            schedule.getDaysOff().addAll(request.getDaysOff());
+        }
+
+        if (request.getBufferTime() != null) {
+            doctor.setBufferTime(request.getBufferTime());
+            doctorRepository.save(doctor);
+        }
+        schedule = doctorScheduleRepository.save(schedule);
+        evict(doctorId);
+        return toResponse(schedule, doctor, true);
+    }
+
+    @Transactional
+    public void deleteForDoctor(Long doctorId) {
+        doctorScheduleRepository.deleteByDoctorId(doctorId);
+        evict(doctorId);
+    }
+
+    /**
+     * Xóa lịch đã biên dịch; nếu đang trong transaction thì xóa thêm một lần sau khi commit
+     */
+    public void evict(Long doctorId) {
+        writeSequence.incrementAndGet();
+        compiled.remove(doctorId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writeSequence.incrementAndGet();
+                    compiled.remove(doctorId);
+                }
+            });
+        }
+    }
+
+    private CompiledSchedule getCompiled(Long doctorId) {
+        CompiledSchedule schedule = compiled.get(doctorId);
+        if (schedule != null) {
+            return schedule;
+        }
+        long sequence = writeSequence.get();
+        schedule = doctorScheduleRepository.findByDoctorId(doctorId)
+                .map(s -> compile(s, bufferOf(s)))
+                .orElse(DEFAULT_SCHEDULE);
+        if (writeSequence.get() == sequence) {
+            compiled.put(doctorId, schedule);
+        }
+        return schedule;
+    }
+
+    private static int bufferOf(DoctorSchedule schedule) {
+        Integer buffer = schedule.getDoctor().getBufferTime();
+        return buffer != null ? buffer : 0;
+    }
+
+    private static CompiledSchedule compile(DoctorSchedule schedule, int bufferMinutes) {
+        long[] daySlots = MinuteBitmap.create();
+        int slot = schedule.getSlotMinutes();
+        int step = slot + Math.max(bufferMinutes, 0);
+        int end = MinuteBitmap.toMinute(schedule.getWorkEnd());
+        int breakStart = schedule.getBreakStart() != null ? MinuteBitmap.toMinute(schedule.getBreakStart()) : -1;
+        int breakEnd = schedule.getBreakEnd() != null ? MinuteBitmap.toMinute(schedule.getBreakEnd()) : -1;
+
+        int minute = MinuteBitmap.toMinute(schedule.getWorkStart());
+        while (minute + slot <= end) {
+            if (breakStart >= 0 && minute < breakEnd && minute + slot > breakStart) {
+                // Slot chạm giờ nghỉ trưa: bắt đầu lại sau giờ nghỉ
+                minute = breakEnd;
+                continue;
+            }
+            MinuteBitmap.set(daySlots, minute);
+            minute += step;
+        }
+
+        Set<DayOfWeek> weeklyOff = parseWeeklyDaysOff(schedule.getWeeklyDaysOff());
+
+        long[][] slotsByDay = new long[DayOfWeek.values().length][];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            slotsByDay[day.ordinal()] = weeklyOff.contains(day) ? MinuteBitmap.empty() : daySlots;
+        }
+        return new CompiledSchedule(slotsByDay, Set.copyOf(schedule.getDaysOff()));
+    }
+
+    private static DoctorScheduleResponse toResponse(DoctorSchedule schedule, Doctor doctor, boolean customized) {
+        Set<DayOfWeek> weeklyOff = parseWeeklyDaysOff(schedule.getWeeklyDaysOff());
+        return new DoctorScheduleResponse(
+                doctor.getId(),
+                customized,
+                schedule.getWorkStart(),
+                schedule.getWorkEnd(),
+                schedule.getBreakStart(),
+                schedule.getBreakEnd(),
+                schedule.getSlotMinutes(),
+                // Lịch mặc định không áp dụng buffer
+                customized ? doctor.getBufferTime() : Integer.valueOf(0),
+                weeklyOff,
+                Set.copyOf(schedule.getDaysOff())
+        );
+    }
+
+    private static Set<DayOfWeek> parseWeeklyDaysOff(String value) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (value != null && !value.isBlank()) {
+            Arrays.stream(value.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .map(DayOfWeek::valueOf)
+                    .forEach(days::add);
+        }
+        return days;
+    }
+
+    private record CompiledSchedule(long[][] slotsByDay, Set<LocalDate> daysOff) {
+        long[] slotsFor(LocalDate date) {
+            if (daysOff.contains(date)) {
+                return MinuteBitmap.empty();
+            }
+            return slotsByDay[date.getDayOfWeek().ordinal()];
+        }
+    }
+}
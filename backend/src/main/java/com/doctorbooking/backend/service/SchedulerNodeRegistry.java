@@ -0,0 +1,102 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.repository.SchedulerNodeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Danh sách các instance backend đang sống, dựa trên lease trong bảng scheduler_nodes.
+ * Mỗi lần heartbeat: gia hạn lease của instance này, đọc các instance còn lease và trả về
+ * phần việc (Partition) của instance này. Các instance cùng đọc một danh sách sắp theo nodeId
+ * nên chia việc giống nhau mà không cần bầu leader.
+ */
+@Component
+@RequiredArgsConstructor
+public class SchedulerNodeRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerNodeRegistry.class);
+
+    private final SchedulerNodeRepository schedulerNodeRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.cluster.node-id:}")
+    private String nodeId;
+
+    @Value("${app.cluster.lease-ms:30000}")
+    private long leaseMs;
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = defaultNodeId();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Gia hạn lease và trả về phần việc hiện tại của instance này.
+     * Hạn lease và việc instance nào còn sống đều tính theo giờ của database.
+     */
+    public Partition heartbeat() {
+        long leaseMicros = leaseMs * 1_000;
+        List<String> live = tx.execute(status -> {
+            if (schedulerNodeRepository.renewLease(nodeId, leaseMicros) == 0) {
+                schedulerNodeRepository.join(nodeId, leaseMicros);
+                logger.info("Scheduler node {} joined", nodeId);
+            }
+            // Dọn lease đã hết hạn lâu (instance chết không kịp rời cụm)
+            schedulerNodeRepository.deleteExpired(leaseMicros * 10);
+            return schedulerNodeRepository.findLiveNodeIds();
+        });
+        return new Partition(live.indexOf(nodeId), live.size());
+    }
+
+    /**
+     * Rời cụm: xóa lease để các instance khác nhận phần việc ngay ở heartbeat kế tiếp
+     */
+    public void leave() {
+        try {
+            tx.executeWithoutResult(status -> schedulerNodeRepository.deleteById(nodeId));
+        } catch (RuntimeException e) {
+            logger.warn("Could not remove scheduler node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Phần việc của một instance: các id có id % count == index
+     */
+    public record Partition(int index, int count) {
+
+        public static final Partition ALL = new Partition(0, 1);
+
+        public boolean owns(long id) {
+            return Math.floorMod(id, count) == index;
+        }
+    }
+}
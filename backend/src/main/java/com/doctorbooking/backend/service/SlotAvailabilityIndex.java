@@ -0,0 +1,198 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.repository.AppointmentRepository;
+import com.doctorbooking.backend.util.MinuteBitmap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Index các slot đã được đặt (PENDING/CONFIRMED) theo (bác sĩ, ngày), lưu dạng bitmap theo phút trong ngày
+ * (1440 bit = 23 long cho mỗi bác sĩ/ngày).
+ *
+ * - Miss: nạp lại từ database bằng một query chỉ lấy appointment_time
+ * - Các thao tác đặt/hủy/sửa/xóa lịch cập nhật index SAU KHI transaction commit
+ * - Bitmap là bất biến (copy-on-write) nên reader không cần lock
+ */
+@Component
+@RequiredArgsConstructor
+public class SlotAvailabilityIndex {
+
+    private final AppointmentRepository appointmentRepository;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    // Tăng sau mỗi lần ghi; loader chỉ đưa kết quả vào cache nếu không có lần ghi nào xen giữa
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Value("${app.slots.index.max-size:20000}")
+    private int maxSize;
+
+    // Giới hạn độ cũ khi chạy nhiều instance (mỗi instance có index riêng)
+    @Value("${app.slots.index.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    /**
+     * Bitmap các phút đã có lịch của bác sĩ trong ngày (không được sửa mảng trả về)
+     */
+    public long[] getBooked(Long doctorId, LocalDate date) {
+        Key key = new Key(doctorId, date);
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.expiresAt > now) {
+            hits.increment();
+            return entry.bits;
+        }
+        misses.increment();
+
+        long sequence = writeSequence.get();
+        long[] bits = MinuteBitmap.create();
+        List<LocalTime> bookedTimes = appointmentRepository.findBookedTimes(doctorId, date);
+        for (LocalTime time : bookedTimes) {
+            MinuteBitmap.set(bits, MinuteBitmap.toMinute(time));
+        }
+
+        if (writeSequence.get() == sequence) {
+            if (entries.size() >= maxSize) {
+                purge();
+            }
+            entries.put(key, new Entry(bits, now + ttlSeconds * 1000));
+        }
+        return bits;
+    }
+
+    /**
+     * Bitmap đã đặt cho nhiều bác sĩ trong khoảng ngày [from, to].
+     * Các cặp (bác sĩ, ngày) chưa có trong cache được nạp bằng đúng một query theo khoảng ngày.
+     */
+    public Map<Long, Map<LocalDate, long[]>> getBookedRange(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+        Map<Long, Map<LocalDate, long[]>> result = new HashMap<>();
+        Map<Key, long[]> loaded = new HashMap<>();
+        Set<Long> missingDoctors = new HashSet<>();
+        long now = System.currentTimeMillis();
+
+        for (Long doctorId : doctorIds) {
+            Map<LocalDate, long[]> days = new HashMap<>();
+            result.put(doctorId, days);
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                Entry entry = entries.get(new Key(doctorId, date));
+                if (entry != null && entry.expiresAt > now) {
+                    hits.increment();
+                    days.put(date, entry.bits);
+                } else {
+                    misses.increment();
+                    missingDoctors.add(doctorId);
+                    loaded.put(new Key(doctorId, date), MinuteBitmap.create());
+                }
+            }
+        }
+        if (loaded.isEmpty()) {
+            return result;
+        }
+
+        long sequence = writeSequence.get();
+        for (Object[] row : appointmentRepository.findBookedSlots(missingDoctors, from, to)) {
+            long[] bits = loaded.get(new Key((Long) row[0], (LocalDate) row[1]));
+            if (bits != null) {
+                MinuteBitmap.set(bits, MinuteBitmap.toMinute((LocalTime) row[2]));
+            }
+        }
+        for (Map.Entry<Key, long[]> e : loaded.entrySet()) {
+            result.get(e.getKey().doctorId).put(e.getKey().date, e.getValue());
+        }
+
+        if (writeSequence.get() == sequence) {
+            if (entries.size() + loaded.size() > maxSize) {
+                purge();
+            }
+            long expiresAt = now + ttlSeconds * 1000;
+            loaded.forEach((key, bits) -> entries.put(key, new Entry(bits, expiresAt)));
+        }
+        return result;
+    }
+
+    public void markBooked(Long doctorId, LocalDate date, LocalTime time) {
+        afterCommit(() -> update(doctorId, date, time, true));
+    }
+
+    public void markFree(Long doctorId, LocalDate date, LocalTime time) {
+        afterCommit(() -> update(doctorId, date, time, false));
+    }
+
+    public void invalidate(Long doctorId, LocalDate date) {
+        afterCommit(() -> {
+            writeSequence.incrementAndGet();
+            entries.remove(new Key(doctorId, date));
+        });
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void update(Long doctorId, LocalDate date, LocalTime time, boolean booked) {
+        writeSequence.incrementAndGet();
+        int minute = MinuteBitmap.toMinute(time);
+        // Chỉ cập nhật khi đã có trong cache; nếu chưa có, lần đọc sau sẽ nạp từ database
+        entries.computeIfPresent(new Key(doctorId, date), (key, entry) -> {
+            long[] copy = entry.bits.clone();
+            if (booked) {
+                MinuteBitmap.set(copy, minute);
+            } else {
+                MinuteBitmap.clear(copy, minute);
+            }
+            return new Entry(copy, entry.expiresAt);
+        });
+    }
+
+    private void purge() {
+        LocalDate today = LocalDate.now();
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> e.getKey().date.isBefore(today) || e.getValue().expiresAt <= now);
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Key(Long doctorId, LocalDate date) {
+    }
+
+    private record Entry(long[] bits, long expiresAt) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.model.Appointment;
+import com.doctorbooking.backend.repository.SlotClaimRepository;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+
+/**
+ * Giữ chỗ slot khám bằng bảng slot_claims (insert có điều kiện trên unique key),
+ * thay cho việc quét cả ngày rồi xóa lịch cũ trước khi insert.
+ */
+@Service
+@RequiredArgsConstructor
+public class SlotClaimService {
+
+    private static final String SLOT_CONSTRAINT = "uk_slot_claims_slot";
+
+    private final SlotClaimRepository slotClaimRepository;
+
+    /**
+     * Giữ slot cho appointment đã được lưu. Trả về false nếu slot đã có lịch hẹn khác giữ;
+     * khi đó transaction hiện tại đã bị đánh dấu rollback, caller phải throw.
+     * Chỉ lỗi trùng unique key uk_slot_claims_slot được hiểu là "slot đã bị giữ",
+     * các lỗi khác (FK, NOT NULL, trùng appointment_id...) vẫn được ném ra.
+     */
+    @Transactional
+    public boolean claim(Appointment appointment) {
+        try {
+            slotClaimRepository.insert(
+                    appointment.getDoctor().getId(),
+                    appointment.getAppointmentDate(),
+                    appointment.getAppointmentTime(),
+                    appointment.getId()
+            );
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (isSlotTaken(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Transactional
+    public void release(Appointment appointment) {
+        slotClaimRepository.deleteByAppointmentId(appointment.getId());
+    }
+
+    /**
+     * Đồng bộ lại chỗ giữ sau khi appointment đổi status/ngày/giờ
+     */
+    @Transactional
+    public void sync(Appointment appointment) {
+        release(appointment);
+        if (isActive(appointment) && !claim(appointment)) {
+            throw new RuntimeException("Appointment slot is already taken");
+        }
+    }
+
+    /**
+     * Native query qua JPA: Spring chỉ dịch thành DataIntegrityViolationException,
+     * loại constraint và tên constraint nằm trong ConstraintViolationException của Hibernate
+     */
+    private static boolean isSlotTaken(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(SLOT_CONSTRAINT);
+    }
+
+    public static boolean isActive(Appointment appointment) {
+        return appointment.getStatus() == Appointment.AppointmentStatus.PENDING
+                || appointment.getStatus() == Appointment.AppointmentStatus.CONFIRMED;
+    }
+}
@@ -0,0 +1,155 @@
+package com.doctorbooking.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool các kết nối SMTP (Transport) đã connect + xác thực sẵn, dùng lại cho nhiều email.
+ * Mỗi lần mở kết nối mới tốn một lượt TCP + STARTTLS + AUTH; gửi một lô qua cùng kết nối chỉ tốn chi phí đó một lần.
+ *
+ * - Tối đa app.mail.pool.size kết nối cùng lúc; borrow() chờ nếu pool đã hết
+ * - Kết nối rảnh quá app.mail.pool.idle-timeout-ms bị đóng (server SMTP thường tự ngắt kết nối rảnh)
+ * - Kết nối bị lỗi được trả về với broken = true và bị đóng luôn
+ */
+@Component
+@RequiredArgsConstructor
+public class SmtpTransportPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final JavaMailSender mailSender;
+
+    @Value("${app.mail.pool.size:2}")
+    private int size;
+
+    @Value("${app.mail.pool.idle-timeout-ms:30000}")
+    private long idleTimeoutMs;
+
+    @Value("${app.mail.pool.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMs;
+
+    private final BlockingDeque<Idle> idle = new LinkedBlockingDeque<>();
+    private Semaphore permits;
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(Math.max(size, 1));
+    }
+
+    /**
+     * Lấy một kết nối đã sẵn sàng gửi. Phải trả lại bằng release() trong finally.
+     */
+    public Transport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Idle candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                if (now - candidate.since() < idleTimeoutMs && candidate.transport().isConnected()) {
+                    reused.increment();
+                    return candidate.transport();
+                }
+                close(candidate.transport());
+            }
+            return open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(Transport transport, boolean broken) {
+        if (broken || !transport.isConnected()) {
+            close(transport);
+        } else {
+            // Dùng lại kết nối vừa trả trước (LIFO) để các kết nối dư có cơ hội hết hạn
+            idle.offerFirst(new Idle(transport, System.currentTimeMillis()));
+        }
+        permits.release();
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.pool.idle-timeout-ms:30000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        idle.removeIf(candidate -> {
+            if (now - candidate.since() >= idleTimeoutMs) {
+                close(candidate.transport());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Idle candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            close(candidate.transport());
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("idle", idle.size());
+        stats.put("inUse", size - permits.availablePermits());
+        stats.put("opened", opened.sum());
+        stats.put("reused", reused.sum());
+        stats.put("closed", closed.sum());
+        return stats;
+    }
+
+    private Transport open() throws MessagingException {
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            throw new IllegalStateException("SMTP pooling requires JavaMailSenderImpl");
+        }
+        Session session = sender.getSession();
+        String protocol = sender.getProtocol() != null ? sender.getProtocol() : "smtp";
+        Transport transport = session.getTransport(protocol);
+        transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        opened.increment();
+        return transport;
+    }
+
+    private void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP connection: {}", e.getMessage());
+        }
+        closed.increment();
+    }
+
+    private record Idle(Transport transport, long since) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.doctorbooking.backend.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bảng version token trong bộ nhớ, dùng cho chế độ xác thực stateless (role lấy từ claims).
+ * Token chứa (epoch, version) tại thời điểm login. Khi user bị khóa/mở khóa, đổi mật khẩu,
+ * đổi role hoặc bị xóa thì version được tăng lên, các token cũ không còn hợp lệ.
+ *
+ * Epoch thay đổi mỗi lần khởi động: token cấp trước khi restart (hoặc bởi instance khác)
+ * không thể kiểm tra bằng bảng này và phải xác thực lại qua database.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private final long epoch = System.currentTimeMillis();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long currentVersion(Long userId) {
+        return versions.getOrDefault(userId, 0L);
+    }
+
+    /**
+     * Tăng version của user. Nếu đang trong transaction thì tăng thêm lần nữa sau commit,
+     * để token cấp trong lúc transaction chưa commit cũng bị vô hiệu.
+     */
+    public void bump(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        versions.merge(userId, 1L, Long::sum);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.merge(userId, 1L, Long::sum);
+                }
+            });
+        }
+    }
+
+    public boolean isKnownEpoch(long tokenEpoch) {
+        return tokenEpoch == epoch;
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return currentVersion(userId) == tokenVersion;
+    }
+}
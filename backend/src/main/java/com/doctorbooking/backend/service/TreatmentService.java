@@ -26,6 +26,10 @@ public class TreatmentService {
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final SlotClaimService slotClaimService;
+    private final ReminderScheduler reminderScheduler;
+    private final ResourceVersions resourceVersions;
 
     public List<TreatmentResponse> getAllTreatments() {
         return treatmentRepository.findAll().stream()
@@ -89,6 +93,10 @@ public class TreatmentService {
         if (appointment != null && appointment.getStatus() == Appointment.AppointmentStatus.CONFIRMED) {
             appointment.setStatus(Appointment.AppointmentStatus.COMPLETED);
             appointmentRepository.save(appointment);
+            resourceVersions.bump(ResourceVersions.Resource.APPOINTMENTS, appointment.getPatient().getId());
+            slotClaimService.release(appointment);
+            reminderScheduler.unschedule(appointment.getId());
+            slotAvailabilityIndex.markFree(appointment.getDoctor().getId(), appointment.getAppointmentDate(), appointment.getAppointmentTime());
         }
 
         return TreatmentResponse.fromEntity(treatment);
@@ -3,6 +3,7 @@ package com.doctorbooking.backend.service;
 import com.doctorbooking.backend.dto.request.ChangePasswordRequest;
 import com.doctorbooking.backend.dto.request.UpdateUserRequest;
 import com.doctorbooking.backend.dto.request.UserRequest;
+import com.doctorbooking.backend.dto.response.CursorPage;
 import com.doctorbooking.backend.dto.response.UserResponse;
 import com.doctorbooking.backend.model.User;
 import com.doctorbooking.backend.model.Doctor;
@@ -10,8 +11,13 @@ import com.doctorbooking.backend.model.Patient;
 import com.doctorbooking.backend.repository.UserRepository;
 import com.doctorbooking.backend.repository.DoctorRepository;
 import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.util.KeysetCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -19,53 +25,68 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService implements UserDetailsService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final CurrentUserService currentUserService;
+    private final NdjsonExporter ndjsonExporter;
+    private final DoctorSearchIndex doctorSearchIndex;
+    private final DoctorDirectory doctorDirectory;
 
     public UserService(UserRepository userRepository, 
                       @Lazy PasswordEncoder passwordEncoder,
                       DoctorRepository doctorRepository,
-                      PatientRepository patientRepository) {
+                      PatientRepository patientRepository,
+                      PrincipalCache principalCache,
+                      TokenVersionRegistry tokenVersionRegistry,
+                      CurrentUserService currentUserService,
+                      NdjsonExporter ndjsonExporter,
+                      DoctorSearchIndex doctorSearchIndex,
+                      DoctorDirectory doctorDirectory) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.doctorRepository = doctorRepository;
         this.patientRepository = patientRepository;
+        this.principalCache = principalCache;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.currentUserService = currentUserService;
+        this.ndjsonExporter = ndjsonExporter;
+        this.doctorSearchIndex = doctorSearchIndex;
+        this.doctorDirectory = doctorDirectory;
     }
 
+    // Không dùng @Transactional: cache hit không được mở transaction (tránh lấy connection từ pool)
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
-        System.out.println("🔵 UserService.loadUserByUsername - Searching for: " + usernameOrEmail);
-        
-        // Try to find by username first, if not found, try email
-        User user = userRepository.findByUsername(usernameOrEmail)
-                .orElse(userRepository.findByEmail(usernameOrEmail)
-                        .orElse(null));
-        
-        if (user != null) {
-            System.out.println("✅ UserService.loadUserByUsername - Found user: " + user.getUsername() + " (ID: " + user.getId() + ", Role: " + user.getRole() + ")");
-            return user;
-        } else {
-            System.err.println("❌ UserService.loadUserByUsername - User not found with username or email: " + usernameOrEmail);
-            // Debug: List all usernames and emails
-            long totalUsers = userRepository.count();
-            System.err.println("❌ Total users in database: " + totalUsers);
-            if (totalUsers > 0) {
-                userRepository.findAll().forEach(u -> 
-                    System.err.println("   - Username: '" + u.getUsername() + "', Email: '" + u.getEmail() + "', Role: " + u.getRole())
-                );
-            }
-            throw new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail);
+        User cached = principalCache.get(usernameOrEmail);
+        if (cached != null) {
+            return cached;
         }
+
+        // Try to find by username first, if not found, try email (lazy - chỉ query email khi cần)
+        User user = userRepository.findByUsername(usernameOrEmail)
+                .or(() -> userRepository.findByEmail(usernameOrEmail))
+                .orElseThrow(() -> {
+                    logger.debug("loadUserByUsername - user not found: {}", usernameOrEmail);
+                    return new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail);
+                });
+
+        principalCache.put(usernameOrEmail, user);
+        return user;
     }
 
     public User findByUsername(String username) {
@@ -98,16 +119,53 @@ public class UserService implements UserDetailsService {
                 .collect(Collectors.toList());
     }
 
-    public List<UserResponse> searchUsers(String search) {
+    /**
+     * Tìm tài khoản theo trang (id tăng dần): username hoặc email bắt đầu bằng search, lọc thêm theo role / enabled.
+     * Lọc và phân trang hoàn toàn trong database, chỉ lấy các cột của UserResponse (không load entity User).
+     */
+    public CursorPage<UserResponse> getUserPage(String search, String role, Boolean enabled,
+                                                String cursor, Integer limit) {
+        int size = CursorPage.pageSize(limit);
+        List<UserResponse> rows = userRepository.searchPage(prefixPattern(search), roleFilter(role), enabled,
+                KeysetCursor.decodeId(cursor), PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, last -> KeysetCursor.encode(last.getId()));
+    }
+
+    private static User.Role roleFilter(String role) {
+        return role != null && !role.isBlank() ? User.Role.valueOf(role.trim().toUpperCase()) : null;
+    }
+
+    /**
+     * Mẫu LIKE "search%" với ký tự đặc biệt đã escape (email hay có '_'), null nếu search trống
+     */
+    static String prefixPattern(String search) {
         if (search == null || search.trim().isEmpty()) {
-            return getAllUsers();
+            return null;
         }
-        String searchLower = search.toLowerCase();
-        return userRepository.findAll().stream()
-                .filter(user -> user.getUsername().toLowerCase().contains(searchLower) ||
-                               user.getEmail().toLowerCase().contains(searchLower))
-                .map(UserResponse::fromUser)
-                .collect(Collectors.toList());
+        StringBuilder pattern = new StringBuilder();
+        for (char c : search.trim().toCharArray()) {
+            if (c == '%' || c == '_' || c == '!') {
+                pattern.append('!');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    /**
+     * Xuất toàn bộ tài khoản dạng NDJSON, đọc theo luồng
+     */
+    public long exportUsers(OutputStream out) {
+        return ndjsonExporter.export(out, "SELECT u FROM User u ORDER BY u.id", User.class, Map.of(), UserResponse::fromUser);
+    }
+
+    /**
+     * Mọi tài khoản khớp search / role / enabled (không giới hạn, như danh sách không lọc), cùng query với getUserPage.
+     * Cần phân trang thì dùng getUserPage.
+     */
+    public List<UserResponse> searchUsers(String search, String role, Boolean enabled) {
+        return userRepository.searchPage(prefixPattern(search), roleFilter(role), enabled,
+                0L, Pageable.unpaged());
     }
 
     public UserResponse getUserById(Long id) {
@@ -164,6 +222,14 @@ public class UserService implements UserDetailsService {
         }
 
         User updatedUser = userRepository.save(user);
+        // Kết quả tìm bác sĩ có kèm username/email
+        doctorRepository.findByUserId(id).ifPresent(doctor -> {
+            doctorSearchIndex.put(doctor);
+            doctorDirectory.put(doctor);
+        });
+        principalCache.evictUser(id);
+        tokenVersionRegistry.bump(id);
+        currentUserService.evict(id);
         return UserResponse.fromUser(updatedUser);
     }
 
@@ -177,6 +243,8 @@ public class UserService implements UserDetailsService {
             Optional<Doctor> doctor = doctorRepository.findByUserId(id);
             if (doctor.isPresent()) {
                 doctorRepository.delete(doctor.get());
+                doctorSearchIndex.remove(doctor.get().getId());
+                doctorDirectory.remove(doctor.get().getId());
             }
             
             // Delete associated patient if exists
@@ -187,6 +255,9 @@ public class UserService implements UserDetailsService {
             
             // Now delete the user
             userRepository.delete(user);
+            principalCache.evictUser(id);
+            tokenVersionRegistry.bump(id);
+            currentUserService.evict(id);
         } catch (DataIntegrityViolationException e) {
             throw new RuntimeException("Không thể xóa người dùng: Người dùng có dữ liệu liên quan (lịch hẹn, phản hồi). Vui lòng xóa các dữ liệu liên quan trước.");
         } catch (Exception e) {
@@ -200,6 +271,8 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
         user.setEnabled(!user.getEnabled());
         User updatedUser = userRepository.save(user);
+        principalCache.evictUser(id);
+        tokenVersionRegistry.bump(id);
         return UserResponse.fromUser(updatedUser);
     }
 
@@ -209,6 +282,8 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        principalCache.evictUser(id);
+        tokenVersionRegistry.bump(id);
     }
 }
 
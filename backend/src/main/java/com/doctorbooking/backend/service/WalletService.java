@@ -25,6 +25,7 @@ public class WalletService {
     private final PatientRepository patientRepository;
     private final WalletTransactionRepository walletTransactionRepository;
     private final NotificationService notificationService;
+    private final ResourceVersions resourceVersions;
 
     /**
      * Lấy thông tin ví của patient
@@ -102,6 +103,7 @@ public class WalletService {
         transaction.setUpdatedAt(LocalDateTime.now());
 
         patientRepository.save(patient);
+        resourceVersions.bump(ResourceVersions.Resource.WALLET, patient.getId());
         WalletTransaction saved = walletTransactionRepository.save(transaction);
         logger.info("Transaction completed and saved: id={}, status={}, newBalance={}, newPoints={}", 
                 saved.getId(), saved.getStatus(), patient.getWalletBalance(), patient.getLoyaltyPoints());
@@ -216,6 +218,7 @@ public class WalletService {
         updateLoyaltyTier(patient);
         
         patientRepository.save(patient);
+        resourceVersions.bump(ResourceVersions.Resource.WALLET, patient.getId());
         WalletTransaction saved = walletTransactionRepository.save(transaction);
         logger.info("Wallet payment completed successfully: transactionId={}", saved.getId());
         return saved;
@@ -260,6 +263,7 @@ public class WalletService {
         updateLoyaltyTier(patient);
         
         patientRepository.save(patient);
+        resourceVersions.bump(ResourceVersions.Resource.WALLET, patient.getId());
         WalletTransaction saved = walletTransactionRepository.save(transaction);
         logger.info("Refund completed successfully: transactionId={}", saved.getId());
         return saved;
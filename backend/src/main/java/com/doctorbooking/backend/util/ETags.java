@@ -0,0 +1,75 @@
+package com.doctorbooking.backend.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * GET có điều kiện: trả 304 khi If-None-Match của client còn khớp ETag hiện tại,
+ * nếu không thì trả 200 kèm ETag. Body chỉ được tạo (supplier) khi thật sự phải trả về.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * ETag mạnh từ nội dung (16 ký tự hex đầu của SHA-256): giống nhau trên mọi instance nếu nội dung giống nhau
+     */
+    public static String digest(String content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return quote(HexFormat.of().formatHex(hash, 0, 8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * If-None-Match có chứa etag không (hỗ trợ danh sách, "*" và tiền tố W/)
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 304 nếu client đã có bản etag, ngược lại 200 với body. Cache-Control: no-cache để trình duyệt luôn hỏi lại.
+     */
+    public static <T> ResponseEntity<T> conditional(String ifNoneMatch, String etag, Supplier<T> body) {
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body.get());
+    }
+}
@@ -0,0 +1,182 @@
+package com.doctorbooking.backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Template HTML được biên dịch một lần thành dãy node (đoạn text cố định + slot), render không cần parse lại.
+ *
+ * Cú pháp:
+ * - {{name}}: giá trị của binding "name", được escape HTML
+ * - {{#name}} ... {{/name}}: chỉ render phần bên trong khi giá trị của "name" khác rỗng
+ *
+ * Mọi tên trong template phải có binding tương ứng, nếu không compile() ném lỗi ngay lúc khởi động.
+ * Dòng chỉ chứa thẻ section được bỏ hẳn (không để lại dòng trống trong HTML).
+ */
+public final class HtmlTemplate<M> {
+
+    // Buffer dùng lại cho mỗi thread; buffer quá lớn bị bỏ để không giữ bộ nhớ mãi
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8 * 1024));
+
+    private final Node<M>[] nodes;
+
+    private HtmlTemplate(Node<M>[] nodes) {
+        this.nodes = nodes;
+    }
+
+    public static <M> HtmlTemplate<M> compile(String source, Map<String, Function<M, String>> bindings) {
+        Parser<M> parser = new Parser<>(source, bindings);
+        Node<M>[] nodes = parser.parse(null);
+        return new HtmlTemplate<>(nodes);
+    }
+
+    public String render(M model) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        render(nodes, model, buffer);
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    public void render(M model, StringBuilder out) {
+        render(nodes, model, out);
+    }
+
+    private static <M> void render(Node<M>[] nodes, M model, StringBuilder out) {
+        for (Node<M> node : nodes) {
+            if (node.text != null) {
+                out.append(node.text);
+                continue;
+            }
+            String value = node.value.apply(model);
+            if (node.section == null) {
+                appendEscaped(out, value);
+            } else if (value != null && !value.isBlank()) {
+                render(node.section, model, out);
+            }
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+
+    /**
+     * Một node là text cố định (text != null), slot giá trị (section == null) hoặc section có điều kiện
+     */
+    private record Node<M>(String text, Function<M, String> value, Node<M>[] section) {
+    }
+
+    private static final class Parser<M> {
+
+        private final String source;
+        private final Map<String, Function<M, String>> bindings;
+        private int pos;
+
+        Parser(String source, Map<String, Function<M, String>> bindings) {
+            this.source = source;
+            this.bindings = bindings;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<M>[] parse(String openSection) {
+            List<Node<M>> nodes = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            while (pos < source.length()) {
+                int open = source.indexOf("{{", pos);
+                if (open < 0) {
+                    text.append(source, pos, source.length());
+                    pos = source.length();
+                    break;
+                }
+                int close = source.indexOf("}}", open);
+                if (close < 0) {
+                    throw new IllegalStateException("Unclosed tag at offset " + open);
+                }
+                String tag = source.substring(open + 2, close).trim();
+                char kind = tag.isEmpty() ? ' ' : tag.charAt(0);
+                String name = kind == '#' || kind == '/' ? tag.substring(1).trim() : tag;
+
+                int end = close + 2;
+                text.append(source, pos, open);
+                if (kind == '#' || kind == '/') {
+                    end = stripStandaloneLine(text, end);
+                }
+                pos = end;
+
+                if (kind == '/') {
+                    if (!name.equals(openSection)) {
+                        throw new IllegalStateException("Unexpected {{/" + name + "}}");
+                    }
+                    flush(nodes, text);
+                    return nodes.toArray(new Node[0]);
+                }
+                flush(nodes, text);
+                Function<M, String> binding = bindings.get(name);
+                if (binding == null) {
+                    throw new IllegalStateException("No binding for template field '" + name + "'");
+                }
+                nodes.add(new Node<>(null, binding, kind == '#' ? parse(name) : null));
+            }
+            if (openSection != null) {
+                throw new IllegalStateException("Missing {{/" + openSection + "}}");
+            }
+            flush(nodes, text);
+            return nodes.toArray(new Node[0]);
+        }
+
+        // Thẻ section đứng một mình trên dòng: bỏ phần thụt lề phía trước và xuống dòng phía sau
+        private int stripStandaloneLine(StringBuilder text, int end) {
+            int lineStart = text.length();
+            while (lineStart > 0 && (text.charAt(lineStart - 1) == ' ' || text.charAt(lineStart - 1) == '\t')) {
+                lineStart--;
+            }
+            if (lineStart > 0 && text.charAt(lineStart - 1) != '\n') {
+                return end;
+            }
+            int after = end;
+            while (after < source.length() && (source.charAt(after) == ' ' || source.charAt(after) == '\t')) {
+                after++;
+            }
+            if (after < source.length() && source.charAt(after) == '\r') {
+                after++;
+            }
+            if (after < source.length() && source.charAt(after) != '\n') {
+                return end;
+            }
+            text.setLength(lineStart);
+            return Math.min(after + 1, source.length());
+        }
+
+        private void flush(List<Node<M>> nodes, StringBuilder text) {
+            if (!text.isEmpty()) {
+                nodes.add(new Node<>(text.toString(), null, null));
+                text.setLength(0);
+            }
+        }
+    }
+}
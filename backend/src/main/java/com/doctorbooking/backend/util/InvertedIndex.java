@@ -0,0 +1,133 @@
+package com.doctorbooking.backend.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Inverted index trong bộ nhớ: term (đã bỏ dấu, xem SearchText) -> (id tài liệu -> trọng số field cao nhất chứa term).
+ * Term được lưu sắp xếp nên tìm theo tiền tố chỉ là một subMap.
+ *
+ * - Mỗi tài liệu có nhiều field, field thứ i có trọng số fieldWeights[i]
+ * - Truy vấn nhiều từ: tài liệu phải khớp mọi từ (AND); điểm = tổng theo từng từ của
+ *   trọng số field x 2 nếu khớp nguyên từ, x 1 nếu chỉ khớp tiền tố
+ * - Ghi (put/remove) tuần tự qua synchronized, đọc không cần lock
+ */
+public class InvertedIndex<V> {
+
+    private final int[] fieldWeights;
+    private final NavigableMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, Document<V>> documents = new ConcurrentHashMap<>();
+
+    public InvertedIndex(int... fieldWeights) {
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Thêm hoặc thay tài liệu id; fields theo đúng thứ tự trọng số đã khai báo
+     */
+    public synchronized void put(long id, V value, String... fields) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (int i = 0; i < fields.length && i < fieldWeights.length; i++) {
+            int weight = fieldWeights[i];
+            for (String token : SearchText.tokens(fields[i])) {
+                terms.merge(token, weight, Math::max);
+            }
+        }
+        Document<V> previous = documents.put(id, new Document<>(value, terms.keySet()));
+        if (previous != null) {
+            for (String term : previous.terms) {
+                if (!terms.containsKey(term)) {
+                    unlink(term, id);
+                }
+            }
+        }
+        terms.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(id, weight));
+    }
+
+    public synchronized void remove(long id) {
+        Document<V> previous = documents.remove(id);
+        if (previous != null) {
+            for (String term : previous.terms) {
+                unlink(term, id);
+            }
+        }
+    }
+
+    /**
+     * Tối đa limit tài liệu khớp query, điểm cao trước (bằng điểm thì id nhỏ trước)
+     */
+    public List<V> search(String query, int limit) {
+        List<String> tokens = SearchText.tokens(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> scores = null;
+        for (String token : new HashSet<>(tokens)) {
+            Map<Long, Integer> matches = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Integer>> e
+                    : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+                int multiplier = e.getKey().length() == token.length() ? 2 : 1;
+                e.getValue().forEach((id, weight) -> matches.merge(id, weight * multiplier, Math::max));
+            }
+            if (scores == null) {
+                scores = matches;
+            } else {
+                Map<Long, Integer> previous = scores;
+                scores = new HashMap<>();
+                for (Map.Entry<Long, Integer> e : matches.entrySet()) {
+                    Integer score = previous.get(e.getKey());
+                    if (score != null) {
+                        scores.put(e.getKey(), score + e.getValue());
+                    }
+                }
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        List<V> results = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Map.Entry<Long, Integer> e : ranked) {
+            if (results.size() >= limit) {
+                break;
+            }
+            // Tài liệu có thể vừa bị xóa giữa lúc đọc postings và lúc lấy giá trị
+            Document<V> document = documents.get(e.getKey());
+            if (document != null) {
+                results.add(document.value);
+            }
+        }
+        return results;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    private void unlink(String term, long id) {
+        Map<Long, Integer> ids = postings.get(term);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(term, ids);
+            }
+        }
+    }
+
+    private record Document<V>(V value, Set<String> terms) {
+    }
+}
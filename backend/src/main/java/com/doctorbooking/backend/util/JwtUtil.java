@@ -1,8 +1,10 @@
 package com.doctorbooking.backend.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -17,6 +19,13 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_TOKEN_VERSION = "tokenVersion";
+    public static final String CLAIM_TOKEN_EPOCH = "tokenEpoch";
+    public static final String CLAIM_PATIENT_ID = "patientId";
+    public static final String CLAIM_DOCTOR_ID = "doctorId";
+
     @Value("${jwt.secret}")
     private String secret;
 
@@ -26,8 +35,28 @@ public class JwtUtil {
     @Value("${jwt.refresh-expiration}")
     private Long refreshExpiration;
 
+    // Key và parser được tạo một lần khi khởi động, dùng lại cho mọi request (thread-safe)
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return signingKey;
+    }
+
+    /**
+     * Parse và verify chữ ký token một lần duy nhất.
+     * Token hết hạn hoặc sai chữ ký sẽ ném JwtException.
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public String extractUsername(String token) {
@@ -44,17 +73,17 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parseClaims(token);
     }
 
     private Boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date());
     }
 
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
+    }
+
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         return createToken(claims, userDetails.getUsername(), expiration);
@@ -86,21 +115,26 @@ public class JwtUtil {
         // Token được tạo với username từ User entity (không phải email)
         // Nên cần so sánh với username thực tế
         // Nếu userDetails là User entity, thì getUsername() trả về username thực tế từ DB
-        boolean isValid = usernameFromToken.equals(usernameFromDetails) && !isTokenExpired(token);
-        
-        // Log for debugging
-        System.out.println("🔵 JwtUtil.validateToken - Token username: " + usernameFromToken + 
-                ", UserDetails username: " + usernameFromDetails + 
-                ", Valid: " + isValid);
-        
-        return isValid;
+        return usernameFromToken.equals(usernameFromDetails) && !isTokenExpired(token);
+    }
+
+    /**
+     * Validate với claims đã parse sẵn (không parse lại token).
+     */
+    public boolean validateToken(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
+    }
+
+    public Long getLongClaim(Claims claims, String name) {
+        Number value = claims.get(name, Number.class);
+        return value != null ? value.longValue() : null;
     }
 
     // Helper method to extract role from token
     public String extractRole(String token) {
         try {
             Claims claims = extractAllClaims(token);
-            return claims.get("role", String.class);
+            return claims.get(CLAIM_ROLE, String.class);
         } catch (Exception e) {
             return null;
         }
@@ -0,0 +1,58 @@
+package com.doctorbooking.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor cho phân trang keyset: giá trị các cột sắp xếp của dòng cuối trang, nối bằng '|'
+ * rồi mã hóa base64url để client chỉ việc gửi lại nguyên chuỗi ở trang sau.
+ */
+public final class KeysetCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Object... values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(values[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Giải mã cursor thành đúng parts giá trị (theo thứ tự lúc encode)
+     */
+    public static String[] decode(String cursor, int parts) {
+        String[] values;
+        try {
+            values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        if (values.length != parts) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        return values;
+    }
+
+    /**
+     * Cursor chỉ gồm id (danh sách sắp theo id tăng dần). null / rỗng = trang đầu (0).
+     */
+    public static long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
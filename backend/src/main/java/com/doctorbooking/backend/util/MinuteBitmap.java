@@ -0,0 +1,82 @@
+package com.doctorbooking.backend.util;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bitmap theo phút trong ngày (1440 bit = 23 long).
+ * Dùng cho slot khám của lịch làm việc và các phút đã có lịch hẹn.
+ */
+public final class MinuteBitmap {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int WORDS = (MINUTES_PER_DAY + 63) / 64;
+
+    private static final long[] EMPTY = new long[WORDS];
+
+    // "HH:mm" cho từng phút trong ngày, tính sẵn một lần
+    private static final String[] LABELS = new String[MINUTES_PER_DAY];
+
+    static {
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            LABELS[minute] = String.format("%02d:%02d", minute / 60, minute % 60);
+        }
+    }
+
+    private MinuteBitmap() {
+    }
+
+    public static long[] create() {
+        return new long[WORDS];
+    }
+
+    /**
+     * Bitmap rỗng dùng chung (không được sửa)
+     */
+    public static long[] empty() {
+        return EMPTY;
+    }
+
+    public static void set(long[] bits, int minute) {
+        bits[minute >>> 6] |= 1L << minute;
+    }
+
+    public static void clear(long[] bits, int minute) {
+        bits[minute >>> 6] &= ~(1L << minute);
+    }
+
+    public static boolean isSet(long[] bits, int minute) {
+        return (bits[minute >>> 6] & (1L << minute)) != 0;
+    }
+
+    public static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int toMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Các phút có trong slots nhưng không có trong booked, trả về dạng "HH:mm".
+     * Chi phí mask cố định 23 phép AND, không phụ thuộc độ dài slot.
+     */
+    public static List<String> availableLabels(long[] slots, long[] booked) {
+        List<String> result = new ArrayList<>();
+        for (int word = 0; word < WORDS; word++) {
+            long free = slots[word] & ~booked[word];
+            while (free != 0) {
+                int bit = Long.numberOfTrailingZeros(free);
+                result.add(LABELS[(word << 6) + bit]);
+                free &= free - 1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,28 @@
+package com.doctorbooking.backend.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Response tải file NDJSON (application/x-ndjson) dùng chung cho các endpoint export
+ */
+public final class NdjsonResponses {
+
+    private NdjsonResponses() {
+    }
+
+    /**
+     * Trả về body ghi dần ra response (chạy trên luồng async của MVC), không giữ cả danh sách trong bộ nhớ
+     */
+    public static ResponseEntity<StreamingResponseBody> attachment(String name, Consumer<OutputStream> exporter) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + ".ndjson\"")
+                .body(exporter::accept);
+    }
+}
@@ -0,0 +1,150 @@
+package com.doctorbooking.backend.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Timer wheel phân cấp (4 tầng x 64 slot). Với tick 1 giây: tầng 0 = 64 giây, tầng 1 ~ 68 phút,
+ * tầng 2 ~ 3 ngày, tầng 3 ~ 194 ngày; timer xa hơn nằm trong danh sách overflow.
+ *
+ * - schedule / cancel: O(1), mỗi key chỉ có một timer (schedule lại thì thay timer cũ)
+ * - advance(now): tiến từng tick tới now, khi tầng dưới quay hết vòng thì hạ các timer của slot
+ *   tầng trên xuống tầng thấp hơn; timer ở tầng 0 được trả về đúng tick đến hạn
+ * - Timer có thời điểm đến hạn đã qua được trả về ở lần advance() kế tiếp
+ *
+ * Không thread-safe: nơi dùng phải tự đồng bộ.
+ */
+public final class TimerWheel<K> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 4;
+    private static final int MASK = SLOTS - 1;
+
+    private static final int READY = -1;
+    private static final int OVERFLOW = -2;
+
+    private final long tickMillis;
+    private final Set<K>[][] wheel;
+    private final Set<K> ready = new LinkedHashSet<>();
+    private final Set<K> overflow = new LinkedHashSet<>();
+    private final Map<K, Timer> timers = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+        this.wheel = new Set[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = new LinkedHashSet<>();
+            }
+        }
+    }
+
+    public void schedule(K key, long dueMillis) {
+        cancel(key);
+        // Làm tròn lên: timer không bao giờ chạy sớm hơn thời điểm đến hạn
+        long dueTick = Math.floorDiv(dueMillis + tickMillis - 1, tickMillis);
+        place(key, dueTick, null);
+    }
+
+    public boolean cancel(K key) {
+        Timer timer = timers.remove(key);
+        if (timer == null) {
+            return false;
+        }
+        bucket(timer).remove(key);
+        return true;
+    }
+
+    public boolean contains(K key) {
+        return timers.containsKey(key);
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    /**
+     * Tiến tới thời điểm nowMillis và trả về các key đã đến hạn (theo thứ tự đến hạn)
+     */
+    public List<K> advance(long nowMillis) {
+        List<K> due = new ArrayList<>(ready);
+        ready.forEach(timers::remove);
+        ready.clear();
+
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < targetTick) {
+            currentTick++;
+            if ((currentTick & ((1L << (BITS * LEVELS)) - 1)) == 0) {
+                cascade(overflow, due);
+            }
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(wheel[level][(int) (currentTick >>> (BITS * level)) & MASK], due);
+                }
+            }
+            Set<K> expired = wheel[0][(int) currentTick & MASK];
+            if (!expired.isEmpty()) {
+                for (K key : expired) {
+                    timers.remove(key);
+                    due.add(key);
+                }
+                expired.clear();
+            }
+        }
+        return due;
+    }
+
+    private void cascade(Set<K> bucket, List<K> due) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<K> keys = new ArrayList<>(bucket);
+        bucket.clear();
+        for (K key : keys) {
+            place(key, timers.get(key).dueTick, due);
+        }
+    }
+
+    private void place(K key, long dueTick, List<K> due) {
+        if (dueTick <= currentTick) {
+            if (due != null) {
+                timers.remove(key);
+                due.add(key);
+            } else {
+                timers.put(key, new Timer(dueTick, READY, 0));
+                ready.add(key);
+            }
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * (level + 1);
+            if ((dueTick >>> shift) == (currentTick >>> shift)) {
+                int slot = (int) (dueTick >>> (BITS * level)) & MASK;
+                timers.put(key, new Timer(dueTick, level, slot));
+                wheel[level][slot].add(key);
+                return;
+            }
+        }
+        timers.put(key, new Timer(dueTick, OVERFLOW, 0));
+        overflow.add(key);
+    }
+
+    private Set<K> bucket(Timer timer) {
+        return switch (timer.level) {
+            case READY -> ready;
+            case OVERFLOW -> overflow;
+            default -> wheel[timer.level][timer.slot];
+        };
+    }
+
+    private record Timer(long dueTick, int level, int slot) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.doctorbooking.backend.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import com.doctorbooking.backend.config.AuthFilterMetrics;
+import com.doctorbooking.backend.config.AuthTracer;
+import com.doctorbooking.backend.config.JwtAuthenticationFilter;
+import com.doctorbooking.backend.service.TokenVersionRegistry;
+import com.doctorbooking.backend.service.UserService;
+import com.doctorbooking.backend.util.JwtUtil;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chi phí JwtAuthenticationFilter cho một request có Bearer token (đường database, user đã có trong cache),
+ * trước và sau khi bỏ log trên hot path:
+ * - withLegacyLogging: filter hiện tại + đúng các dòng log của bản cũ (5 dòng INFO của filter,
+ *   System.out của UserService.loadUserByUsername và JwtUtil.validateToken)
+ * - current: filter hiện tại, AuthTracer tắt (mặc định)
+ *
+ * Log ghi qua ConsoleAppender với pattern console của Spring Boot, root INFO như application.properties;
+ * System.out được chuyển sang file tạm để output của JMH không bị lẫn log.
+ * 4 thread đồng thời để thấy cả phần tranh chấp lock của appender.
+ *
+ * Chạy: mvn test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.doctorbooking.backend.benchmark.AuthFilterLoggingBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AuthFilterLoggingBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs256-signing";
+    private static final String USERNAME = "patient1";
+    private static final String URI = "/api/patient/appointments";
+
+    // Cùng tên logger với filter, như log của bản cũ
+    private static final Logger legacyLogger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private final FilterChain chain = (request, response) -> { };
+
+    private JwtAuthenticationFilter filter;
+    private UserDetails userDetails;
+    private String authorization;
+    private Path logFile;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() throws IOException {
+        logFile = Files.createTempFile("auth-filter-benchmark", ".log");
+        originalOut = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(Files.newOutputStream(logFile), 8192), true,
+                StandardCharsets.UTF_8));
+        configureLogging();
+
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "refreshExpiration", 7_200_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+        userDetails = User.withUsername(USERNAME).password("x").roles("PATIENT").build();
+        authorization = "Bearer " + jwtUtil.generateToken(userDetails, Map.of("role", "PATIENT", "userId", 1L));
+
+        // Principal lấy từ cache (PrincipalCache), không chạm database
+        UserService userService = mock(UserService.class);
+        when(userService.loadUserByUsername(USERNAME)).thenReturn(userDetails);
+
+        filter = new JwtAuthenticationFilter(jwtUtil, userService, new TokenVersionRegistry(), new AuthTracer(),
+                new AuthFilterMetrics());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.close();
+        System.setOut(originalOut);
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public Object current() throws Exception {
+        return authenticate();
+    }
+
+    @Benchmark
+    public Object withLegacyLogging() throws Exception {
+        legacyLogger.info("JWT Filter - Extracted username from token: {}", USERNAME);
+        legacyLogger.info("JWT Filter - Request URI: {}", URI);
+        System.out.println("🔵 UserService.loadUserByUsername - Searching for: " + USERNAME);
+        System.out.println("✅ UserService.loadUserByUsername - Found user: " + USERNAME + " (ID: 1, Role: PATIENT)");
+        legacyLogger.info("JWT Filter - Loaded userDetails for username: {}", USERNAME);
+        System.out.println("🔵 JwtUtil.validateToken - Token username: " + USERNAME +
+                ", UserDetails username: " + userDetails.getUsername() + ", Valid: true");
+        String authoritiesStr = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .reduce((a, b) -> a + ", " + b)
+                .orElse("none");
+        legacyLogger.info("JWT Filter - User: {} authenticated with authorities: {}", USERNAME, authoritiesStr);
+        Object authentication = authenticate();
+        legacyLogger.info("JWT Filter - Authentication token set in SecurityContext");
+        return authentication;
+    }
+
+    private Object authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+        request.addHeader("Authorization", authorization);
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private static void configureLogging() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        ConsoleAppender<ILoggingEvent> console = new ConsoleAppender<>();
+        console.setContext(context);
+        console.setEncoder(encoder);
+        console.start();
+
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(console);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(AuthFilterLoggingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.doctorbooking.backend.benchmark;
+
+import com.doctorbooking.backend.event.AppointmentBookedEvent;
+import com.doctorbooking.backend.service.EmailTemplates;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh chi phí dựng HTML email xác nhận đặt lịch:
+ * - legacyFormat: cách cũ, String.format trên toàn bộ HTML mỗi lần gửi (parse lại format string,
+ *   tạo lại DateTimeFormatter, String.format cho từng dòng tùy chọn)
+ * - compiledTemplate: EmailTemplates (template biên dịch sẵn, render vào buffer dùng lại)
+ *
+ * Chạy (kèm số byte cấp phát mỗi lần render, xem gc.alloc.rate.norm):
+ *       mvn test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.doctorbooking.backend.benchmark.EmailTemplateBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailTemplateBenchmark {
+
+    private EmailTemplates emailTemplates;
+    private AppointmentBookedEvent event;
+    private String legacyFormat;
+
+    @Setup
+    public void setup() throws Exception {
+        emailTemplates = new EmailTemplates();
+        event = new AppointmentBookedEvent(
+                42L, 7L, "patient@test.local", "Nguyễn Văn An", "0912345678",
+                "Trần Thị Bình", "Tim mạch", "0987654321", "123 Lê Lợi, Quận 1",
+                LocalDate.of(2026, 10, 20), LocalTime.of(9, 30), "WALLET", "PAID", "300,000",
+                "Đau ngực khi vận động", "Nguyễn Văn Cường", "CHILD");
+
+        // Dựng lại format string kiểu cũ từ cùng một template để hai bên render cùng một HTML
+        String source;
+        try (var in = new ClassPathResource("templates/email/appointment-confirmation.html").getInputStream()) {
+            source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        legacyFormat = source.replace("%", "%%")
+                .replaceAll("(?s)\\{\\{#doctorPhone}}.*?\\{\\{/doctorAddress}}", "%s")
+                .replaceAll("(?s)\\{\\{#notes}}.*?\\{\\{/notes}}", "%s")
+                .replaceAll("\\{\\{\\w+}}", "%s");
+    }
+
+    @Benchmark
+    public String legacyFormat() {
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
+        String paymentMethodText = switch (event.paymentMethod().toUpperCase()) {
+            case "WALLET" -> "Ví điện tử";
+            case "VNPAY" -> "VNPay";
+            default -> "Tiền mặt";
+        };
+        String paymentStatusText = switch (event.paymentStatus().toUpperCase()) {
+            case "PAID" -> "Đã thanh toán";
+            case "REFUNDED" -> "Đã hoàn tiền";
+            default -> "Chưa thanh toán";
+        };
+        String patientForName = !event.familyMemberName().trim().isEmpty() ? event.familyMemberName() : event.patientName();
+        return legacyFormat.formatted(
+                event.patientName(),
+                String.valueOf(event.appointmentId()),
+                patientForName,
+                "Con cái",
+                event.doctorName(),
+                event.doctorSpecialization(),
+                String.format("<tr><td style=\"padding: 8px 0; color: #666666;\"><strong>Điện thoại bác sĩ:</strong></td><td style=\"padding: 8px 0; color: #333333;\">%s</td></tr>", event.doctorPhone())
+                        + String.format("<tr><td style=\"padding: 8px 0; color: #666666;\"><strong>Địa chỉ:</strong></td><td style=\"padding: 8px 0; color: #333333;\">%s</td></tr>", event.doctorAddress()),
+                event.appointmentDate().format(dateFormatter),
+                event.appointmentTime().format(timeFormatter),
+                paymentMethodText,
+                paymentStatusText,
+                event.priceFormatted(),
+                String.format("""
+                        <div style="background-color: #e7f3ff; border-left: 4px solid #2196F3; padding: 15px; margin: 20px 0; border-radius: 4px;">
+                            <p style="color: #0d47a1; margin: 0;"><strong>Ghi chú:</strong></p>
+                            <p style="color: #1565c0; margin: 5px 0 0 0;">%s</p>
+                        </div>
+                        """, event.notes())
+        );
+    }
+
+    @Benchmark
+    public String compiledTemplate() {
+        return emailTemplates.renderAppointmentConfirmation(event);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EmailTemplateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.doctorbooking.backend.benchmark;
+
+import com.doctorbooking.backend.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh chi phí xử lý JWT cho mỗi request:
+ * - perRequestLegacy: cách cũ, tạo lại key + parser và parse token 3 lần
+ * - perRequestParseOnce: JwtUtil.parseClaims() một lần, key/parser tạo sẵn
+ *
+ * Chạy: mvn test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.doctorbooking.backend.benchmark.JwtParseBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtParseBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs256-signing";
+
+    private JwtUtil jwtUtil;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "refreshExpiration", 7_200_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+        userDetails = User.withUsername("patient1").password("x").roles("PATIENT").build();
+        token = jwtUtil.generateToken(userDetails, Map.of("role", "PATIENT", "userId", 1L));
+    }
+
+    @Benchmark
+    public boolean perRequestLegacy() {
+        // extractUsername (filter) + extractUsername + extractExpiration (validateToken)
+        String username = legacyParse(token).getSubject();
+        boolean sameUser = legacyParse(token).getSubject().equals(userDetails.getUsername());
+        boolean expired = legacyParse(token).getExpiration().before(new Date());
+        return username != null && sameUser && !expired;
+    }
+
+    @Benchmark
+    public boolean perRequestParseOnce() {
+        Claims claims = jwtUtil.parseClaims(token);
+        return claims.getSubject() != null && jwtUtil.validateToken(claims, userDetails);
+    }
+
+    private static Claims legacyParse(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JwtParseBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
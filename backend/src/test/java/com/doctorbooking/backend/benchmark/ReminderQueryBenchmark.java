@@ -0,0 +1,208 @@
+package com.doctorbooking.backend.benchmark;
+
+import com.doctorbooking.backend.model.Appointment;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời gian nạp nhắc hẹn (ReminderScheduler.reload: câu findUpcomingForReminders, phân trang keyset
+ * qua toàn bộ cửa sổ 7 ngày) trên bảng appointments 1 triệu dòng, có và không có idx_appointments_reminder.
+ *
+ * Dữ liệu: 3 năm lịch cũ (COMPLETED/CANCELLED, đã gửi nhắc) + 60 ngày lịch sắp tới (PENDING/CONFIRMED).
+ * Database H2 MySQL mode trong bộ nhớ; index lấy đúng định nghĩa @Index trên entity Appointment.
+ * Kế hoạch thực thi (EXPLAIN) được in ra khi setup.
+ *
+ * Chạy:
+ *       mvn test-compile exec:java -Dexec.classpathScope=test
+ *       -Dexec.mainClass=com.doctorbooking.backend.benchmark.ReminderQueryBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ReminderQueryBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int PAST_DAYS = 3 * 365;
+    private static final int FUTURE_DAYS = 60;
+    private static final int LOAD_DAYS = 7;
+    private static final int PAGE_SIZE = 200;
+
+    // Tương đương SQL của AppointmentRepository.findUpcomingForReminders
+    private static final String UPCOMING_SQL =
+            "SELECT id, appointment_date, appointment_time, reminder_24h_sent, reminder_1h_sent " +
+            "FROM appointments " +
+            "WHERE appointment_date BETWEEN ? AND ? " +
+            "AND (appointment_date > ? OR (appointment_date = ? AND id > ?)) " +
+            "AND status IN ('PENDING', 'CONFIRMED') " +
+            "AND (reminder_24h_sent = false OR reminder_1h_sent = false) " +
+            "AND MOD(id, ?) = ? " +
+            "ORDER BY appointment_date, id LIMIT ?";
+
+    @Param({"false", "true"})
+    public boolean reminderIndex;
+
+    private Connection connection;
+    private PreparedStatement upcoming;
+    private LocalDate today;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:reminder-bench-" + reminderIndex + ";MODE=MySQL", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE appointments (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "patient_id BIGINT NOT NULL, " +
+                    "doctor_id BIGINT NOT NULL, " +
+                    "appointment_date DATE NOT NULL, " +
+                    "appointment_time TIME NOT NULL, " +
+                    "status VARCHAR(20) NOT NULL, " +
+                    "notes TEXT, " +
+                    "price DECIMAL(10, 2), " +
+                    "payment_status VARCHAR(20), " +
+                    "payment_method VARCHAR(50), " +
+                    "created_at TIMESTAMP, " +
+                    "updated_at TIMESTAMP, " +
+                    "reminder_24h_sent BOOLEAN NOT NULL, " +
+                    "reminder_1h_sent BOOLEAN NOT NULL)");
+            statement.execute("CREATE INDEX idx_appointments_doctor_slot ON appointments (doctor_id, appointment_date, appointment_time)");
+        }
+        today = LocalDate.now();
+        seed();
+        if (reminderIndex) {
+            Index index = Arrays.stream(Appointment.class.getAnnotation(Table.class).indexes())
+                    .filter(i -> i.name().equals("idx_appointments_reminder"))
+                    .findFirst()
+                    .orElseThrow();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE INDEX " + index.name() + " ON appointments (" + index.columnList() + ")");
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+        upcoming = connection.prepareStatement(UPCOMING_SQL);
+        printPlan();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Nạp toàn bộ cửa sổ 7 ngày theo từng trang (một instance, không chia partition)
+     */
+    @Benchmark
+    public int reloadWindow() throws SQLException {
+        return reload(0, 1);
+    }
+
+    /**
+     * Một instance trong cụm 3 instance nạp phần của mình
+     */
+    @Benchmark
+    public int reloadPartition() throws SQLException {
+        return reload(0, 3);
+    }
+
+    private int reload(int partition, int partitions) throws SQLException {
+        Date afterDate = Date.valueOf(today);
+        long afterId = 0;
+        int loaded = 0;
+        while (true) {
+            upcoming.setDate(1, Date.valueOf(today));
+            upcoming.setDate(2, Date.valueOf(today.plusDays(LOAD_DAYS)));
+            upcoming.setDate(3, afterDate);
+            upcoming.setDate(4, afterDate);
+            upcoming.setLong(5, afterId);
+            upcoming.setInt(6, partitions);
+            upcoming.setInt(7, partition);
+            upcoming.setInt(8, PAGE_SIZE);
+            int rows = 0;
+            try (ResultSet rs = upcoming.executeQuery()) {
+                while (rs.next()) {
+                    afterId = rs.getLong(1);
+                    afterDate = rs.getDate(2);
+                    rows++;
+                }
+            }
+            loaded += rows;
+            if (rows < PAGE_SIZE) {
+                return loaded;
+            }
+        }
+    }
+
+    private void seed() throws SQLException {
+        connection.setAutoCommit(false);
+        SplittableRandom random = new SplittableRandom(42);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO appointments (patient_id, doctor_id, appointment_date, appointment_time, status, price, " +
+                "payment_status, payment_method, created_at, updated_at, reminder_24h_sent, reminder_1h_sent) " +
+                "VALUES (?, ?, ?, ?, ?, 300000, 'PAID', 'WALLET', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, ?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                LocalDate date = today.plusDays(random.nextInt(-PAST_DAYS, FUTURE_DAYS + 1));
+                boolean past = date.isBefore(today);
+                String status = past
+                        ? (random.nextInt(10) == 0 ? "CANCELLED" : "COMPLETED")
+                        : (random.nextInt(10) == 0 ? "CANCELLED" : random.nextBoolean() ? "PENDING" : "CONFIRMED");
+                insert.setLong(1, random.nextInt(1, 50_001));
+                insert.setLong(2, random.nextInt(1, 501));
+                insert.setDate(3, Date.valueOf(date));
+                insert.setTime(4, Time.valueOf(LocalTime.of(random.nextInt(7, 18), random.nextBoolean() ? 0 : 30)));
+                insert.setString(5, status);
+                insert.setBoolean(6, past);
+                insert.setBoolean(7, past);
+                insert.addBatch();
+                if (i % 10_000 == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+        connection.setAutoCommit(true);
+    }
+
+    private void printPlan() throws SQLException {
+        String sql = UPCOMING_SQL
+                .replaceFirst("\\?", "DATE '" + today + "'")
+                .replaceFirst("\\?", "DATE '" + today.plusDays(LOAD_DAYS) + "'")
+                .replaceFirst("\\?", "DATE '" + today + "'")
+                .replaceFirst("\\?", "DATE '" + today + "'")
+                .replaceFirst("\\?", "0")
+                .replaceFirst("\\?", "1")
+                .replaceFirst("\\?", "0")
+                .replaceFirst("\\?", String.valueOf(PAGE_SIZE));
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+            rs.next();
+            System.out.println("\nreminderIndex=" + reminderIndex + " plan:\n" + rs.getString(1));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ReminderQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.doctorbooking.backend.config;
+
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.service.CurrentUserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lỗi resolve user không được ném ra khi resolve tham số (trước try/catch của controller)
+ * mà khi controller đọc id, để controller trả 400/404 như trước.
+ */
+class CurrentUserArgumentResolverTest {
+
+    private final CurrentUserService currentUserService = mock(CurrentUserService.class);
+    private final CurrentUserArgumentResolver resolver = new CurrentUserArgumentResolver(currentUserService);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void resolutionFailureIsRaisedWhenControllerReadsIds() {
+        UsernameNotFoundException notFound = new UsernameNotFoundException("User not found with username: ghost");
+        when(currentUserService.resolve(any(), any())).thenThrow(notFound);
+        authenticate("ghost");
+
+        CurrentUser currentUser = resolve();
+
+        assertSame(notFound, assertThrows(UsernameNotFoundException.class, currentUser::requirePatientId));
+        assertSame(notFound, assertThrows(UsernameNotFoundException.class, currentUser::requireDoctorId));
+        assertSame(notFound, assertThrows(UsernameNotFoundException.class, currentUser::getUserId));
+    }
+
+    @Test
+    void unauthenticatedRequestFailsOnlyWhenIdsAreRead() {
+        CurrentUser currentUser = resolve();
+
+        RuntimeException error = assertThrows(RuntimeException.class, currentUser::requirePatientId);
+        assertEquals("User not authenticated", error.getMessage());
+    }
+
+    @Test
+    void missingPatientProfileStillFailsInsideTheHandler() {
+        when(currentUserService.resolve(any(), any()))
+                .thenReturn(new CurrentUser(7L, "doctor", User.Role.DOCTOR, null, 3L));
+        authenticate("doctor");
+
+        CurrentUser currentUser = resolve();
+
+        assertEquals(3L, currentUser.requireDoctorId());
+        assertEquals(7L, currentUser.getUserId());
+        assertThrows(RuntimeException.class, currentUser::requirePatientId);
+    }
+
+    private CurrentUser resolve() {
+        return (CurrentUser) resolver.resolveArgument(null, null,
+                new ServletWebRequest(new MockHttpServletRequest()), null);
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+}
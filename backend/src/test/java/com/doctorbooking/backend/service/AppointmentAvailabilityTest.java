@@ -0,0 +1,122 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.CursorPage;
+import com.doctorbooking.backend.dto.response.DoctorAvailabilityResponse;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Lịch trống nhiều bác sĩ: chuyên khoa đông bác sĩ được trả theo trang (không bị từ chối),
+ * danh sách id quá giới hạn bị từ chối trước khi query.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:availability;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, SlotClaimService.class, SlotAvailabilityIndex.class, ScheduleTemplateService.class,
+        NotificationService.class, ResourceVersions.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentAvailabilityTest {
+
+    private static final int DOCTORS = 120;
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private OutboxService outboxService;
+    @MockitoBean
+    private WalletService walletService;
+    @MockitoBean
+    private ReminderScheduler reminderScheduler;
+
+    private List<Long> cardiologists;
+
+    @BeforeEach
+    void setUp() {
+        doctorRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        cardiologists = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setUser(userRepository.save(newUser("doctor" + i)));
+            doctor.setFullName("Doctor " + i);
+            doctor.setSpecialization(i % 4 == 0 ? "Nhi khoa" : "Tim mạch");
+            doctor = doctorRepository.save(doctor);
+            if (i % 4 != 0) {
+                cardiologists.add(doctor.getId());
+            }
+        }
+    }
+
+    @Test
+    void pagesThroughLargeSpecialization() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<DoctorAvailabilityResponse> page = appointmentService.getAvailability(
+                    null, "tim mạch", from, from.plusDays(6), cursor, null);
+            page.getItems().forEach(item -> {
+                seen.add(item.getDoctorId());
+                assertEquals(7, item.getAvailableSlots().size());
+            });
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(cardiologists, seen);
+        assertEquals(2, pages);
+    }
+
+    @Test
+    void rejectsTooManyDoctorIdsBeforeQuerying() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        List<Long> tooMany = LongStream.rangeClosed(1, 51).boxed().toList();
+        assertThrows(RuntimeException.class,
+                () -> appointmentService.getAvailability(tooMany, null, from, from, null, null));
+
+        CursorPage<DoctorAvailabilityResponse> page = appointmentService.getAvailability(
+                cardiologists.subList(0, 3), null, from, from, null, null);
+        assertEquals(3, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    private static User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.local");
+        user.setPassword("secret");
+        user.setRole(User.Role.DOCTOR);
+        return user;
+    }
+}
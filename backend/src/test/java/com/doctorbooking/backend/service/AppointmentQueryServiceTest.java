@@ -0,0 +1,227 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.CursorPage;
+import com.doctorbooking.backend.dto.response.DoctorAppointmentItem;
+import com.doctorbooking.backend.model.Appointment;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.Patient;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.AppointmentRepository;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import com.doctorbooking.backend.dto.response.AppointmentResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Danh sách lịch hẹn của bác sĩ phân trang keyset: đi hết các trang phải ra đúng thứ tự
+ * (ngày, giờ, id) giảm dần, không trùng / sót dòng, và không lẫn lịch của bác sĩ khác.
+ * Danh sách của admin (ngày, id giảm dần) và bản xuất NDJSON cũng phải đủ dòng.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:appointment-query;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        // H2 không nhận fetch size âm (giá trị stream của MySQL)
+        "app.export.fetch-size=100",
+        "app.export.flush-every=7"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({AppointmentQueryService.class, NdjsonExporter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentQueryServiceTest {
+
+    @Autowired
+    private AppointmentQueryService appointmentQueryService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Doctor doctor;
+    private List<Appointment> mine;
+    private List<Appointment> all;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository.deleteAllInBatch();
+        patientRepository.deleteAllInBatch();
+        doctorRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        doctor = newDoctor("doctor-a");
+        Doctor other = newDoctor("doctor-b");
+        Patient patient = new Patient();
+        patient.setUser(userRepository.save(newUser("patient", User.Role.PATIENT)));
+        patient.setFullName("Patient");
+        patient.setPhone("0900000000");
+        patient = patientRepository.save(patient);
+
+        // 5 ngày x 4 giờ, mỗi giờ 2 lịch (lịch cũ đã hủy + lịch mới) để thử trường hợp trùng (ngày, giờ)
+        LocalDate start = LocalDate.of(2026, 3, 1);
+        List<Appointment> appointments = new ArrayList<>();
+        for (int day = 0; day < 5; day++) {
+            for (int hour = 8; hour < 12; hour++) {
+                for (int copy = 0; copy < 2; copy++) {
+                    appointments.add(newAppointment(doctor, patient, start.plusDays(day), LocalTime.of(hour, 30),
+                            copy == 0 ? Appointment.AppointmentStatus.CANCELLED : Appointment.AppointmentStatus.CONFIRMED));
+                    appointments.add(newAppointment(other, patient, start.plusDays(day), LocalTime.of(hour, 30),
+                            Appointment.AppointmentStatus.CONFIRMED));
+                }
+            }
+        }
+        all = appointmentRepository.saveAll(appointments);
+        mine = all.stream()
+                .filter(a -> a.getDoctor().getId().equals(doctor.getId()))
+                .sorted(Comparator.comparing(Appointment::getAppointmentDate)
+                        .thenComparing(Appointment::getAppointmentTime)
+                        .thenComparing(Appointment::getId)
+                        .reversed())
+                .toList();
+    }
+
+    @Test
+    void walksAllPagesInOrderWithoutGapsOrDuplicates() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<DoctorAppointmentItem> page = appointmentQueryService.getDoctorAppointmentPage(
+                    doctor.getId(), null, null, null, cursor, 7);
+            assertTrue(page.getItems().size() <= 7);
+            page.getItems().forEach(item -> seen.add(item.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(mine.stream().map(Appointment::getId).toList(), seen);
+        assertEquals(6, pages);
+    }
+
+    @Test
+    void filtersByDateRangeAndStatusInTheQuery() {
+        LocalDate from = LocalDate.of(2026, 3, 2);
+        LocalDate to = LocalDate.of(2026, 3, 3);
+        CursorPage<DoctorAppointmentItem> page = appointmentQueryService.getDoctorAppointmentPage(
+                doctor.getId(), from, to, "confirmed", null, 100);
+
+        List<Long> expected = mine.stream()
+                .filter(a -> !a.getAppointmentDate().isBefore(from) && !a.getAppointmentDate().isAfter(to))
+                .filter(a -> a.getStatus() == Appointment.AppointmentStatus.CONFIRMED)
+                .map(Appointment::getId)
+                .toList();
+        assertEquals(expected, page.getItems().stream().map(DoctorAppointmentItem::getId).toList());
+        assertNull(page.getNextCursor());
+        assertEquals("Patient", page.getItems().get(0).getPatientName());
+        assertEquals("CONFIRMED", page.getItems().get(0).getStatus());
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThrows(RuntimeException.class, () -> appointmentQueryService.getDoctorAppointmentPage(
+                doctor.getId(), null, null, null, "not-a-cursor", 10));
+    }
+
+    @Test
+    void walksAdminPagesNewestFirst() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<AppointmentResponse> page = appointmentQueryService.getAdminAppointmentPage(null, cursor, 9);
+            page.getItems().forEach(item -> seen.add(item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<Long> expected = all.stream()
+                .sorted(Comparator.comparing(Appointment::getAppointmentDate)
+                        .thenComparing(Appointment::getId)
+                        .reversed())
+                .map(Appointment::getId)
+                .toList();
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void exportsOneJsonLinePerAppointment() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LocalDate date = LocalDate.of(2026, 3, 4);
+        long written = appointmentQueryService.exportAppointments(date, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        List<Long> expected = all.stream()
+                .filter(a -> a.getAppointmentDate().equals(date))
+                .map(Appointment::getId)
+                .sorted()
+                .toList();
+        assertEquals(expected.size(), written);
+        assertEquals(expected.size(), lines.length);
+        List<Long> ids = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            assertEquals("Patient", node.get("patientName").asText());
+            ids.add(node.get("id").asLong());
+        }
+        assertEquals(expected, ids);
+    }
+
+    private Doctor newDoctor(String username) {
+        Doctor created = new Doctor();
+        created.setUser(userRepository.save(newUser(username, User.Role.DOCTOR)));
+        created.setFullName(username);
+        created.setSpecialization("General");
+        return doctorRepository.save(created);
+    }
+
+    private static Appointment newAppointment(Doctor doctor, Patient patient, LocalDate date, LocalTime time,
+                                              Appointment.AppointmentStatus status) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setAppointmentDate(date);
+        appointment.setAppointmentTime(time);
+        appointment.setStatus(status);
+        return appointment;
+    }
+
+    private static User newUser(String username, User.Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.local");
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,160 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.model.Appointment;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.Patient;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.AppointmentRepository;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.NotificationRepository;
+import com.doctorbooking.backend.repository.OutboxMessageRepository;
+import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gửi nhắc hẹn theo lô khi timer đến hạn: ghi outbox + thông báo và đánh dấu đã gửi bằng một câu UPDATE.
+ * Dùng H2 ở MySQL mode; dispatcher của outbox tắt nên message chỉ nằm trong bảng.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reminders;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "app.outbox.dispatcher.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({AppointmentReminderService.class, OutboxService.class, OutboxDispatcher.class, NotificationService.class,
+        ResourceVersions.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentReminderServiceTest {
+
+    private static final int APPOINTMENTS = 250;
+
+    @Autowired
+    private AppointmentReminderService appointmentReminderService;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    private List<Long> appointmentIds;
+
+    @BeforeEach
+    void setUp() {
+        outboxMessageRepository.deleteAllInBatch();
+        notificationRepository.deleteAllInBatch();
+        appointmentRepository.deleteAllInBatch();
+        patientRepository.deleteAllInBatch();
+        doctorRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        Doctor doctor = new Doctor();
+        doctor.setUser(userRepository.save(newUser("doctor", User.Role.DOCTOR)));
+        doctor.setFullName("Doctor");
+        doctor.setSpecialization("General");
+        doctor = doctorRepository.save(doctor);
+
+        Patient patient = new Patient();
+        patient.setUser(userRepository.save(newUser("patient", User.Role.PATIENT)));
+        patient.setFullName("Patient");
+        patient = patientRepository.save(patient);
+
+        // Giờ khám đúng 1 giờ nữa (làm tròn theo phút, có thể là giờ lẻ như 08:30)
+        LocalDateTime appointmentAt = LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.MINUTES);
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setPatient(patient);
+            appointment.setDoctor(doctor);
+            appointment.setAppointmentDate(appointmentAt.toLocalDate());
+            appointment.setAppointmentTime(appointmentAt.toLocalTime());
+            appointment.setStatus(i % 10 == 0 ? Appointment.AppointmentStatus.CANCELLED : Appointment.AppointmentStatus.CONFIRMED);
+            appointments.add(appointment);
+        }
+        appointmentIds = appointmentRepository.saveAll(appointments).stream().map(Appointment::getId).toList();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendsDueRemindersOnceInOneBatch() {
+        Map<String, Object> before = (Map<String, Object>) appointmentReminderService.snapshot().get("reminder1h");
+        appointmentReminderService.sendDueReminders(1, appointmentIds);
+
+        long active = APPOINTMENTS - APPOINTMENTS / 10;
+        assertEquals(active, outboxMessageRepository.count());
+        assertEquals(active, notificationRepository.count());
+        assertEquals(active, appointmentRepository.findAll().stream().filter(Appointment::getReminder1hSent).count());
+
+        Map<String, Object> stats = (Map<String, Object>) appointmentReminderService.snapshot().get("reminder1h");
+        assertEquals(1L, delta(before, stats, "batches"));
+        assertEquals(APPOINTMENTS, delta(before, stats, "candidates"));
+        assertEquals(active, delta(before, stats, "sent"));
+        assertEquals(APPOINTMENTS / 10, delta(before, stats, "skipped"));
+        assertEquals(0L, delta(before, stats, "failed"));
+        assertTrue((Double) stats.get("maxBatchMs") > 0);
+
+        // Timer chạy lại (ví dụ instance khác) không gửi trùng
+        appointmentReminderService.sendDueReminders(1, appointmentIds);
+        assertEquals(active, outboxMessageRepository.count());
+    }
+
+    @Test
+    void skipsRemindersThatAreNotDue() {
+        // Giờ khám còn 1 giờ: đã qua mốc 24h nhưng nhắc 1h mới là nhắc đúng
+        appointmentReminderService.sendDueReminders(24, appointmentIds);
+        assertEquals(0, outboxMessageRepository.count());
+
+        // Giờ khám bị dời sang ngày khác: timer cũ bị bỏ qua
+        Appointment moved = appointmentRepository.findById(appointmentIds.get(1)).orElseThrow();
+        moved.setAppointmentDate(moved.getAppointmentDate().plusDays(3));
+        appointmentRepository.save(moved);
+        appointmentReminderService.sendDueReminders(1, List.of(moved.getId()));
+        assertEquals(0, outboxMessageRepository.count());
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String key) {
+        return (Long) after.get(key) - (Long) before.get(key);
+    }
+
+    private static User newUser(String username, User.Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.local");
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+}
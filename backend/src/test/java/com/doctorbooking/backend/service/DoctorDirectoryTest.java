@@ -0,0 +1,138 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.DoctorResponse;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import com.doctorbooking.backend.util.ETags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Danh bạ bác sĩ: snapshot chỉ đổi sau khi transaction commit, rollback thì giữ nguyên;
+ * nội dung không đổi thì giữ nguyên snapshot và ETag; client có ETag hiện tại nhận 304.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:doctor-directory;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DoctorDirectory.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DoctorDirectoryTest {
+
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Doctor cardio;
+
+    @BeforeEach
+    void setUp() {
+        doctorRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        cardio = newDoctor("cardio", "Tim mạch", Doctor.DoctorStatus.ACTIVE);
+        newDoctor("cardio2", "Tim mạch", Doctor.DoctorStatus.ACTIVE);
+        newDoctor("derma", "Da liễu", Doctor.DoctorStatus.INACTIVE);
+        newDoctor("pedia", "Nhi khoa", Doctor.DoctorStatus.ACTIVE);
+        // Nạp lại từ database sau khi seed (mỗi test một bộ dữ liệu mới)
+        doctorDirectory.current();
+        doctorDirectory.refresh();
+    }
+
+    @Test
+    void servesActiveDoctorsAndDistinctSpecializations() {
+        DoctorDirectory.Snapshot snapshot = doctorDirectory.current();
+
+        assertEquals(List.of("cardio", "cardio2", "pedia"),
+                snapshot.activeDoctors().stream().map(DoctorResponse::getUsername).toList());
+        assertEquals(List.of("Nhi khoa", "Tim mạch"), snapshot.specializations());
+        assertEquals("derma", snapshot.byId().values().stream()
+                .filter(d -> d.getStatus().equals("INACTIVE")).findFirst().orElseThrow().getUsername());
+    }
+
+    @Test
+    void appliesWritesOnlyAfterCommit() {
+        DoctorDirectory.Snapshot before = doctorDirectory.current();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            Doctor doctor = doctorRepository.findById(cardio.getId()).orElseThrow();
+            doctor.setSpecialization("Nội khoa");
+            doctorDirectory.put(doctorRepository.save(doctor));
+            status.setRollbackOnly();
+        });
+        assertSame(before, doctorDirectory.current());
+
+        tx.executeWithoutResult(status -> {
+            Doctor doctor = doctorRepository.findById(cardio.getId()).orElseThrow();
+            doctor.setSpecialization("Nội khoa");
+            doctorDirectory.put(doctorRepository.save(doctor));
+            assertSame(before, doctorDirectory.current());
+        });
+        DoctorDirectory.Snapshot after = doctorDirectory.current();
+        assertEquals(before.version() + 1, after.version());
+        assertNotEquals(before.etag(), after.etag());
+        assertEquals(List.of("Nhi khoa", "Nội khoa", "Tim mạch"), after.specializations());
+
+        doctorDirectory.remove(cardio.getId());
+        assertNull(doctorDirectory.current().get(cardio.getId()));
+    }
+
+    @Test
+    void keepsEtagWhenContentIsUnchangedAndAnswersNotModified() {
+        DoctorDirectory.Snapshot before = doctorDirectory.current();
+        doctorDirectory.refresh();
+        doctorDirectory.put(doctorRepository.findById(cardio.getId()).orElseThrow());
+        assertSame(before, doctorDirectory.current());
+
+        ResponseEntity<List<DoctorResponse>> cached =
+                ETags.conditional("W/" + before.etag(), before.etag(), before::activeDoctors);
+        assertEquals(HttpStatus.NOT_MODIFIED, cached.getStatusCode());
+        assertNull(cached.getBody());
+        ResponseEntity<List<DoctorResponse>> stale =
+                ETags.conditional("\"old\"", before.etag(), before::activeDoctors);
+        assertEquals(HttpStatus.OK, stale.getStatusCode());
+        assertEquals(before.etag(), stale.getHeaders().getETag());
+    }
+
+    private Doctor newDoctor(String username, String specialization, Doctor.DoctorStatus status) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.local");
+        user.setPassword("secret");
+        user.setRole(User.Role.DOCTOR);
+        Doctor doctor = new Doctor();
+        doctor.setUser(userRepository.save(user));
+        doctor.setFullName(username);
+        doctor.setSpecialization(specialization);
+        doctor.setStatus(status);
+        return doctorRepository.save(doctor);
+    }
+}
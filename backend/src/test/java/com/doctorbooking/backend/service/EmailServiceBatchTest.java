@@ -0,0 +1,192 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.event.AppointmentReminderEvent;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gửi email theo lô qua SmtpTransportPool, chạy với một SMTP server giả lập trong cùng process.
+ * Server giả lập chậm trễ khi mở kết nối (tương tự TCP + STARTTLS + AUTH của SMTP thật).
+ */
+class EmailServiceBatchTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailServiceBatchTest.class);
+
+    private static final long CONNECT_LATENCY_MS = 20;
+
+    private FakeSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+    private SmtpTransportPool transportPool;
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeSmtpServer(CONNECT_LATENCY_MS);
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+        mailSender.getJavaMailProperties().put("mail.smtp.auth", "false");
+
+        transportPool = new SmtpTransportPool(mailSender);
+        ReflectionTestUtils.setField(transportPool, "size", 2);
+        ReflectionTestUtils.setField(transportPool, "idleTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(transportPool, "borrowTimeoutMs", 5_000L);
+        transportPool.init();
+
+        emailService = new EmailService(mailSender, transportPool, new EmailTemplates());
+        ReflectionTestUtils.setField(emailService, "fromEmail", "Doctor Booking System <noreply@doctorbooking.com>");
+        ReflectionTestUtils.setField(emailService, "smtpUsername", "noreply@doctorbooking.com");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transportPool.shutdown();
+        server.close();
+    }
+
+    @Test
+    void batchIsSentOverOnePooledConnection() throws Exception {
+        assertTrue(emailService.sendBatch(reminders(200)).isEmpty());
+        assertTrue(emailService.sendBatch(reminders(200)).isEmpty());
+
+        assertEquals(400, server.messages.get());
+        // Lô thứ hai dùng lại kết nối của lô đầu
+        assertEquals(1, server.connections.get());
+        assertEquals(1L, transportPool.snapshot().get("opened"));
+    }
+
+    @Test
+    void batchIsFasterThanOneConnectionPerMessage() throws Exception {
+        int count = 100;
+
+        List<MimeMessage> legacy = reminders(count);
+        long start = System.nanoTime();
+        for (MimeMessage message : legacy) {
+            mailSender.send(message);
+        }
+        long legacyMs = (System.nanoTime() - start) / 1_000_000;
+        int legacyConnections = server.connections.get();
+
+        List<MimeMessage> batch = reminders(count);
+        start = System.nanoTime();
+        assertTrue(emailService.sendBatch(batch).isEmpty());
+        long batchMs = (System.nanoTime() - start) / 1_000_000;
+
+        logger.info("SMTP {} reminders: one connection per message {} ms ({} connections), pooled batch {} ms ({} connection)",
+                count, legacyMs, legacyConnections, batchMs, server.connections.get() - legacyConnections);
+        assertEquals(count, legacyConnections);
+        assertEquals(count + 1, server.connections.get());
+        assertEquals(2 * count, server.messages.get());
+        assertTrue(batchMs * 3 < legacyMs, "batch " + batchMs + " ms vs legacy " + legacyMs + " ms");
+    }
+
+    private List<MimeMessage> reminders(int count) throws Exception {
+        List<MimeMessage> messages = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            messages.add(emailService.prepareAppointmentReminderEmail(new AppointmentReminderEvent(
+                    id, "patient" + id + "@test.local", "Patient " + id, "Doctor", "General", "0900000000",
+                    "1 Test Street", LocalDate.now().plusDays(1), LocalTime.of(9, 30), 24, null, null)));
+        }
+        return messages;
+    }
+
+    /**
+     * SMTP server tối giản: chỉ hiểu các lệnh JavaMail dùng khi gửi không xác thực
+     */
+    private static final class FakeSmtpServer {
+
+        private final ServerSocket socket;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final long connectLatencyMs;
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger messages = new AtomicInteger();
+
+        FakeSmtpServer(long connectLatencyMs) throws IOException {
+            this.connectLatencyMs = connectLatencyMs;
+            this.socket = new ServerSocket(0);
+            executor.submit(this::acceptLoop);
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        void close() throws IOException {
+            socket.close();
+            executor.shutdownNow();
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    connections.incrementAndGet();
+                    executor.submit(() -> handle(client));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket client) {
+            try (client;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                 OutputStream out = client.getOutputStream()) {
+                Thread.sleep(connectLatencyMs);
+                reply(out, "220 localhost ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (command) {
+                        case "EHLO" -> reply(out, "250-localhost\r\n250 8BITMIME");
+                        case "DATA" -> {
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // bỏ qua nội dung email
+                            }
+                            messages.incrementAndGet();
+                            reply(out, "250 OK");
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Bye");
+                            return;
+                        }
+                        default -> reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // kết nối bị đóng
+            }
+        }
+
+        private static void reply(OutputStream out, String response) throws IOException {
+            out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.event.AppointmentBookedEvent;
+import com.doctorbooking.backend.model.OutboxMessage;
+import com.doctorbooking.backend.repository.OutboxMessageRepository;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nhiều dispatcher cùng lấy outbox bằng FOR UPDATE SKIP LOCKED: mọi message được gửi đúng một lần.
+ * Dùng H2 ở MySQL mode; EmailService được thay bằng mock có độ trễ giả lập SMTP.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "app.outbox.dispatcher.enabled=false",
+        "app.outbox.dispatcher.batch-size=10",
+        "app.outbox.dispatcher.retry-backoff-ms=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({OutboxDispatcher.class, OutboxService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxDispatcherTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcherTest.class);
+
+    private static final int MESSAGES = 400;
+    private static final long SMTP_LATENCY_MS = 2;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    private final Map<Long, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        outboxMessageRepository.deleteAllInBatch();
+        deliveries.clear();
+        when(emailService.isSmtpConfigured()).thenReturn(true);
+        when(emailService.prepareAppointmentConfirmationEmail(any())).thenAnswer(invocation -> {
+            AppointmentBookedEvent event = invocation.getArgument(0);
+            MimeMessage message = new MimeMessage((Session) null);
+            message.setSubject(String.valueOf(event.appointmentId()));
+            return message;
+        });
+        when(emailService.sendBatch(any())).thenAnswer(invocation -> {
+            Collection<MimeMessage> messages = invocation.getArgument(0);
+            for (MimeMessage message : messages) {
+                Thread.sleep(SMTP_LATENCY_MS);
+                deliveries.computeIfAbsent(Long.valueOf(message.getSubject()), id -> new AtomicInteger()).incrementAndGet();
+            }
+            return Map.of();
+        });
+    }
+
+    @Test
+    void everyMessageIsDeliveredExactlyOnceAcrossDispatchers() throws Exception {
+        enqueue(MESSAGES);
+
+        drain(4);
+
+        assertEquals(MESSAGES, deliveries.size());
+        deliveries.forEach((id, count) -> assertEquals(1, count.get(), "appointment " + id));
+        assertEquals(MESSAGES, countWithStatus(OutboxMessage.Status.DONE));
+    }
+
+    @Test
+    void failedDeliveryIsRetriedThenMarkedDone() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            Collection<MimeMessage> messages = invocation.getArgument(0);
+            if (calls.incrementAndGet() == 1) {
+                return Map.of(messages.iterator().next(), new MailSendException("SMTP timeout"));
+            }
+            return Map.of();
+        }).when(emailService).sendBatch(any());
+        enqueue(1);
+
+        assertEquals(1, outboxDispatcher.dispatchBatch());
+        assertEquals(1, countWithStatus(OutboxMessage.Status.PENDING));
+        assertEquals(1, outboxDispatcher.dispatchBatch());
+        assertEquals(1, countWithStatus(OutboxMessage.Status.DONE));
+        assertEquals(2, outboxMessageRepository.findAll().get(0).getAttempts());
+    }
+
+    @Test
+    void reportsThroughputPerDispatcherCount() throws Exception {
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            outboxMessageRepository.deleteAllInBatch();
+            deliveries.clear();
+            enqueue(MESSAGES);
+
+            long start = System.nanoTime();
+            drain(threads);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            assertEquals(MESSAGES, deliveries.size());
+            deliveries.values().forEach(count -> assertEquals(1, count.get()));
+            logger.info("Outbox throughput: {} dispatcher(s), {} messages in {} ms ({} msg/s)",
+                    threads, MESSAGES, Math.round(seconds * 1000), Math.round(MESSAGES / seconds));
+        }
+    }
+
+    private void enqueue(int count) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            for (long id = 1; id <= count; id++) {
+                outboxService.enqueue(OutboxMessage.MessageType.APPOINTMENT_CONFIRMATION_EMAIL, new AppointmentBookedEvent(
+                        id, 1L, "patient@test.local", "Patient", "", "Doctor", "General", "", "",
+                        LocalDate.now().plusDays(1), LocalTime.of(9, 0), "CASH", "PENDING", "100,000",
+                        null, null, null));
+            }
+        });
+    }
+
+    /**
+     * Chạy dispatchBatch() trên nhiều thread cho tới khi outbox hết message đến hạn
+     */
+    private void drain(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                while (outboxDispatcher.dispatchBatch() > 0) {
+                    // tiếp tục lấy lô mới
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private long countWithStatus(OutboxMessage.Status status) {
+        return outboxMessageRepository.findAll().stream().filter(m -> m.getStatus() == status).count();
+    }
+}
@@ -0,0 +1,155 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.CursorPage;
+import com.doctorbooking.backend.dto.response.PatientResponse;
+import com.doctorbooking.backend.model.Patient;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.repository.PatientSearchKeyRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import com.doctorbooking.backend.util.SearchText;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tìm bệnh nhân qua patient_search_keys: kết quả theo tên (không dấu, tiền tố) phải trùng với lọc trực tiếp,
+ * đi hết các trang không trùng / sót; số là id hoặc số điện thoại; đổi tên thì khóa cũ không còn khớp.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:patient-search;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "app.patients.search.backfill-batch=40"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PatientSearchService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PatientSearchServiceTest {
+
+    private static final String[] FAMILY = {"Nguyễn", "Trần", "Lê", "Phạm", "Đặng"};
+    private static final String[] MIDDLE = {"Văn", "Thị", "Đức", "Minh"};
+    private static final String[] GIVEN = {"An", "Anh", "Bình", "Lan", "Long", "Tuấn", "Hương"};
+
+    @Autowired
+    private PatientSearchService patientSearchService;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private PatientSearchKeyRepository patientSearchKeyRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private List<Patient> patients;
+
+    @BeforeEach
+    void setUp() {
+        patientSearchKeyRepository.deleteAllInBatch();
+        patientRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        List<Patient> created = new ArrayList<>();
+        int n = 0;
+        for (String family : FAMILY) {
+            for (String middle : MIDDLE) {
+                for (String given : GIVEN) {
+                    User user = new User();
+                    user.setUsername("patient" + n);
+                    user.setEmail("patient" + n + "@test.local");
+                    user.setPassword("secret");
+                    user.setRole(User.Role.PATIENT);
+                    Patient patient = new Patient();
+                    patient.setUser(userRepository.save(user));
+                    patient.setFullName(family + " " + middle + " " + given);
+                    patient.setPhone(String.format("0901 %03d %03d", n / 1000, n % 1000));
+                    created.add(patient);
+                    n++;
+                }
+            }
+        }
+        patients = patientRepository.saveAll(created);
+        // Dữ liệu có sẵn chưa có khóa: bổ sung như lúc khởi động
+        patientSearchService.backfill();
+    }
+
+    @Test
+    void matchesFoldedNamePrefixesAcrossPages() {
+        assertEquals(expected("duc an"), walk("Đức An", 3));
+        assertEquals(expected("nguy lan"), walk("nguy LAN", 4));
+        assertEquals(expected("tran"), walk("trần", 7));
+        assertTrue(walk("nguyen xyz", 10).isEmpty());
+    }
+
+    @Test
+    void findsExactIdAndPhone() {
+        Patient target = patients.get(17);
+        List<Long> byId = ids(patientSearchService.search(String.valueOf(target.getId()), null, 10));
+        assertEquals(List.of(target.getId()), byId);
+
+        CursorPage<PatientResponse> byPhone = patientSearchService.search("+84 901 000 017", null, 10);
+        assertEquals(List.of(target.getId()), ids(byPhone));
+        assertNull(byPhone.getNextCursor());
+    }
+
+    @Test
+    void reindexReplacesOldNameKeys() {
+        Patient target = patients.get(0);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Patient patient = patientRepository.findById(target.getId()).orElseThrow();
+            patient.setFullName("Hoàng Quốc Việt");
+            patient.setPhone("0987654321");
+            patientSearchService.index(patientRepository.save(patient));
+        });
+
+        assertEquals(List.of(target.getId()), walk("hoang viet", 10));
+        assertTrue(!walk("nguyen van an", 10).contains(target.getId()));
+        assertEquals(List.of(target.getId()), ids(patientSearchService.search("0987654321", null, 10)));
+        assertTrue(ids(patientSearchService.search("0901000000", null, 10)).isEmpty());
+    }
+
+    private List<Long> walk(String keyword, int limit) {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<PatientResponse> page = patientSearchService.search(keyword, cursor, limit);
+            assertTrue(page.getItems().size() <= limit);
+            seen.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private List<Long> expected(String keyword) {
+        List<String> words = SearchText.tokens(keyword);
+        return patients.stream()
+                .filter(p -> {
+                    List<String> name = SearchText.tokens(p.getFullName());
+                    return words.stream().allMatch(w -> name.stream().anyMatch(t -> t.startsWith(w)));
+                })
+                .map(Patient::getId)
+                .sorted()
+                .toList();
+    }
+
+    private static List<Long> ids(CursorPage<PatientResponse> page) {
+        return page.getItems().stream().map(PatientResponse::getId).toList();
+    }
+}
@@ -0,0 +1,286 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.model.Appointment;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.Notification;
+import com.doctorbooking.backend.model.Patient;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.AppointmentRepository;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.FamilyAppointmentRepository;
+import com.doctorbooking.backend.repository.NotificationRepository;
+import com.doctorbooking.backend.repository.OutboxMessageRepository;
+import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.repository.SchedulerNodeRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Nhiều ReminderScheduler (mỗi cái một "instance" với lease riêng) chạy trên cùng một database H2:
+ * phần việc được chia theo id, instance chết thì instance còn lại nhận phần của nó, và không có nhắc hẹn trùng.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reminder-cluster;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "app.outbox.dispatcher.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({OutboxService.class, OutboxDispatcher.class, NotificationService.class,
+        ResourceVersions.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReminderSchedulerClusterTest {
+
+    private static final int NODES = 3;
+    private static final int APPOINTMENTS = 300;
+    private static final long LEASE_MS = 1_500;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private FamilyAppointmentRepository familyAppointmentRepository;
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private SchedulerNodeRepository schedulerNodeRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private NotificationService notificationService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        schedulerNodeRepository.deleteAllInBatch();
+        outboxMessageRepository.deleteAllInBatch();
+        notificationRepository.deleteAllInBatch();
+        appointmentRepository.deleteAllInBatch();
+        patientRepository.deleteAllInBatch();
+        doctorRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(newNode("node-" + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (Node node : nodes) {
+            Thread ticker = (Thread) ReflectionTestUtils.getField(node.scheduler, "ticker");
+            node.scheduler.stop();
+            if (ticker != null) {
+                ticker.join(10_000);
+            }
+        }
+    }
+
+    @Test
+    void nodesSplitRemindersWithoutDuplicates() throws Exception {
+        seedAppointments(LocalDateTime.now().plusHours(1).plusSeconds(3));
+        // Đăng ký lease trước để mọi instance thấy cùng một cụm 3 node khi khởi động
+        nodes.forEach(node -> node.registry.heartbeat());
+        nodes.forEach(node -> node.scheduler.start());
+
+        int timers = 0;
+        for (Node node : nodes) {
+            assertEquals(NODES, node.scheduler.snapshot().get("partitions"));
+            assertTrue(node.scheduler.size() < APPOINTMENTS / 2, "partition of " + node.id + " is too large");
+            timers += node.scheduler.size();
+        }
+        assertEquals(APPOINTMENTS, timers);
+
+        awaitReminders(APPOINTMENTS);
+        for (Node node : nodes) {
+            assertTrue(sent(node) > 0, node.id + " sent nothing");
+        }
+        assertEquals(APPOINTMENTS, nodes.stream().mapToLong(ReminderSchedulerClusterTest::sent).sum());
+        assertSentOnce();
+    }
+
+    @Test
+    void survivingNodesTakeOverTheLeaseOfACrashedNode() throws Exception {
+        seedAppointments(LocalDateTime.now().plusHours(1).plusSeconds(2));
+        nodes.forEach(node -> node.registry.heartbeat());
+        nodes.forEach(node -> node.scheduler.start());
+
+        // node-2 chết đột ngột: không rời cụm, lease tự hết hạn
+        Node crashed = nodes.get(NODES - 1);
+        crash(crashed);
+        long orphaned = crashed.scheduler.size();
+
+        awaitReminders(APPOINTMENTS - orphaned);
+        // Các instance còn sống heartbeat đều đặn cho tới khi lease của node-2 hết hạn
+        List<Node> survivors = nodes.subList(0, NODES - 1);
+        long deadline = System.currentTimeMillis() + LEASE_MS * 4;
+        while (System.currentTimeMillis() < deadline
+                && survivors.stream().anyMatch(node -> !Integer.valueOf(NODES - 1).equals(node.scheduler.snapshot().get("partitions")))) {
+            survivors.forEach(node -> node.scheduler.heartbeat());
+            Thread.sleep(LEASE_MS / 5);
+        }
+        for (Node node : survivors) {
+            assertEquals(NODES - 1, node.scheduler.snapshot().get("partitions"));
+        }
+
+        awaitReminders(APPOINTMENTS);
+        assertEquals(0, sent(crashed));
+        assertSentOnce();
+    }
+
+    @Test
+    void sameReminderFiredOnSeveralNodesIsSentOnce() throws Exception {
+        List<Long> ids = seedAppointments(LocalDateTime.now().plusHours(1));
+        List<ReminderScheduler.ReminderKey> due = ids.stream()
+                .map(id -> new ReminderScheduler.ReminderKey(id, 1))
+                .toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(NODES);
+        CyclicBarrier barrier = new CyclicBarrier(NODES);
+        List<CompletableFuture<Void>> runs = nodes.stream()
+                .map(node -> CompletableFuture.runAsync(() -> {
+                    try {
+                        barrier.await();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    node.scheduler.fire(due);
+                }, executor))
+                .toList();
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+        executor.shutdown();
+
+        assertEquals(APPOINTMENTS, nodes.stream().mapToLong(ReminderSchedulerClusterTest::sent).sum());
+        assertSentOnce();
+    }
+
+    private void assertSentOnce() {
+        assertEquals(APPOINTMENTS, outboxMessageRepository.count());
+        Map<Long, Long> perAppointment = notificationRepository.findAll().stream()
+                .collect(Collectors.groupingBy(Notification::getAppointmentId, Collectors.counting()));
+        assertEquals(APPOINTMENTS, perAppointment.size());
+        assertTrue(perAppointment.values().stream().allMatch(count -> count == 1));
+        assertTrue(appointmentRepository.findAll().stream().allMatch(Appointment::getReminder1hSent));
+    }
+
+    private void awaitReminders(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (outboxMessageRepository.count() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, outboxMessageRepository.count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long sent(Node node) {
+        Map<String, Object> stats = (Map<String, Object>) node.reminderService.snapshot().get("reminder1h");
+        return (Long) stats.get("sent");
+    }
+
+    private static void crash(Node node) {
+        ReflectionTestUtils.setField(node.scheduler, "running", false);
+        ((Thread) ReflectionTestUtils.getField(node.scheduler, "ticker")).interrupt();
+        ReflectionTestUtils.setField(node.scheduler, "ticker", null);
+    }
+
+    private Node newNode(String id) {
+        SchedulerNodeRegistry registry = new SchedulerNodeRegistry(schedulerNodeRepository, transactionManager);
+        ReflectionTestUtils.setField(registry, "nodeId", id);
+        ReflectionTestUtils.setField(registry, "leaseMs", LEASE_MS);
+        registry.init();
+
+        AppointmentReminderService reminderService = new AppointmentReminderService(
+                appointmentRepository, familyAppointmentRepository, outboxService, notificationService, transactionManager);
+        reminderService.init();
+
+        ReminderScheduler scheduler = new ReminderScheduler(appointmentRepository, reminderService, registry);
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "tickMillis", 100L);
+        ReflectionTestUtils.setField(scheduler, "loadDays", 7);
+        ReflectionTestUtils.setField(scheduler, "retryDelayMs", 1_000L);
+        ReflectionTestUtils.setField(scheduler, "catchUpMs", 3_600_000L);
+        ReflectionTestUtils.setField(scheduler, "pageSize", 50);
+        return new Node(id, registry, reminderService, scheduler);
+    }
+
+    private List<Long> seedAppointments(LocalDateTime appointmentAt) {
+        Doctor doctor = new Doctor();
+        doctor.setUser(userRepository.save(newUser("doctor", User.Role.DOCTOR)));
+        doctor.setFullName("Doctor");
+        doctor.setSpecialization("General");
+        doctor = doctorRepository.save(doctor);
+
+        Patient patient = new Patient();
+        patient.setUser(userRepository.save(newUser("patient", User.Role.PATIENT)));
+        patient.setFullName("Patient");
+        patient = patientRepository.save(patient);
+
+        LocalDateTime at = appointmentAt.truncatedTo(ChronoUnit.SECONDS);
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setPatient(patient);
+            appointment.setDoctor(doctor);
+            appointment.setAppointmentDate(at.toLocalDate());
+            appointment.setAppointmentTime(at.toLocalTime());
+            appointment.setStatus(Appointment.AppointmentStatus.CONFIRMED);
+            appointments.add(appointment);
+        }
+        return appointmentRepository.saveAll(appointments).stream().map(Appointment::getId).toList();
+    }
+
+    private static User newUser(String username, User.Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.local");
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+
+    private record Node(String id, SchedulerNodeRegistry registry,
+                        AppointmentReminderService reminderService, ReminderScheduler scheduler) {
+    }
+}
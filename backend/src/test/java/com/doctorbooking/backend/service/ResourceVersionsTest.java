@@ -0,0 +1,70 @@
+package com.doctorbooking.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static com.doctorbooking.backend.service.ResourceVersions.Resource.APPOINTMENTS;
+import static com.doctorbooking.backend.service.ResourceVersions.Resource.WALLET;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ResourceVersionsTest {
+
+    private ResourceVersions versions;
+
+    @BeforeEach
+    void setUp() {
+        versions = new ResourceVersions();
+        ReflectionTestUtils.setField(versions, "ttlSeconds", 30L);
+        ReflectionTestUtils.setField(versions, "maxSize", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void keepsEtagUntilTheResourceIsBumped() {
+        String appointments = versions.etag(APPOINTMENTS, 1L);
+        String wallet = versions.etag(WALLET, 1L);
+
+        assertEquals(appointments, versions.etag(APPOINTMENTS, 1L));
+        assertNotEquals(appointments, wallet);
+        assertNotEquals(appointments, versions.etag(APPOINTMENTS, 2L));
+
+        versions.bump(APPOINTMENTS, 1L);
+        assertNotEquals(appointments, versions.etag(APPOINTMENTS, 1L));
+        assertEquals(wallet, versions.etag(WALLET, 1L));
+    }
+
+    @Test
+    void invalidatesEtagsIssuedWhileTheWriteWasUncommitted() {
+        String before = versions.etag(APPOINTMENTS, 1L);
+        TransactionSynchronizationManager.initSynchronization();
+        versions.bump(APPOINTMENTS, 1L);
+
+        // Request khác đọc trong lúc transaction chưa commit: nhận ETag mới nhưng dữ liệu cũ
+        String duringTransaction = versions.etag(APPOINTMENTS, 1L);
+        assertNotEquals(before, duringTransaction);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        String afterCommit = versions.etag(APPOINTMENTS, 1L);
+        assertNotEquals(duringTransaction, afterCommit);
+        assertEquals(afterCommit, versions.etag(APPOINTMENTS, 1L));
+    }
+
+    @Test
+    void rotatesEtagAfterTtl() {
+        ReflectionTestUtils.setField(versions, "ttlSeconds", -1L);
+        String first = versions.etag(WALLET, 1L);
+        assertNotEquals(first, versions.etag(WALLET, 1L));
+    }
+}
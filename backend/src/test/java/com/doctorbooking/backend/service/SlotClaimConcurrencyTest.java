@@ -0,0 +1,291 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.request.CreateAppointmentRequest;
+import com.doctorbooking.backend.model.Appointment;
+import com.doctorbooking.backend.model.Doctor;
+import com.doctorbooking.backend.model.Patient;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.AppointmentRepository;
+import com.doctorbooking.backend.repository.DoctorRepository;
+import com.doctorbooking.backend.repository.NotificationRepository;
+import com.doctorbooking.backend.repository.PatientRepository;
+import com.doctorbooking.backend.repository.SlotClaimRepository;
+import com.doctorbooking.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Nhiều thread cùng đặt một slot qua AppointmentService.createAppointment: chỉ đúng một lịch hẹn được giữ chỗ,
+ * các lần đặt thua nhận lỗi "slot đã bị giữ" và rollback luôn appointment vừa lưu.
+ * Dùng H2 ở MySQL mode (unique key của slot_claims giống production).
+ * Email (outbox), ví và timer nhắc hẹn không nằm trong phạm vi test nên được mock.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:slotclaims;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AppointmentService.class, SlotClaimService.class, SlotAvailabilityIndex.class, ScheduleTemplateService.class,
+        NotificationService.class, ResourceVersions.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SlotClaimConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotClaimConcurrencyTest.class);
+
+    private static final int THREADS = 32;
+    // Lịch làm việc mặc định: 08:00-17:00, nghỉ trưa 12:00-13:00, slot 30 phút
+    private static final List<LocalTime> DAY_SLOTS = defaultDaySlots();
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private SlotClaimService slotClaimService;
+    @Autowired
+    private SlotClaimRepository slotClaimRepository;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private OutboxService outboxService;
+    @MockitoBean
+    private WalletService walletService;
+    @MockitoBean
+    private ReminderScheduler reminderScheduler;
+
+    private TransactionTemplate tx;
+    private Doctor doctor;
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        slotClaimRepository.deleteAllInBatch();
+        notificationRepository.deleteAllInBatch();
+        appointmentRepository.deleteAllInBatch();
+        patientRepository.deleteAllInBatch();
+        doctorRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        doctor = new Doctor();
+        doctor.setUser(userRepository.save(newUser("doctor", User.Role.DOCTOR)));
+        doctor.setFullName("Doctor");
+        doctor.setSpecialization("General");
+        doctor = doctorRepository.save(doctor);
+
+        patient = new Patient();
+        patient.setUser(userRepository.save(newUser("patient", User.Role.PATIENT)));
+        patient.setFullName("Patient");
+        patient = patientRepository.save(patient);
+    }
+
+    @Test
+    void onlyOneBookingWinsTheSameSlot() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(1);
+        LocalTime time = LocalTime.of(9, 0);
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(THREADS, i -> {
+            if (book(date, time) != null) {
+                booked.incrementAndGet();
+            } else {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, booked.get());
+        assertEquals(THREADS - 1, rejected.get());
+        assertEquals(1, appointmentRepository.count());
+        assertEquals(1, slotClaimRepository.count());
+    }
+
+    @Test
+    void cancelledSlotCanBeBookedAgainWithoutDeletingHistory() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        LocalTime time = LocalTime.of(10, 0);
+
+        Long first = book(date, time);
+        assertNotNull(first);
+        assertNull(book(date, time));
+
+        appointmentService.cancelAppointment(first, patient.getId());
+
+        assertNotNull(book(date, time));
+        assertEquals(2, appointmentRepository.count());
+        assertEquals(1, slotClaimRepository.count());
+    }
+
+    @Test
+    void onlyDuplicateSlotIsReportedAsTaken() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        LocalTime time = LocalTime.of(9, 0);
+        Appointment first = appointmentRepository.findById(book(date, time)).orElseThrow();
+
+        // Appointment khác cùng slot: claim trả về false (transaction đã bị đánh dấu rollback)
+        Appointment second = appointmentRepository.save(newAppointment(date, time));
+        Boolean claimed = tx.execute(status -> {
+            boolean result = slotClaimService.claim(second);
+            status.setRollbackOnly();
+            return result;
+        });
+        assertEquals(Boolean.FALSE, claimed);
+
+        // Trùng unique key khác (appointment_id đã giữ slot khác) không phải "slot đã bị giữ"
+        Appointment sameAppointment = newAppointment(date, LocalTime.of(9, 30));
+        sameAppointment.setId(first.getId());
+        assertThrows(DataIntegrityViolationException.class,
+                () -> tx.executeWithoutResult(status -> slotClaimService.claim(sameAppointment)));
+
+        // Vi phạm FK (appointment không tồn tại) cũng không được nuốt
+        Appointment missing = newAppointment(date, LocalTime.of(10, 0));
+        missing.setId(Long.MAX_VALUE);
+        assertThrows(DataIntegrityViolationException.class,
+                () -> tx.executeWithoutResult(status -> slotClaimService.claim(missing)));
+        assertEquals(1, slotClaimRepository.count());
+
+        // Giờ ngoài lịch làm việc bị từ chối trước khi lưu gì, với lỗi riêng
+        RuntimeException error = assertThrows(RuntimeException.class, () -> book(date, LocalTime.of(12, 0)));
+        assertEquals("Selected time is not in the doctor's schedule", error.getMessage());
+        assertEquals(2, appointmentRepository.count());
+    }
+
+    @Test
+    void reportsBookingThroughput() throws Exception {
+        int perThread = 20;
+        LocalDate date = LocalDate.now().plusDays(2);
+        // Mỗi thread đặt các slot khác nhau (từ ngày hôm sau), cộng thêm một slot "nóng" mà mọi thread cùng tranh
+        LocalTime hot = DAY_SLOTS.get(0);
+        AtomicInteger booked = new AtomicInteger();
+
+        long start = System.nanoTime();
+        runConcurrently(THREADS, i -> {
+            for (int n = 0; n < perThread; n++) {
+                int slot = i * perThread + n;
+                LocalDate day = date.plusDays(1 + slot / DAY_SLOTS.size());
+                if (book(day, DAY_SLOTS.get(slot % DAY_SLOTS.size())) != null) {
+                    booked.incrementAndGet();
+                }
+            }
+            if (book(date, hot) != null) {
+                booked.incrementAndGet();
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        int attempts = THREADS * (perThread + 1);
+        assertEquals(THREADS * perThread + 1, booked.get());
+        assertEquals(booked.get(), appointmentRepository.count());
+        assertEquals(booked.get(), slotClaimRepository.count());
+        logger.info("Slot claim throughput: {} attempts by {} threads in {} ms ({} bookings/s)",
+                attempts, THREADS, Math.round(seconds * 1000), Math.round(attempts / seconds));
+    }
+
+    /**
+     * Một lần đặt lịch (thanh toán tiền mặt) qua AppointmentService.createAppointment.
+     * Trả về id appointment hoặc null nếu slot đã bị giữ; lỗi khác được ném ra.
+     */
+    private Long book(LocalDate date, LocalTime time) {
+        try {
+            return appointmentService.createAppointment(patient.getId(),
+                    new CreateAppointmentRequest(doctor.getId(), date, time, null, "CASH", null)).getId();
+        } catch (RuntimeException e) {
+            if (!"Appointment slot is already taken".equals(e.getMessage())) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    private Appointment newAppointment(LocalDate date, LocalTime time) {
+        Appointment appointment = new Appointment();
+        appointment.setPatient(patient);
+        appointment.setDoctor(doctor);
+        appointment.setAppointmentDate(date);
+        appointment.setAppointmentTime(time);
+        return appointment;
+    }
+
+    private void runConcurrently(int threads, ThrowingConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                ready.await();
+                task.accept(index);
+                return null;
+            }));
+        }
+        ready.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private static List<LocalTime> defaultDaySlots() {
+        List<LocalTime> slots = new ArrayList<>();
+        for (LocalTime time = LocalTime.of(8, 0); time.isBefore(LocalTime.of(17, 30)); time = time.plusMinutes(30)) {
+            if (time.getHour() != 12) {
+                slots.add(time);
+            }
+        }
+        return slots;
+    }
+
+    private static User newUser(String username, User.Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.local");
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingConsumer {
+        void accept(int index) throws Exception;
+    }
+}
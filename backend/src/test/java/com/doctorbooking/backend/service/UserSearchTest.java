@@ -0,0 +1,129 @@
+package com.doctorbooking.backend.service;
+
+import com.doctorbooking.backend.dto.response.UserResponse;
+import com.doctorbooking.backend.model.User;
+import com.doctorbooking.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tìm tài khoản trong database (UserRepository.searchPage + UserService.prefixPattern):
+ * khớp tiền tố username hoặc email, ký tự đặc biệt của LIKE được escape, lọc role / enabled, keyset theo id.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-search;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSearchTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAllInBatch();
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            User.Role role = i % 3 == 0 ? User.Role.DOCTOR : User.Role.PATIENT;
+            created.add(newUser("user" + i, "contact" + i + "@clinic.vn", role, i % 5 != 0));
+        }
+        created.add(newUser("an_nguyen", "an_nguyen@clinic.vn", User.Role.PATIENT, true));
+        created.add(newUser("anxnguyen", "other@clinic.vn", User.Role.PATIENT, true));
+        created.add(newUser("admin", "admin@clinic.vn", User.Role.ADMIN, true));
+        users = userRepository.saveAll(created);
+    }
+
+    @Test
+    void matchesUsernameOrEmailPrefixAcrossPages() {
+        List<Long> expected = users.stream()
+                .filter(u -> u.getUsername().startsWith("user1") || u.getEmail().startsWith("user1"))
+                .map(User::getId)
+                .toList();
+        assertEquals(expected, walk("user1", null, null, 4));
+
+        List<Long> byEmail = walk("contact2", null, null, 100);
+        assertEquals(users.stream().filter(u -> u.getEmail().startsWith("contact2")).map(User::getId).toList(), byEmail);
+
+        // Kết quả tìm kiếm cùng dạng UserResponse với danh sách đầy đủ (giao diện admin hiển thị createdAt)
+        UserResponse row = userRepository.searchPage(UserService.prefixPattern("admin"), null, null, 0,
+                PageRequest.of(0, 1)).get(0);
+        assertEquals(UserResponse.fromUser(userRepository.findById(row.getId()).orElseThrow()), row);
+    }
+
+    @Test
+    void escapesLikeWildcards() {
+        // '_' phải khớp đúng ký tự '_', không phải một ký tự bất kỳ
+        assertEquals(List.of(users.get(30).getId()), walk("an_", null, null, 10));
+        assertEquals(List.of(), walk("%", null, null, 10));
+        assertNull(UserService.prefixPattern("  "));
+        assertEquals("a!_b!%!!%", UserService.prefixPattern(" a_b%! "));
+    }
+
+    @Test
+    void filtersByRoleAndEnabled() {
+        List<Long> expected = users.stream()
+                .filter(u -> u.getRole() == User.Role.DOCTOR && !u.getEnabled())
+                .map(User::getId)
+                .toList();
+        assertEquals(expected, walk(null, User.Role.DOCTOR, false, 1));
+        assertEquals(List.of(users.get(32).getId()), walk("ad", User.Role.ADMIN, true, 10));
+    }
+
+    @Test
+    void unpagedSearchReturnsEveryMatch() {
+        // Danh sách cũ (GET /api/admin/users có bộ lọc) không bị cắt ở kích thước trang tối đa
+        List<User> bulk = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            bulk.add(newUser("bulk" + i, "bulk" + i + "@clinic.vn", User.Role.PATIENT, true));
+        }
+        List<Long> expected = userRepository.saveAll(bulk).stream().map(User::getId).toList();
+
+        List<UserResponse> rows = userRepository.searchPage(UserService.prefixPattern("bulk"), User.Role.PATIENT,
+                true, 0, Pageable.unpaged());
+        assertEquals(expected, rows.stream().map(UserResponse::getId).toList());
+    }
+
+    private List<Long> walk(String search, User.Role role, Boolean enabled, int limit) {
+        List<Long> seen = new ArrayList<>();
+        long afterId = 0;
+        while (true) {
+            List<UserResponse> page = userRepository.searchPage(UserService.prefixPattern(search), role, enabled,
+                    afterId, PageRequest.of(0, limit));
+            page.forEach(u -> seen.add(u.getId()));
+            if (page.size() < limit) {
+                return seen;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    private static User newUser(String username, String email, User.Role role, boolean enabled) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        user.setEnabled(enabled);
+        return user;
+    }
+}
@@ -0,0 +1,57 @@
+package com.doctorbooking.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    private InvertedIndex<String> doctors() {
+        InvertedIndex<String> index = new InvertedIndex<>(8, 4, 2, 1);
+        index.put(1, "tuan", "Nguyễn Văn Tuấn", "Tim mạch", "Tiến sĩ", "Chuyên điều trị bệnh tim");
+        index.put(2, "duc", "Trần Đức Minh", "Nội khoa", "Thạc sĩ", "Khám tim mạch tổng quát");
+        index.put(3, "lan", "Lê Thị Lan", "Nhi khoa", "Bác sĩ CKI", null);
+        return index;
+    }
+
+    @Test
+    void matchesWithoutDiacriticsAndByPrefix() {
+        InvertedIndex<String> index = doctors();
+
+        assertEquals(List.of("duc"), index.search("duc", 10));
+        assertEquals(List.of("duc"), index.search("Đức", 10));
+        assertEquals(List.of("tuan"), index.search("nguy", 10));
+        assertEquals(List.of("duc", "lan"), index.search("KHOA", 10));
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void ranksNameAndSpecializationAboveBioAndRequiresEveryWord() {
+        InvertedIndex<String> index = doctors();
+
+        // "tim": chuyên khoa của tuan, chỉ có trong phần giới thiệu của duc
+        assertEquals(List.of("tuan", "duc"), index.search("tim", 10));
+        assertEquals(List.of("duc"), index.search("tim noi", 10));
+        assertEquals(List.of("tuan"), index.search("tim", 1));
+    }
+
+    @Test
+    void updatesAndRemovesIncrementally() {
+        InvertedIndex<String> index = doctors();
+        int terms = index.termCount();
+
+        index.put(3, "lan", "Lê Thị Lan", "Da liễu", "Bác sĩ CKI", null);
+        assertEquals(List.of("duc"), index.search("khoa", 10));
+        assertEquals(List.of("lan"), index.search("da lieu", 10));
+
+        index.remove(2);
+        assertTrue(index.search("khoa", 10).isEmpty());
+        assertEquals(List.of("tuan"), index.search("tim", 10));
+        assertEquals(2, index.size());
+        assertTrue(index.termCount() < terms);
+    }
+}
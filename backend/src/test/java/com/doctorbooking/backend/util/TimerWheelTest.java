@@ -0,0 +1,79 @@
+package com.doctorbooking.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private static final long TICK = 1_000;
+
+    @Test
+    void firesHalfHourReminderAtExactTick() {
+        // Giờ khám 08:30: nhắc 1h lúc 07:30 và nhắc 24h lúc 08:30 hôm trước
+        long start = millis(LocalDateTime.of(2026, 3, 9, 8, 12, 7));
+        long due1h = millis(LocalDateTime.of(2026, 3, 10, 7, 30));
+        long due24h = millis(LocalDateTime.of(2026, 3, 9, 8, 30));
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, start);
+        wheel.schedule("1h", due1h);
+        wheel.schedule("24h", due24h);
+
+        assertTrue(wheel.advance(due24h - TICK).isEmpty());
+        assertEquals(List.of("24h"), wheel.advance(due24h));
+        assertTrue(wheel.advance(due1h - 1).isEmpty());
+        assertEquals(List.of("1h"), wheel.advance(due1h));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesTimersFromEveryLevelInDueOrder() {
+        long start = 1_700_000_123_456L;
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, start);
+        long[] delays = {3_000, 90_000, 5_000_000, 400_000_000L, 20_000_000_000L};
+        for (int i = delays.length - 1; i >= 0; i--) {
+            wheel.schedule(i, start + delays[i]);
+        }
+
+        for (int i = 0; i < delays.length; i++) {
+            long due = start + delays[i];
+            assertTrue(wheel.advance(due - TICK).isEmpty(), "timer " + i + " fired early");
+            assertEquals(List.of(i), wheel.advance(due + TICK - 1));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelAndRescheduleReplaceTheTimer() {
+        long start = 0;
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, start);
+        wheel.schedule("a", 10_000);
+        wheel.schedule("b", 10_000);
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+
+        // Đổi giờ khám: timer cũ bị thay, không chạy hai lần
+        wheel.schedule("a", 100_000);
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(50_000).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(100_000));
+    }
+
+    @Test
+    void overdueTimerFiresOnNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 60_000);
+        wheel.schedule("late", 1_000);
+        assertTrue(wheel.contains("late"));
+        assertEquals(List.of("late"), wheel.advance(60_000));
+        assertFalse(wheel.contains("late"));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}